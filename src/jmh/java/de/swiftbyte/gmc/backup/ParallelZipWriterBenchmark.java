@@ -0,0 +1,80 @@
+package de.swiftbyte.gmc.backup;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/*
+ * Compares the parallel writer with the single threaded ZipOutputStream it replaced on a save sized
+ * file. The reported time per operation divided into 256 MiB gives the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelZipWriterBenchmark {
+
+    private static final int FILE_SIZE = 256 * 1024 * 1024;
+
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    @Param({"1", "6"})
+    private int level;
+
+    private Path directory;
+    private Path saveFile;
+    private Path archive;
+
+    @Setup(Level.Trial)
+    public void createSaveFile() throws IOException {
+
+        directory = Files.createTempDirectory("gmc-zip-benchmark");
+        saveFile = directory.resolve("TheIsland_WP.ark");
+        archive = directory.resolve("backup.zip");
+
+        //Save files mix repeated structures with random values, this compresses to roughly a third
+        byte[] block = new byte[1024 * 1024];
+        Random random = new Random(42);
+        try (OutputStream outputStream = Files.newOutputStream(saveFile)) {
+            for (int written = 0; written < FILE_SIZE; written += block.length) {
+                for (int i = 0; i < block.length; i++) block[i] = (byte) (i % 64 < 40 ? i % 16 : random.nextInt(256));
+                outputStream.write(block);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        Files.deleteIfExists(archive);
+        Files.deleteIfExists(saveFile);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public ArchiveEntry parallelZipWriter() throws IOException {
+        try (ParallelZipWriter writer = new ParallelZipWriter(archive, threads, level)) {
+            return writer.addFile("SavedArks/TheIsland_WP.ark", saveFile, null);
+        }
+    }
+
+    @Benchmark
+    public long zipOutputStream() throws IOException {
+        try (ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(archive))) {
+            outputStream.setLevel(level);
+            outputStream.putNextEntry(new ZipEntry("SavedArks/TheIsland_WP.ark"));
+            long copied = Files.copy(saveFile, outputStream);
+            outputStream.closeEntry();
+            return copied;
+        }
+    }
+}
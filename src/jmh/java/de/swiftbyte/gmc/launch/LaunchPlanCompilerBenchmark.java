@@ -0,0 +1,59 @@
+package de.swiftbyte.gmc.launch;
+
+import de.swiftbyte.gmc.common.packet.entity.ServerSettings;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Compiles the start command of a server with every setting in use. User parameters are checked
+ * against the ones the daemon sets itself, so the time grows with the number of extra parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LaunchPlanCompilerBenchmark {
+
+    private static final Path INSTALL_DIR = Path.of("C:/servers/the-island");
+
+    @Param({"0", "10", "100"})
+    private int extraParameters;
+
+    private ServerSettings settings;
+
+    @Setup(Level.Trial)
+    public void createSettings() {
+
+        List<String> launchParameters2 = new ArrayList<>();
+        List<String> launchParameters3 = new ArrayList<>();
+        for (int i = 0; i < extraParameters; i++) {
+            launchParameters2.add("Option" + i + "=True");
+            launchParameters3.add("-flag" + i);
+        }
+
+        settings = new ServerSettings();
+        settings.setMap("ScorchedEarth_WP");
+        settings.setName("My Server");
+        settings.setGamePort(7777);
+        settings.setQueryPort(27015);
+        settings.setRconPort(27020);
+        settings.setServerPassword("join me");
+        settings.setMaxPlayers(70);
+        settings.setModIds("928793,900062");
+        settings.setClusterId("gmc-cluster");
+        settings.setLaunchParameters1(List.of("/high"));
+        settings.setLaunchParameters2(launchParameters2);
+        settings.setLaunchParameters3(launchParameters3);
+    }
+
+    @Benchmark
+    public LaunchPlan build() {
+        return LaunchPlanCompiler.build(settings, "My Server", INSTALL_DIR, "ArkAscendedServer.exe", "rcon-pw");
+    }
+}
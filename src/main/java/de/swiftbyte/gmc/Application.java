@@ -2,6 +2,7 @@ package de.swiftbyte.gmc;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.LoggerContext;
+import de.swiftbyte.gmc.stomp.StompHandler;
 import de.swiftbyte.gmc.utils.ConfigUtils;
 import de.swiftbyte.gmc.utils.ConnectionState;
 import lombok.Getter;
@@ -58,6 +59,7 @@ public class Application {
     private static ComponentFlow.Builder componentFlowBuilder;
 
     private static final Thread shutdownHook = new Thread(() -> {
+        ConfigUtils.flush();
         if (node == null) return;
         log.debug("Shutting down...");
         node.shutdown();
@@ -92,6 +94,10 @@ public class Application {
         if (Boolean.parseBoolean(ConfigUtils.get("debug", "false"))) rootLogger.setLevel(Level.DEBUG);
         else rootLogger.setLevel(Level.INFO);
 
+        ConfigUtils.addChangeListener("debug", value -> rootLogger.setLevel(Boolean.parseBoolean(value) ? Level.DEBUG : Level.INFO));
+        ConfigUtils.addChangeListener("backend-domain", value -> reconnectToChangedBackend());
+        ConfigUtils.addChangeListener("backend-secure", value -> reconnectToChangedBackend());
+
         log.debug("Daemon ready... Version: " + version);
 
         node = new Node();
@@ -105,6 +111,13 @@ public class Application {
         }
     }
 
+    private static void reconnectToChangedBackend() {
+        if (node == null || node.getConnectionState() != ConnectionState.CONNECTED) return;
+        log.info("Backend address changed to '" + getBackendUrl() + "'. Reconnecting...");
+        StompHandler.disconnect();
+        node.setConnectionState(ConnectionState.RECONNECTING);
+    }
+
     public static ScheduledExecutorService getExecutor() {
         return Executors.newScheduledThreadPool(1);
     }
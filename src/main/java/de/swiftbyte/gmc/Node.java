@@ -3,6 +3,7 @@ package de.swiftbyte.gmc;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.swiftbyte.gmc.cache.CacheModel;
+import de.swiftbyte.gmc.cache.NodeStateRepository;
 import de.swiftbyte.gmc.common.packet.entity.NodeSettings;
 import de.swiftbyte.gmc.common.packet.entity.ResourceUsage;
 import de.swiftbyte.gmc.common.packet.node.NodeHeartbeatPacket;
@@ -27,6 +28,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.concurrent.TimeUnit;
 
@@ -79,32 +81,27 @@ public class Node extends Thread {
         nodeId = ConfigUtils.get("node.id", "dummy");
         secret = ConfigUtils.get("node.secret", "dummy");
 
-        File cacheFile = new File("./cache.json");
+        NodeStateRepository.load();
+        CacheModel cacheModel = NodeStateRepository.getCacheModel();
 
-        if (!cacheFile.exists()) {
-            log.debug("No cache file found. Skipping...");
+        if (cacheModel == null) {
+            log.debug("No cached information found. Skipping...");
             return;
         }
 
-        try {
-            CacheModel cacheModel = CommonUtils.getObjectReader().readValue(new File("./cache.json"), CacheModel.class);
-            nodeName = cacheModel.getNodeName();
-            teamName = cacheModel.getTeamName();
-            serverPath = cacheModel.getServerPath();
-            isAutoUpdateEnabled = cacheModel.isAutoUpdateEnabled();
-            manageFirewallAutomatically = cacheModel.isManageFirewallAutomatically();
-
-            serverStopMessage = cacheModel.getServerStopMessage();
-            serverRestartMessage = cacheModel.getServerRestartMessage();
+        nodeName = cacheModel.getNodeName();
+        teamName = cacheModel.getTeamName();
+        serverPath = cacheModel.getServerPath();
+        isAutoUpdateEnabled = cacheModel.isAutoUpdateEnabled();
+        manageFirewallAutomatically = cacheModel.isManageFirewallAutomatically();
 
-            if (cacheModel.getAutoBackup() != null) autoBackup = cacheModel.getAutoBackup();
-            else autoBackup = new NodeSettings.AutoBackup();
+        serverStopMessage = cacheModel.getServerStopMessage();
+        serverRestartMessage = cacheModel.getServerRestartMessage();
 
-            log.debug("Got cached information.");
+        if (cacheModel.getAutoBackup() != null) autoBackup = cacheModel.getAutoBackup();
+        else autoBackup = new NodeSettings.AutoBackup();
 
-        } catch (IOException e) {
-            log.error("An unknown error occurred while getting cached information.", e);
-        }
+        log.debug("Got cached information.");
     }
 
     public void shutdown() {
@@ -122,6 +119,7 @@ public class Node extends Thread {
         }
         log.debug("Caching information...");
         NodeUtils.cacheInformation(this);
+        NodeStateRepository.flush();
     }
 
     public void joinTeam() {
@@ -204,8 +202,7 @@ public class Node extends Thread {
             return;
         }
 
-        ConfigUtils.store("node.id", nodeId);
-        ConfigUtils.store("node.secret", secret);
+        ConfigUtils.storeAll(Map.of("node.id", nodeId, "node.secret", secret));
 
         setConnectionState(ConnectionState.NOT_CONNECTED);
         connect();
@@ -235,7 +232,10 @@ public class Node extends Thread {
             isUpdating = true;
             log.debug("Start updating daemon to latest version! Downloading...");
 
-            NodeUtils.downloadLatestDaemonInstaller();
+            if (!NodeUtils.downloadLatestDaemonInstaller()) {
+                isUpdating = false;
+                return;
+            }
 
             log.debug("Starting installer and restarting daemon...");
 
@@ -289,8 +289,6 @@ public class Node extends Thread {
             NodeHeartbeatPacket heartbeatPacket = getNodeHeartbeatPacket();
 
             StompHandler.send("/app/node/heartbeat", heartbeatPacket);
-
-            BackupService.deleteAllExpiredBackups();
         } else if (connectionState == ConnectionState.RECONNECTING) {
             connect();
         }
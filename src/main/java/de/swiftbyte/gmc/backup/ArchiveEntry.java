@@ -0,0 +1,20 @@
+package de.swiftbyte.gmc.backup;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchiveEntry {
+
+    private String name;
+    private long size;
+    private long crc;
+    private String sha256;
+
+    public ArchiveEntry(String name, long size, long crc) {
+        this(name, size, crc, null);
+    }
+}
@@ -0,0 +1,28 @@
+package de.swiftbyte.gmc.backup;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+public interface ArchiveReader extends Closeable {
+
+    List<ArchiveEntry> getEntries();
+
+    InputStream openEntry(ArchiveEntry entry) throws IOException;
+
+    default ArchiveEntry getEntry(String name) {
+        return getEntries().stream().filter(entry -> entry.getName().equals(name)).findFirst().orElse(null);
+    }
+
+    default void extract(ArchiveEntry entry, Path target) throws IOException {
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (InputStream inputStream = openEntry(entry)) {
+            Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
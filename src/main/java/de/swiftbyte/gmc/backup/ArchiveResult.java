@@ -0,0 +1,15 @@
+package de.swiftbyte.gmc.backup;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ArchiveResult {
+
+    private long size;
+    private List<ArchiveEntry> entries;
+
+}
@@ -0,0 +1,14 @@
+package de.swiftbyte.gmc.backup;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.LongConsumer;
+
+public interface ArchiveWriter extends Closeable {
+
+    ArchiveEntry addFile(String name, Path file, LongConsumer progressListener) throws IOException;
+
+    void abort();
+
+}
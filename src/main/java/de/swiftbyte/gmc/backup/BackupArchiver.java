@@ -0,0 +1,118 @@
+package de.swiftbyte.gmc.backup;
+
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+@Slf4j
+public class BackupArchiver {
+
+    public static ArchiveResult archive(Path sourceDirectory, Predicate<Path> filter, Path target, BackupCodec codec, BackupProgressListener progressListener) throws IOException {
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(sourceDirectory)) {
+            files = stream.filter(Files::isRegularFile).filter(filter).sorted().toList();
+        }
+
+        long totalBytes = 0;
+        for (Path file : files) totalBytes += Files.size(file);
+
+        log.debug("Archiving " + files.size() + " files with " + totalBytes + " bytes from '" + sourceDirectory + "'...");
+
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path partFile = target.resolveSibling(target.getFileName() + ".part");
+
+        long finalTotalBytes = totalBytes;
+        long[] processedBytes = {0};
+
+        ArchiveWriter archiveWriter = codec.createWriter(partFile, getCompressionThreads());
+        List<ArchiveEntry> entries = new ArrayList<>();
+
+        try {
+            for (Path file : files) {
+                long[] readBytes = {0};
+                ArchiveEntry entry = archiveWriter.addFile(getEntryName(sourceDirectory, file), file, bytes -> {
+                    IoThrottle.DISK.acquire(bytes);
+                    readBytes[0] += bytes;
+                    processedBytes[0] += bytes;
+                    if (progressListener != null) progressListener.onProgress(processedBytes[0], finalTotalBytes);
+                });
+                entries.add(entry);
+
+                //Files taken over from a previous backup are never read, so they count as progress without using the I/O limit
+                if (entry.getSize() > readBytes[0]) {
+                    processedBytes[0] += entry.getSize() - readBytes[0];
+                    if (progressListener != null) progressListener.onProgress(processedBytes[0], finalTotalBytes);
+                }
+            }
+            archiveWriter.close();
+        } catch (IOException e) {
+            archiveWriter.abort();
+            Files.deleteIfExists(partFile);
+            throw e;
+        }
+
+        AtomicFileUtils.move(partFile, target);
+        return new ArchiveResult(Files.size(target), entries);
+    }
+
+    public static MessageDigest createDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not available.", e);
+        }
+    }
+
+    public static String getFingerprint(Path sourceDirectory, Predicate<Path> filter) throws IOException {
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(sourceDirectory)) {
+            files = stream.filter(Files::isRegularFile).filter(filter).sorted().toList();
+        }
+
+        long totalBytes = 0;
+        long lastModified = 0;
+        for (Path file : files) {
+            totalBytes += Files.size(file);
+            lastModified = Math.max(lastModified, Files.getLastModifiedTime(file).toMillis());
+        }
+
+        return files.size() + ":" + totalBytes + ":" + lastModified;
+    }
+
+    public static int getCompressionThreads() {
+        int defaultThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+        try {
+            return Math.max(1, Integer.parseInt(ConfigUtils.get("backup.compression-threads", String.valueOf(defaultThreads))));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for 'backup.compression-threads'. Using " + defaultThreads + " threads.");
+            return defaultThreads;
+        }
+    }
+
+    public static int getCompressionLevel() {
+        try {
+            int level = Integer.parseInt(ConfigUtils.get("backup.compression-level", "6"));
+            return Math.max(Deflater.NO_COMPRESSION, Math.min(Deflater.BEST_COMPRESSION, level));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for 'backup.compression-level'. Using default compression.");
+            return 6;
+        }
+    }
+
+    public static String getEntryName(Path sourceDirectory, Path file) {
+        return sourceDirectory.relativize(file).toString().replace('\\', '/');
+    }
+}
@@ -0,0 +1,75 @@
+package de.swiftbyte.gmc.backup;
+
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+@Slf4j
+@Getter
+public enum BackupCodec {
+
+    ZIP(0, ".zip", null),
+    ZSTD(1, ".zst.gmca", FrameCodec.ZSTD),
+    LZ4(2, ".lz4.gmca", FrameCodec.LZ4),
+    CHUNKED(3, ".gmcm", null);
+
+    private final int id;
+    private final String extension;
+
+    //Only the framed codecs have one
+    @Getter(AccessLevel.NONE)
+    private final FrameCodec frameCodec;
+
+    BackupCodec(int id, String extension, FrameCodec frameCodec) {
+        this.id = id;
+        this.extension = extension;
+        this.frameCodec = frameCodec;
+    }
+
+    public ArchiveWriter createWriter(Path target, int threads) throws IOException {
+        return switch (this) {
+            case ZIP -> new ParallelZipWriter(target, threads, BackupArchiver.getCompressionLevel());
+            case CHUNKED -> new ChunkedArchiveWriter(target);
+            case ZSTD, LZ4 -> new FramedArchiveWriter(target, frameCodec, threads);
+        };
+    }
+
+    public ArchiveReader openReader(Path archive) throws IOException {
+        return switch (this) {
+            case ZIP -> new ZipArchiveReader(archive);
+            case CHUNKED -> new ChunkedArchiveReader(archive);
+            case ZSTD, LZ4 -> new FramedArchiveReader(archive);
+        };
+    }
+
+    public void delete(Path archive) throws IOException {
+
+        if (this != CHUNKED) {
+            Files.delete(archive);
+            return;
+        }
+
+        ChunkStore.forArchive(archive).delete(archive);
+    }
+
+    public static BackupCodec getById(int id) throws IOException {
+        return Arrays.stream(values()).filter(codec -> codec.id == id).findFirst()
+                .orElseThrow(() -> new IOException("Unknown backup codec " + id + "."));
+    }
+
+    public static BackupCodec getConfigured() {
+        String codecName = ConfigUtils.get("backup.codec", ZIP.name());
+        try {
+            return valueOf(codecName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown backup codec '" + codecName + "' configured. Falling back to " + ZIP.name() + ".");
+            return ZIP;
+        }
+    }
+}
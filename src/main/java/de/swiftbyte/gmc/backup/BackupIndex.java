@@ -0,0 +1,100 @@
+package de.swiftbyte.gmc.backup;
+
+import de.swiftbyte.gmc.common.packet.entity.Backup;
+
+import java.time.Instant;
+import java.util.*;
+
+public class BackupIndex {
+
+    private final HashMap<String, Backup> backupsById = new HashMap<>();
+    private final HashMap<String, BackupMetadata> metadataById = new HashMap<>();
+    private final HashMap<String, Set<String>> backupIdsByServer = new HashMap<>();
+    private final TreeMap<Instant, Set<String>> backupIdsByExpiry = new TreeMap<>();
+
+    public synchronized void put(Backup backup, BackupMetadata metadata) {
+
+        remove(backup.getBackupId());
+
+        backupsById.put(backup.getBackupId(), backup);
+        metadataById.put(backup.getBackupId(), metadata == null ? new BackupMetadata() : metadata);
+        backupIdsByServer.computeIfAbsent(backup.getServerId(), serverId -> new LinkedHashSet<>()).add(backup.getBackupId());
+        if (backup.getExpiresAt() != null) {
+            backupIdsByExpiry.computeIfAbsent(backup.getExpiresAt(), expiresAt -> new LinkedHashSet<>()).add(backup.getBackupId());
+        }
+    }
+
+    public synchronized Backup remove(String backupId) {
+
+        Backup backup = backupsById.remove(backupId);
+        if (backup == null) return null;
+        metadataById.remove(backupId);
+
+        Set<String> serverBackups = backupIdsByServer.get(backup.getServerId());
+        if (serverBackups != null) {
+            serverBackups.remove(backupId);
+            if (serverBackups.isEmpty()) backupIdsByServer.remove(backup.getServerId());
+        }
+
+        if (backup.getExpiresAt() != null) {
+            Set<String> expiringBackups = backupIdsByExpiry.get(backup.getExpiresAt());
+            if (expiringBackups != null) {
+                expiringBackups.remove(backupId);
+                if (expiringBackups.isEmpty()) backupIdsByExpiry.remove(backup.getExpiresAt());
+            }
+        }
+
+        return backup;
+    }
+
+    public synchronized boolean updateMetadata(String backupId, BackupMetadataUpdate update) {
+        BackupMetadata metadata = metadataById.get(backupId);
+        if (metadata == null) return false;
+        metadataById.put(backupId, update.applyTo(metadata));
+        return true;
+    }
+
+    public synchronized void clear() {
+        backupsById.clear();
+        metadataById.clear();
+        backupIdsByServer.clear();
+        backupIdsByExpiry.clear();
+    }
+
+    public synchronized Backup get(String backupId) {
+        return backupsById.get(backupId);
+    }
+
+    public synchronized BackupMetadata getMetadata(String backupId) {
+        BackupMetadata metadata = metadataById.get(backupId);
+        return metadata == null ? new BackupMetadata() : metadata;
+    }
+
+    public synchronized int size() {
+        return backupsById.size();
+    }
+
+    public synchronized List<Backup> getAll() {
+        return new ArrayList<>(backupsById.values());
+    }
+
+    public synchronized List<Backup> getByServer(String serverId) {
+        Set<String> serverBackups = backupIdsByServer.get(serverId);
+        if (serverBackups == null) return List.of();
+        return serverBackups.stream().map(backupsById::get).toList();
+    }
+
+    public synchronized List<String> getServerIds() {
+        return new ArrayList<>(backupIdsByServer.keySet());
+    }
+
+    public synchronized List<Backup> getExpired(Instant now) {
+        List<Backup> expiredBackups = new ArrayList<>();
+        backupIdsByExpiry.headMap(now, true).values().forEach(ids -> ids.forEach(id -> expiredBackups.add(backupsById.get(id))));
+        return expiredBackups;
+    }
+
+    public synchronized Instant getNextExpiry(Instant now) {
+        return backupIdsByExpiry.higherKey(now);
+    }
+}
@@ -0,0 +1,76 @@
+package de.swiftbyte.gmc.backup;
+
+import de.swiftbyte.gmc.server.GameServer;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+@Getter
+public class BackupJob implements BackupProgressListener {
+
+    private final GameServer server;
+    private final Path clusterDirectory;
+    private final boolean autoBackup;
+    private final String name;
+    private final Instant startAt;
+    //Server backups wait for the cluster backup of their cycle, it is the one they link to
+    private final CompletableFuture<Void> prerequisite;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+    @Setter
+    private volatile State state = State.SCHEDULED;
+    private volatile Instant startedAt;
+    private volatile long processedBytes;
+    private volatile long totalBytes;
+
+    public BackupJob(GameServer server, boolean autoBackup, String name, Instant startAt, BackupJob prerequisite) {
+        this.server = server;
+        this.clusterDirectory = null;
+        this.autoBackup = autoBackup;
+        this.name = name;
+        this.startAt = startAt;
+        this.prerequisite = prerequisite == null ? CompletableFuture.completedFuture(null) : prerequisite.getCompletion();
+    }
+
+    public BackupJob(Path clusterDirectory, boolean autoBackup, Instant startAt) {
+        this.server = null;
+        this.clusterDirectory = clusterDirectory;
+        this.autoBackup = autoBackup;
+        this.name = null;
+        this.startAt = startAt;
+        this.prerequisite = CompletableFuture.completedFuture(null);
+    }
+
+    public String getDisplayName() {
+        return server != null ? server.getFriendlyName() : "Cluster " + clusterDirectory;
+    }
+
+    public void start() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+    }
+
+    @Override
+    public void onProgress(long processedBytes, long totalBytes) {
+        this.processedBytes = processedBytes;
+        this.totalBytes = totalBytes;
+    }
+
+    public Duration getEstimatedTimeRemaining() {
+
+        if (state != State.RUNNING || startedAt == null || processedBytes == 0) return null;
+
+        long elapsedMillis = Duration.between(startedAt, Instant.now()).toMillis();
+        return Duration.ofMillis((long) ((double) (totalBytes - processedBytes) / processedBytes * elapsedMillis));
+    }
+
+    public enum State {
+        SCHEDULED,
+        QUEUED,
+        RUNNING
+    }
+}
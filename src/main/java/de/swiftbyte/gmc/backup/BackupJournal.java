@@ -0,0 +1,294 @@
+package de.swiftbyte.gmc.backup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import de.swiftbyte.gmc.Application;
+import de.swiftbyte.gmc.common.packet.entity.Backup;
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+import de.swiftbyte.gmc.utils.CommonUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.zip.CRC32;
+
+@Slf4j
+public class BackupJournal {
+
+    private static final int COMPACTION_MIN_DEAD_RECORDS = 256;
+
+    private final Path journalPath;
+    private final Path legacyPath;
+
+    private final ObjectReader reader = CommonUtils.getObjectReader().forType(BackupJournalRecord.class);
+    private final ObjectWriter writer = CommonUtils.getObjectWriter();
+    private final ScheduledExecutorService executor = Application.getExecutor();
+
+    @Getter
+    private final BackupIndex index = new BackupIndex();
+
+    private FileChannel channel;
+    private int deadRecords;
+    private boolean hasCorruptRecords;
+    private boolean compactionScheduled;
+
+    public BackupJournal(Path journalPath, Path legacyPath) {
+        this.journalPath = journalPath;
+        this.legacyPath = legacyPath;
+    }
+
+    public synchronized void open() throws IOException {
+
+        index.clear();
+        deadRecords = 0;
+        hasCorruptRecords = false;
+
+        if (Files.exists(journalPath)) {
+            truncateTornRecord();
+            replay();
+        } else if (Files.exists(legacyPath)) {
+            migrateLegacyFile();
+        }
+
+        channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        scheduleCompactionIfNeeded();
+    }
+
+    private void replay() throws IOException {
+
+        log.debug("Replaying backup journal...");
+
+        int records = 0;
+        int corruptRecords = 0;
+
+        try (BufferedReader bufferedReader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                if (line.isBlank()) continue;
+
+                BackupJournalRecord record = decode(line);
+                if (record == null) {
+                    corruptRecords++;
+                    continue;
+                }
+
+                records++;
+                apply(record);
+            }
+        }
+
+        deadRecords = records - index.size();
+
+        if (corruptRecords > 0) {
+            log.warn("Skipped " + corruptRecords + " corrupt record(s) while replaying the backup journal.");
+            hasCorruptRecords = true;
+        }
+
+        log.debug("Replayed " + records + " journal records into " + index.size() + " backups.");
+    }
+
+    //A crash while appending can leave a last record without its newline, the next append would be joined onto it
+    private void truncateTornRecord() throws IOException {
+
+        try (FileChannel fileChannel = FileChannel.open(journalPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            long position = fileChannel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+            while (position > 0) {
+                int length = (int) Math.min(buffer.capacity(), position);
+                buffer.clear().limit(length);
+                fileChannel.read(buffer, position - length);
+
+                for (int i = length - 1; i >= 0; i--) {
+                    if (buffer.get(i) != '\n') continue;
+
+                    long completeLength = position - length + i + 1;
+                    if (completeLength == fileChannel.size()) return;
+
+                    log.warn("Truncating torn record of " + (fileChannel.size() - completeLength) + " bytes at the end of the backup journal.");
+                    fileChannel.truncate(completeLength);
+                    fileChannel.force(true);
+                    return;
+                }
+                position -= length;
+            }
+
+            if (fileChannel.size() > 0) {
+                log.warn("Truncating torn record of " + fileChannel.size() + " bytes at the end of the backup journal.");
+                fileChannel.truncate(0);
+                fileChannel.force(true);
+            }
+        }
+    }
+
+    private void migrateLegacyFile() throws IOException {
+
+        log.debug("Migrating legacy backup file to journal...");
+
+        HashMap<String, Backup> legacyBackups = CommonUtils.getObjectReader().forType(new TypeReference<HashMap<String, Backup>>() {
+        }).readValue(legacyPath.toFile());
+        legacyBackups.values().forEach(backup -> index.put(backup, new BackupMetadata()));
+
+        writeCompactedJournal();
+        Files.delete(legacyPath);
+
+        log.debug("Migrated " + index.size() + " backups to journal.");
+    }
+
+    private void apply(BackupJournalRecord record) {
+        switch (record.getType()) {
+            case CREATE -> index.put(record.getBackup(), record.getMetadata());
+            case UPDATE -> index.updateMetadata(record.getBackupId(), record.getUpdate());
+            case DELETE -> index.remove(record.getBackupId());
+        }
+    }
+
+    public void recordCreate(Backup backup, BackupMetadata metadata) {
+        append(List.of(BackupJournalRecord.create(backup, metadata)));
+    }
+
+    //Checked and appended under the journal lock, so an update never revives a backup that was just deleted
+    public synchronized boolean recordUpdate(String backupId, BackupMetadataUpdate update) {
+        if (index.get(backupId) == null) return false;
+        append(List.of(BackupJournalRecord.update(backupId, update)));
+        return true;
+    }
+
+    public void recordDelete(String backupId) {
+        append(List.of(BackupJournalRecord.delete(backupId)));
+    }
+
+    public void recordDeletes(Collection<String> backupIds) {
+        if (backupIds.isEmpty()) return;
+        append(backupIds.stream().map(BackupJournalRecord::delete).toList());
+    }
+
+    private synchronized void append(List<BackupJournalRecord> records) {
+
+        if (channel == null) {
+            log.error("Tried to write to the backup journal before it was opened.");
+            return;
+        }
+
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            for (BackupJournalRecord record : records) buffer.write(encode(record));
+
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer.toByteArray());
+            while (byteBuffer.hasRemaining()) channel.write(byteBuffer);
+            channel.force(false);
+        } catch (IOException e) {
+            log.error("An unknown error occurred while writing to the backup journal.", e);
+            return;
+        }
+
+        for (BackupJournalRecord record : records) {
+            boolean existed = index.get(record.getBackupId()) != null;
+            if (record.getType() == BackupJournalRecord.Type.DELETE) deadRecords += existed ? 2 : 1;
+            else if (record.getType() == BackupJournalRecord.Type.UPDATE) deadRecords++;
+            else if (existed) deadRecords++;
+            apply(record);
+        }
+
+        scheduleCompactionIfNeeded();
+    }
+
+    private void scheduleCompactionIfNeeded() {
+        if (compactionScheduled) return;
+        if (!hasCorruptRecords && (deadRecords < COMPACTION_MIN_DEAD_RECORDS || deadRecords < index.size())) return;
+        compactionScheduled = true;
+        executor.execute(this::compact);
+    }
+
+    public synchronized void compact() {
+
+        compactionScheduled = false;
+        if (channel == null) return;
+
+        log.debug("Compacting backup journal with " + deadRecords + " dead records...");
+
+        try {
+            channel.close();
+            writeCompactedJournal();
+            channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            log.debug("Compacted backup journal to " + index.size() + " records.");
+        } catch (IOException e) {
+            log.error("An unknown error occurred while compacting the backup journal.", e);
+            try {
+                channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            } catch (IOException ex) {
+                log.error("Could not reopen the backup journal.", ex);
+                channel = null;
+            }
+        }
+    }
+
+    private void writeCompactedJournal() throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (Backup backup : index.getAll()) {
+            buffer.write(encode(BackupJournalRecord.create(backup, index.getMetadata(backup.getBackupId()))));
+        }
+        AtomicFileUtils.write(journalPath, buffer.toByteArray());
+        deadRecords = 0;
+        hasCorruptRecords = false;
+    }
+
+    public synchronized void close() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("An error occurred while closing the backup journal.", e);
+        }
+        channel = null;
+    }
+
+    public synchronized void delete() throws IOException {
+        close();
+        index.clear();
+        Files.deleteIfExists(journalPath);
+        Files.deleteIfExists(legacyPath);
+    }
+
+    private byte[] encode(BackupJournalRecord record) throws IOException {
+        byte[] payload = writer.writeValueAsBytes(record);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        String line = String.format("%08x", crc.getValue()) + " " + new String(payload, StandardCharsets.UTF_8) + "\n";
+        return line.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private BackupJournalRecord decode(String line) {
+
+        int separator = line.indexOf(' ');
+        if (separator != 8) return null;
+
+        byte[] payload = line.substring(separator + 1).getBytes(StandardCharsets.UTF_8);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        try {
+            if (Long.parseLong(line.substring(0, separator), 16) != crc.getValue()) return null;
+            return reader.readValue(payload);
+        } catch (NumberFormatException | IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package de.swiftbyte.gmc.backup;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import de.swiftbyte.gmc.common.packet.entity.Backup;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BackupJournalRecord {
+
+    private Type type;
+    private String backupId;
+    private Backup backup;
+    private BackupMetadata metadata;
+    private BackupMetadataUpdate update;
+
+    public static BackupJournalRecord create(Backup backup, BackupMetadata metadata) {
+        return new BackupJournalRecord(Type.CREATE, backup.getBackupId(), backup, metadata, null);
+    }
+
+    public static BackupJournalRecord update(String backupId, BackupMetadataUpdate update) {
+        return new BackupJournalRecord(Type.UPDATE, backupId, null, null, update);
+    }
+
+    public static BackupJournalRecord delete(String backupId) {
+        return new BackupJournalRecord(Type.DELETE, backupId, null, null, null);
+    }
+
+    public enum Type {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+}
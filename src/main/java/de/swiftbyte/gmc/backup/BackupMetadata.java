@@ -0,0 +1,44 @@
+package de.swiftbyte.gmc.backup;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class BackupMetadata {
+
+    private BackupCodec codec = BackupCodec.ZIP;
+    private String saveFingerprint;
+    private List<ArchiveEntry> files;
+    private String clusterBackupId;
+
+    private String remoteTarget;
+    private String remoteKey;
+
+    private VerificationStatus verificationStatus = VerificationStatus.UNVERIFIED;
+    private Instant verifiedAt;
+
+    //The index only hands out metadata that is never changed again, updates work on a copy
+    public BackupMetadata copy() {
+        BackupMetadata metadata = new BackupMetadata();
+        metadata.setCodec(codec);
+        metadata.setSaveFingerprint(saveFingerprint);
+        metadata.setFiles(files);
+        metadata.setClusterBackupId(clusterBackupId);
+        metadata.setRemoteTarget(remoteTarget);
+        metadata.setRemoteKey(remoteKey);
+        metadata.setVerificationStatus(verificationStatus);
+        metadata.setVerifiedAt(verifiedAt);
+        return metadata;
+    }
+
+    public enum VerificationStatus {
+        UNVERIFIED,
+        OK,
+        CORRUPT,
+        MISSING
+    }
+}
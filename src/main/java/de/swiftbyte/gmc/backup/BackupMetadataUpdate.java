@@ -0,0 +1,42 @@
+package de.swiftbyte.gmc.backup;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/*
+ * The fields of a backup that change after it was created. Unset fields are kept, so the journal only
+ * stores what changed instead of the full backup with all its entries.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BackupMetadataUpdate {
+
+    private String remoteTarget;
+    private String remoteKey;
+
+    private BackupMetadata.VerificationStatus verificationStatus;
+    private Instant verifiedAt;
+
+    public static BackupMetadataUpdate replicated(String remoteTarget, String remoteKey) {
+        return new BackupMetadataUpdate(remoteTarget, remoteKey, null, null);
+    }
+
+    public static BackupMetadataUpdate verified(BackupMetadata.VerificationStatus verificationStatus, Instant verifiedAt) {
+        return new BackupMetadataUpdate(null, null, verificationStatus, verifiedAt);
+    }
+
+    public BackupMetadata applyTo(BackupMetadata metadata) {
+        BackupMetadata updatedMetadata = metadata.copy();
+        if (remoteTarget != null) updatedMetadata.setRemoteTarget(remoteTarget);
+        if (remoteKey != null) updatedMetadata.setRemoteKey(remoteKey);
+        if (verificationStatus != null) updatedMetadata.setVerificationStatus(verificationStatus);
+        if (verifiedAt != null) updatedMetadata.setVerifiedAt(verifiedAt);
+        return updatedMetadata;
+    }
+}
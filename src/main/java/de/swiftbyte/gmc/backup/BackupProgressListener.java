@@ -0,0 +1,7 @@
+package de.swiftbyte.gmc.backup;
+
+public interface BackupProgressListener {
+
+    void onProgress(long processedBytes, long totalBytes);
+
+}
@@ -0,0 +1,268 @@
+package de.swiftbyte.gmc.backup;
+
+import de.swiftbyte.gmc.backup.target.BackupTarget;
+import de.swiftbyte.gmc.backup.target.LocalBackupTarget;
+import de.swiftbyte.gmc.backup.target.S3BackupTarget;
+import de.swiftbyte.gmc.common.packet.entity.Backup;
+import de.swiftbyte.gmc.server.GameServer;
+import de.swiftbyte.gmc.service.BackupService;
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+import de.swiftbyte.gmc.utils.CommonUtils;
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import de.swiftbyte.gmc.utils.NodeUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+public class BackupReplicator {
+
+    private static final int MAX_ATTEMPTS = 6;
+    private static final long RETRY_DELAY_MINUTES = 10;
+
+    private static final List<String> TARGET_CONFIG_KEYS = List.of("backup.target", "backup.target.local.path",
+            "backup.target.s3.endpoint", "backup.target.s3.region", "backup.target.s3.bucket", "backup.target.s3.access-key",
+            "backup.target.s3.secret-key", "backup.target.s3.path-style", "backup.target.s3.part-size-mb", "backup.target.s3.parallel-parts");
+
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "backup-upload");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    private static volatile BackupTarget target;
+
+    public static void start() {
+        target = createConfiguredTarget();
+        TARGET_CONFIG_KEYS.forEach(key -> ConfigUtils.addChangeListener(key, value -> target = createConfiguredTarget()));
+
+        //Uploads interrupted by a restart continue from their state file
+        executor.schedule(() -> BackupService.getAllBackups().forEach(BackupReplicator::replicate), 1, TimeUnit.MINUTES);
+    }
+
+    public static void replicate(Backup backup) {
+        if (target == null) return;
+        executor.execute(() -> upload(backup, 1));
+    }
+
+    public static void deleteReplica(Backup backup, BackupMetadata metadata) {
+
+        if (metadata.getRemoteKey() == null) return;
+
+        executor.execute(() -> {
+            BackupTarget currentTarget = target;
+            if (currentTarget == null || !currentTarget.getName().equals(metadata.getRemoteTarget())) {
+                log.warn("Could not delete remote copy of backup '" + backup.getName() + "' because its target '" + metadata.getRemoteTarget() + "' is not configured anymore.");
+                return;
+            }
+            try {
+                if (metadata.getCodec() == BackupCodec.CHUNKED) deleteChunkedReplica(currentTarget, backup, metadata.getRemoteKey());
+                else currentTarget.delete(metadata.getRemoteKey());
+                log.debug("Deleted remote copy of backup '" + backup.getName() + "'.");
+            } catch (IOException e) {
+                log.warn("Could not delete remote copy of backup '" + backup.getName() + "'.", e);
+            }
+        });
+    }
+
+    public static boolean fetchReplica(Backup backup, BackupMetadata metadata, Path archive) {
+
+        BackupTarget currentTarget = target;
+        if (metadata.getRemoteKey() == null || currentTarget == null || !currentTarget.getName().equals(metadata.getRemoteTarget())) return false;
+
+        log.info("Backup '" + backup.getName() + "' is missing locally. Downloading it from " + currentTarget.getName() + "...");
+
+        try {
+            if (metadata.getCodec() == BackupCodec.CHUNKED) downloadChunked(currentTarget, metadata.getRemoteKey(), archive);
+            else currentTarget.download(metadata.getRemoteKey(), archive);
+            return true;
+        } catch (IOException e) {
+            log.error("An unknown error occurred while downloading backup '" + backup.getName() + "'.", e);
+            return false;
+        }
+    }
+
+    private static void upload(Backup backup, int attempt) {
+
+        BackupTarget currentTarget = target;
+        if (currentTarget == null || BackupService.getBackupById(backup.getBackupId()) == null) return;
+
+        BackupMetadata metadata = BackupService.getBackupMetadata(backup.getBackupId());
+        if (currentTarget.getName().equals(metadata.getRemoteTarget())) return;
+
+        GameServer server = GameServer.getServerById(backup.getServerId());
+        if (server == null) return;
+
+        Path archive = BackupService.getBackupLocation(server, backup, metadata).toPath();
+        String key = backup.getServerId() + "/" + archive.getFileName();
+
+        log.debug("Uploading backup '" + backup.getName() + "' to " + currentTarget.getName() + "...");
+
+        try {
+            if (metadata.getCodec() == BackupCodec.CHUNKED) uploadChunked(currentTarget, archive, key);
+            else currentTarget.upload(archive, key, null);
+        } catch (IOException e) {
+            if (attempt >= MAX_ATTEMPTS) {
+                log.error("An unknown error occurred while uploading backup '" + backup.getName() + "'. Giving up until the next restart.", e);
+                return;
+            }
+            log.warn("Upload of backup '" + backup.getName() + "' failed. Retrying in " + RETRY_DELAY_MINUTES + " minutes...", e);
+            executor.schedule(() -> upload(backup, attempt + 1), RETRY_DELAY_MINUTES, TimeUnit.MINUTES);
+            return;
+        }
+
+        BackupService.updateBackupMetadata(backup, BackupMetadataUpdate.replicated(currentTarget.getName(), key));
+        log.debug("Uploaded backup '" + backup.getName() + "'.");
+    }
+
+    //Chunks are shared by all backups on the target like they are locally, the manifest goes last so a replica is never missing chunks
+    private static void uploadChunked(BackupTarget target, Path manifest, String key) throws IOException {
+
+        ChunkStore chunkStore = ChunkStore.forArchive(manifest);
+        int uploadedChunks = 0;
+
+        for (String hash : new LinkedHashSet<>(ChunkManifest.read(manifest).getChunkHashes())) {
+            String chunkKey = getChunkKey(hash);
+            if (target.exists(chunkKey)) continue;
+            target.upload(chunkStore.getChunkPath(hash), chunkKey, null);
+            uploadedChunks++;
+        }
+
+        log.debug("Uploaded " + uploadedChunks + " new chunks of '" + manifest.getFileName() + "'.");
+        target.upload(manifest, key, null);
+    }
+
+    private static void downloadChunked(BackupTarget target, String key, Path manifest) throws IOException {
+
+        Path fetchedManifest = manifest.resolveSibling(manifest.getFileName() + ".fetch");
+
+        try {
+            target.download(key, fetchedManifest);
+            List<String> hashes = ChunkManifest.read(fetchedManifest).getChunkHashes();
+
+            ChunkStore chunkStore = ChunkStore.forArchive(manifest);
+            chunkStore.addReferences(hashes);
+
+            try {
+                for (String hash : new LinkedHashSet<>(hashes)) {
+                    Path chunkPath = chunkStore.getChunkPath(hash);
+                    if (!Files.exists(chunkPath)) target.download(getChunkKey(hash), chunkPath);
+                }
+                AtomicFileUtils.move(fetchedManifest, manifest);
+            } catch (IOException e) {
+                chunkStore.release(hashes);
+                throw e;
+            }
+        } finally {
+            Files.deleteIfExists(fetchedManifest);
+        }
+    }
+
+    private static void deleteChunkedReplica(BackupTarget target, Backup backup, String key) throws IOException {
+
+        List<String> hashes = readRemoteManifest(target, key).getChunkHashes();
+        target.delete(key);
+
+        Set<String> referencedHashes = getReplicatedChunkHashes(target, backup);
+        if (referencedHashes == null) {
+            log.warn("Could not read all replicated manifests on " + target.getName() + ". Keeping the remote chunks of backup '" + backup.getName() + "'.");
+            return;
+        }
+
+        int deletedChunks = 0;
+        for (String hash : new LinkedHashSet<>(hashes)) {
+            if (referencedHashes.contains(hash)) continue;
+            target.delete(getChunkKey(hash));
+            deletedChunks++;
+        }
+
+        log.debug("Deleted " + deletedChunks + " unreferenced remote chunks of backup '" + backup.getName() + "'.");
+    }
+
+    //Backups deleted locally are still replicated, so their manifest is read from the target instead
+    private static Set<String> getReplicatedChunkHashes(BackupTarget target, Backup deletedBackup) {
+
+        HashSet<String> hashes = new HashSet<>();
+
+        for (Backup backup : BackupService.getAllBackups()) {
+
+            BackupMetadata metadata = BackupService.getBackupMetadata(backup.getBackupId());
+            if (backup.getBackupId().equals(deletedBackup.getBackupId()) || metadata.getCodec() != BackupCodec.CHUNKED || !target.getName().equals(metadata.getRemoteTarget())) continue;
+
+            GameServer server = GameServer.getServerById(backup.getServerId());
+            Path manifest = server == null ? null : BackupService.getBackupLocation(server, backup, metadata).toPath();
+
+            try {
+                if (manifest != null && Files.exists(manifest)) hashes.addAll(ChunkManifest.read(manifest).getChunkHashes());
+                else hashes.addAll(readRemoteManifest(target, metadata.getRemoteKey()).getChunkHashes());
+            } catch (IOException e) {
+                log.debug("Could not read the manifest of backup '" + backup.getName() + "'.", e);
+                return null;
+            }
+        }
+
+        return hashes;
+    }
+
+    private static ChunkManifest readRemoteManifest(BackupTarget target, String key) throws IOException {
+
+        Path manifest = Path.of(NodeUtils.TMP_PATH, "replica-" + UUID.randomUUID() + BackupCodec.CHUNKED.getExtension());
+
+        try {
+            target.download(key, manifest);
+            return ChunkManifest.read(manifest);
+        } finally {
+            Files.deleteIfExists(manifest);
+        }
+    }
+
+    private static String getChunkKey(String hash) {
+        return ChunkStore.DIRECTORY_NAME + "/" + hash;
+    }
+
+    private static BackupTarget createConfiguredTarget() {
+
+        String type = ConfigUtils.get("backup.target", "none").toLowerCase();
+
+        try {
+            return switch (type) {
+                case "none" -> null;
+                case "local" -> {
+                    String path = ConfigUtils.get("backup.target.local.path");
+                    if (CommonUtils.isNullOrEmpty(path)) throw new IllegalArgumentException("'backup.target.local.path' is not set.");
+                    yield new LocalBackupTarget(Path.of(path));
+                }
+                case "s3" -> new S3BackupTarget(
+                        getRequired("backup.target.s3.endpoint"),
+                        ConfigUtils.get("backup.target.s3.region", "us-east-1"),
+                        getRequired("backup.target.s3.bucket"),
+                        getRequired("backup.target.s3.access-key"),
+                        getRequired("backup.target.s3.secret-key"),
+                        Boolean.parseBoolean(ConfigUtils.get("backup.target.s3.path-style", "true")),
+                        Math.max(5, Long.parseLong(ConfigUtils.get("backup.target.s3.part-size-mb", "16"))) * 1024 * 1024,
+                        Integer.parseInt(ConfigUtils.get("backup.target.s3.parallel-parts", "4")));
+                default -> throw new IllegalArgumentException("Unknown backup target '" + type + "'.");
+            };
+        } catch (IllegalArgumentException e) {
+            log.error("The remote backup target could not be configured. Backups are only kept locally. " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static String getRequired(String key) {
+        String value = ConfigUtils.get(key);
+        if (CommonUtils.isNullOrEmpty(value)) throw new IllegalArgumentException("'" + key + "' is not set.");
+        return value;
+    }
+}
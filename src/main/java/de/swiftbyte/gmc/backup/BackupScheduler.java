@@ -0,0 +1,157 @@
+package de.swiftbyte.gmc.backup;
+
+import de.swiftbyte.gmc.Application;
+import de.swiftbyte.gmc.server.GameServer;
+import de.swiftbyte.gmc.service.BackupService;
+import de.swiftbyte.gmc.service.ClusterBackupService;
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+public class BackupScheduler {
+
+    private static final List<BackupJob> jobs = new ArrayList<>();
+    private static final ScheduledExecutorService executor = Application.getExecutor();
+    private static final ThreadPoolExecutor workers = createWorkers();
+
+    static {
+        ConfigUtils.addChangeListener("backup.max-concurrent", value -> {
+            int concurrentBackups = getMaxConcurrentBackups();
+            log.debug("Changing backup concurrency limit to " + concurrentBackups + "...");
+            if (concurrentBackups > workers.getMaximumPoolSize()) {
+                workers.setMaximumPoolSize(concurrentBackups);
+                workers.setCorePoolSize(concurrentBackups);
+            } else {
+                workers.setCorePoolSize(concurrentBackups);
+                workers.setMaximumPoolSize(concurrentBackups);
+            }
+        });
+    }
+
+    public static void scheduleAll(boolean autoBackup) {
+
+        List<GameServer> servers = GameServer.getAllServers();
+        long staggerSeconds = getStaggerSeconds();
+
+        //Shared cluster directories are queued first, so the server backups of this cycle link to them
+        Map<Path, BackupJob> clusterJobs = new HashMap<>();
+        for (Path clusterDirectory : ClusterBackupService.getClusterDirectories()) {
+            clusterJobs.put(clusterDirectory, scheduleCluster(clusterDirectory, autoBackup));
+        }
+
+        //Spread the starts so the servers do not hit the disk at the same moment
+        for (int i = 0; i < servers.size(); i++) {
+            Path clusterDirectory = ClusterBackupService.getClusterDirectory(servers.get(i));
+            schedule(servers.get(i), autoBackup, null, i * staggerSeconds, clusterDirectory == null ? null : clusterJobs.get(clusterDirectory));
+        }
+    }
+
+    public static boolean schedule(GameServer server, boolean autoBackup, String name, long delaySeconds) {
+        return schedule(server, autoBackup, name, delaySeconds, null);
+    }
+
+    private static boolean schedule(GameServer server, boolean autoBackup, String name, long delaySeconds, BackupJob clusterJob) {
+
+        BackupJob job = new BackupJob(server, autoBackup, name, Instant.now().plusSeconds(delaySeconds), clusterJob);
+
+        synchronized (jobs) {
+            if (autoBackup && jobs.stream().anyMatch(pending -> pending.isAutoBackup() && pending.getServer() == server)) {
+                log.debug("Auto backup of server '" + server.getFriendlyName() + "' is already pending. Skipping...");
+                return false;
+            }
+            jobs.add(job);
+        }
+
+        enqueue(job, delaySeconds);
+        return true;
+    }
+
+    //Returns the job the backup of the directory ends up in, a pending job already covers this cycle
+    private static BackupJob scheduleCluster(Path clusterDirectory, boolean autoBackup) {
+
+        BackupJob job = new BackupJob(clusterDirectory, autoBackup, Instant.now());
+
+        synchronized (jobs) {
+            BackupJob pendingJob = jobs.stream().filter(pending -> clusterDirectory.equals(pending.getClusterDirectory()) && pending.getState() != BackupJob.State.RUNNING).findFirst().orElse(null);
+            if (pendingJob != null) {
+                log.debug("Backup of cluster directory '" + clusterDirectory + "' is already pending. Skipping...");
+                return pendingJob;
+            }
+            jobs.add(job);
+        }
+
+        enqueue(job, 0);
+        return job;
+    }
+
+    private static void enqueue(BackupJob job, long delaySeconds) {
+        executor.schedule(() -> {
+            job.setState(BackupJob.State.QUEUED);
+            //Waiting for the cluster job must not hold a worker, with one worker it would never run
+            job.getPrerequisite().whenComplete((result, throwable) -> workers.execute(() -> run(job)));
+        }, delaySeconds, TimeUnit.SECONDS);
+    }
+
+    public static List<BackupJob> getJobs() {
+        synchronized (jobs) {
+            return List.copyOf(jobs);
+        }
+    }
+
+    private static void run(BackupJob job) {
+        try {
+            job.start();
+            if (job.getClusterDirectory() != null) ClusterBackupService.createBackup(job.getClusterDirectory(), job.isAutoBackup(), job);
+            else BackupService.createBackup(job.getServer(), job.isAutoBackup(), job.getName(), job);
+        } catch (Exception e) {
+            log.error("An unknown error occurred while backing up '" + job.getDisplayName() + "'.", e);
+        } finally {
+            synchronized (jobs) {
+                jobs.remove(job);
+            }
+            job.getCompletion().complete(null);
+        }
+    }
+
+    private static ThreadPoolExecutor createWorkers() {
+
+        AtomicInteger threadCount = new AtomicInteger();
+        int concurrentBackups = getMaxConcurrentBackups();
+
+        return new ThreadPoolExecutor(concurrentBackups, concurrentBackups, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "backup-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static int getMaxConcurrentBackups() {
+        try {
+            return Math.max(1, Integer.parseInt(ConfigUtils.get("backup.max-concurrent", "1")));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for 'backup.max-concurrent'. Running one backup at a time.");
+            return 1;
+        }
+    }
+
+    private static long getStaggerSeconds() {
+        try {
+            return Math.max(0, Long.parseLong(ConfigUtils.get("backup.stagger-seconds", "30")));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for 'backup.stagger-seconds'. Using 30 seconds.");
+            return 30;
+        }
+    }
+}
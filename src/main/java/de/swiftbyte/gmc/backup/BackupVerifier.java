@@ -0,0 +1,187 @@
+package de.swiftbyte.gmc.backup;
+
+import de.swiftbyte.gmc.common.packet.entity.Backup;
+import de.swiftbyte.gmc.server.GameServer;
+import de.swiftbyte.gmc.service.BackupService;
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+@Slf4j
+public class BackupVerifier {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "backup-verifier");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    public static void start() {
+        executor.scheduleWithFixedDelay(BackupVerifier::verifyDueBackups, 5, 60, TimeUnit.MINUTES);
+    }
+
+    public static BackupMetadata.VerificationStatus verify(Backup backup) {
+        return verify(backup, IoThrottle.DISK);
+    }
+
+    //Runs on the verifier thread, so it neither blocks the caller nor races the scheduled verification
+    public static void verifyAll() {
+        executor.execute(() -> {
+
+            List<Backup> backups = BackupService.getAllBackups().stream().sorted(Comparator.comparing(Backup::getCreatedAt)).toList();
+            log.info("Verifying " + backups.size() + " backups...");
+
+            int failed = 0;
+            for (int i = 0; i < backups.size(); i++) {
+                Backup backup = backups.get(i);
+                BackupMetadata.VerificationStatus status;
+                try {
+                    if (BackupService.getBackupById(backup.getBackupId()) == null) continue;
+                    status = verify(backup, IoThrottle.VERIFY);
+                } catch (Exception e) {
+                    log.error("An unknown error occurred while verifying backup '" + backup.getName() + "'.", e);
+                    status = BackupMetadata.VerificationStatus.UNVERIFIED;
+                }
+                if (status != BackupMetadata.VerificationStatus.OK) failed++;
+                log.info("Verified backup " + (i + 1) + " of " + backups.size() + " '" + backup.getName() + "' (" + backup.getBackupId() + "): " + status);
+            }
+
+            log.info("Verified " + backups.size() + " backups. " + failed + " are not intact.");
+        });
+    }
+
+    private static BackupMetadata.VerificationStatus verify(Backup backup, IoThrottle throttle) {
+
+        GameServer server = GameServer.getServerById(backup.getServerId());
+        if (server == null) {
+            log.warn("Could not verify backup '" + backup.getName() + "' because server id was not found!");
+            return BackupMetadata.VerificationStatus.UNVERIFIED;
+        }
+
+        BackupMetadata metadata = BackupService.getBackupMetadata(backup.getBackupId());
+        Path archive = BackupService.getBackupLocation(server, backup, metadata).toPath();
+
+        log.debug("Verifying backup '" + backup.getName() + "'...");
+        BackupMetadata.VerificationStatus status = verifyArchive(archive, metadata, throttle);
+
+        if (status != BackupMetadata.VerificationStatus.OK) log.warn("Backup '" + backup.getName() + "' failed verification: " + status);
+        else log.debug("Backup '" + backup.getName() + "' is intact.");
+
+        BackupService.updateBackupMetadata(backup, BackupMetadataUpdate.verified(status, Instant.now()));
+
+        return status;
+    }
+
+    public static BackupMetadata.VerificationStatus verifyArchive(Path archive, BackupMetadata metadata) {
+        return verifyArchive(archive, metadata, IoThrottle.DISK);
+    }
+
+    private static BackupMetadata.VerificationStatus verifyArchive(Path archive, BackupMetadata metadata, IoThrottle throttle) {
+
+        if (!Files.exists(archive)) return BackupMetadata.VerificationStatus.MISSING;
+
+        HashMap<String, ArchiveEntry> expectedEntries = new HashMap<>();
+        if (metadata.getFiles() != null) metadata.getFiles().forEach(entry -> expectedEntries.put(entry.getName(), entry));
+
+        try (ArchiveReader archiveReader = metadata.getCodec().openReader(archive)) {
+
+            if (metadata.getFiles() != null) {
+                HashSet<String> entryNames = new HashSet<>();
+                archiveReader.getEntries().forEach(entry -> entryNames.add(entry.getName()));
+                if (!entryNames.equals(expectedEntries.keySet())) {
+                    log.debug("Entries of '" + archive + "' do not match the backup manifest.");
+                    return BackupMetadata.VerificationStatus.CORRUPT;
+                }
+            }
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+
+            for (ArchiveEntry entry : archiveReader.getEntries()) {
+
+                CRC32 crc = new CRC32();
+                MessageDigest digest = BackupArchiver.createDigest();
+                long size = 0;
+
+                try (InputStream inputStream = archiveReader.openEntry(entry)) {
+                    int read;
+                    while ((read = inputStream.read(buffer)) != -1) {
+                        throttle.acquire(read);
+                        crc.update(buffer, 0, read);
+                        digest.update(buffer, 0, read);
+                        size += read;
+                    }
+                }
+
+                ArchiveEntry expectedEntry = expectedEntries.get(entry.getName());
+                boolean matchesArchive = size == entry.getSize() && crc.getValue() == entry.getCrc();
+                boolean matchesManifest = expectedEntry == null || (expectedEntry.getSize() == size && HexFormat.of().formatHex(digest.digest()).equals(expectedEntry.getSha256()));
+
+                if (!matchesArchive || !matchesManifest) {
+                    log.debug("Entry '" + entry.getName() + "' of '" + archive + "' is corrupt.");
+                    return BackupMetadata.VerificationStatus.CORRUPT;
+                }
+            }
+
+            return BackupMetadata.VerificationStatus.OK;
+        } catch (IOException | RuntimeException e) {
+            log.debug("Could not read '" + archive + "'.", e);
+            return BackupMetadata.VerificationStatus.CORRUPT;
+        }
+    }
+
+    private static void verifyDueBackups() {
+
+        Duration interval = getVerifyInterval();
+        if (interval.isZero()) return;
+
+        Instant dueBefore = Instant.now().minus(interval);
+
+        List<Backup> dueBackups = BackupService.getAllBackups().stream()
+                .filter(backup -> {
+                    Instant verifiedAt = BackupService.getBackupMetadata(backup.getBackupId()).getVerifiedAt();
+                    return verifiedAt == null || verifiedAt.isBefore(dueBefore);
+                })
+                .sorted(Comparator.comparing(Backup::getCreatedAt))
+                .toList();
+
+        if (dueBackups.isEmpty()) return;
+
+        log.debug("Verifying " + dueBackups.size() + " backups in the background...");
+
+        for (Backup backup : dueBackups) {
+            try {
+                if (BackupService.getBackupById(backup.getBackupId()) != null) verify(backup, IoThrottle.VERIFY);
+            } catch (Exception e) {
+                log.error("An unknown error occurred while verifying backup '" + backup.getName() + "'.", e);
+            }
+        }
+    }
+
+    private static Duration getVerifyInterval() {
+        try {
+            return Duration.ofHours(Math.max(0, Long.parseLong(ConfigUtils.get("backup.verify-interval-hours", "24"))));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for 'backup.verify-interval-hours'. Verifying backups every 24 hours.");
+            return Duration.ofHours(24);
+        }
+    }
+}
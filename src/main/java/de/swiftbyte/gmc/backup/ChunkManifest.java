@@ -0,0 +1,67 @@
+package de.swiftbyte.gmc.backup;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+import de.swiftbyte.gmc.utils.CommonUtils;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class ChunkManifest {
+
+    public static final int VERSION = 1;
+
+    private int version = VERSION;
+    private List<Entry> entries = new ArrayList<>();
+
+    public Entry getEntry(String name) {
+        return entries.stream().filter(entry -> entry.getName().equals(name)).findFirst().orElse(null);
+    }
+
+    @JsonIgnore
+    public List<String> getChunkHashes() {
+        return entries.stream().flatMap(entry -> entry.getChunks().stream()).map(Chunk::getHash).toList();
+    }
+
+    public static ChunkManifest read(Path manifest) throws IOException {
+        ChunkManifest chunkManifest = CommonUtils.getObjectReader().readValue(Files.readAllBytes(manifest), ChunkManifest.class);
+        if (chunkManifest.getVersion() != VERSION) throw new IOException("Unsupported manifest version in '" + manifest + "'.");
+        return chunkManifest;
+    }
+
+    public void write(Path manifest) throws IOException {
+        AtomicFileUtils.write(manifest, CommonUtils.getObjectWriter().writeValueAsBytes(this));
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+
+        private String name;
+        private long size;
+        private long crc;
+        private String sha256;
+        private long lastModified;
+        private List<Chunk> chunks = new ArrayList<>();
+
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Chunk {
+
+        private String hash;
+        private int size;
+
+    }
+}
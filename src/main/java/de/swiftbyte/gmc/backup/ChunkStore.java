@@ -0,0 +1,173 @@
+package de.swiftbyte.gmc.backup;
+
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+@Slf4j
+public class ChunkStore {
+
+    public static final String DIRECTORY_NAME = ".chunks";
+
+    private static final Map<Path, ChunkStore> stores = new ConcurrentHashMap<>();
+
+    @Getter
+    private final Path root;
+    private final Path backupRoot;
+    private final FrameCompressor compressor = FrameCodec.ZSTD.createCompressor();
+
+    private HashMap<String, Integer> referenceCounts;
+
+    private ChunkStore(Path root) {
+        this.root = root;
+        this.backupRoot = root.getParent();
+    }
+
+    //Chunks are shared by all servers, manifests are stored at <backups>/<server>/<name>.gmcm
+    public static ChunkStore forArchive(Path archive) {
+        Path root = archive.toAbsolutePath().normalize().getParent().resolveSibling(DIRECTORY_NAME);
+        return stores.computeIfAbsent(root, ChunkStore::new);
+    }
+
+    public boolean retain(List<String> hashes) throws IOException {
+
+        synchronized (this) {
+            loadReferenceCounts();
+
+            for (String hash : hashes) {
+                if (!referenceCounts.containsKey(hash) || !Files.exists(getChunkPath(hash))) return false;
+            }
+            hashes.forEach(hash -> referenceCounts.merge(hash, 1, Integer::sum));
+        }
+
+        return true;
+    }
+
+    public void put(String hash, byte[] buffer, int offset, int length) throws IOException {
+
+        boolean isNew;
+
+        synchronized (this) {
+            loadReferenceCounts();
+            isNew = referenceCounts.merge(hash, 1, Integer::sum) == 1 || !Files.exists(getChunkPath(hash));
+        }
+
+        if (!isNew) return;
+
+        try {
+            Path chunkPath = getChunkPath(hash);
+            Files.createDirectories(chunkPath.getParent());
+
+            Path tempFile = Files.createTempFile(chunkPath.getParent(), hash, ".tmp");
+            try {
+                Files.write(tempFile, compressor.compress(Arrays.copyOfRange(buffer, offset, offset + length)));
+                AtomicFileUtils.move(tempFile, chunkPath);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            release(List.of(hash));
+            throw e;
+        }
+    }
+
+    //Manifests fetched from a replica reference their chunks before the chunks are downloaded
+    public synchronized void addReferences(List<String> hashes) throws IOException {
+        loadReferenceCounts();
+        hashes.forEach(hash -> referenceCounts.merge(hash, 1, Integer::sum));
+    }
+
+    public byte[] read(String hash, int size) throws IOException {
+        return compressor.decompress(Files.readAllBytes(getChunkPath(hash)), size);
+    }
+
+    //The counts are taken while the manifest still exists, otherwise a fresh store would miss its references twice
+    public synchronized void delete(Path manifest) throws IOException {
+        loadReferenceCounts();
+        List<String> hashes = ChunkManifest.read(manifest).getChunkHashes();
+        Files.delete(manifest);
+        release(hashes);
+    }
+
+    public synchronized void release(Collection<String> hashes) {
+
+        try {
+            loadReferenceCounts();
+        } catch (IOException e) {
+            log.error("An unknown error occurred while loading the backup chunk references. Skipping garbage collection.", e);
+            return;
+        }
+
+        int deletedChunks = 0;
+
+        for (String hash : hashes) {
+            Integer count = referenceCounts.computeIfPresent(hash, (key, value) -> value > 1 ? value - 1 : null);
+            if (count != null) continue;
+
+            try {
+                if (Files.deleteIfExists(getChunkPath(hash))) deletedChunks++;
+            } catch (IOException e) {
+                log.warn("Could not delete unreferenced backup chunk '" + hash + "'.", e);
+            }
+        }
+
+        if (deletedChunks > 0) log.debug("Deleted " + deletedChunks + " unreferenced backup chunks.");
+    }
+
+    public Path getChunkPath(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private void loadReferenceCounts() throws IOException {
+
+        if (referenceCounts != null) return;
+
+        log.debug("Counting backup chunk references in '" + backupRoot + "'...");
+
+        HashMap<String, Integer> counts = new HashMap<>();
+
+        if (Files.isDirectory(backupRoot)) {
+            List<Path> manifests;
+            try (Stream<Path> stream = Files.walk(backupRoot)) {
+                manifests = stream.filter(path -> !path.startsWith(root))
+                        .filter(path -> path.getFileName().toString().endsWith(BackupCodec.CHUNKED.getExtension()))
+                        .filter(Files::isRegularFile)
+                        .toList();
+            }
+
+            for (Path manifest : manifests) {
+                try {
+                    ChunkManifest.read(manifest).getChunkHashes().forEach(hash -> counts.merge(hash, 1, Integer::sum));
+                } catch (IOException e) {
+                    log.warn("Could not read backup manifest '" + manifest + "'. Its chunks will not be kept.", e);
+                }
+            }
+        }
+
+        //Chunks of interrupted backups are not referenced by any manifest
+        if (Files.isDirectory(root)) {
+            List<Path> orphanedChunks;
+            try (Stream<Path> stream = Files.walk(root)) {
+                orphanedChunks = stream.filter(Files::isRegularFile)
+                        .filter(path -> !counts.containsKey(path.getFileName().toString()))
+                        .toList();
+            }
+
+            for (Path orphanedChunk : orphanedChunks) Files.deleteIfExists(orphanedChunk);
+            if (!orphanedChunks.isEmpty()) log.debug("Deleted " + orphanedChunks.size() + " orphaned backup chunks.");
+        }
+
+        referenceCounts = counts;
+    }
+}
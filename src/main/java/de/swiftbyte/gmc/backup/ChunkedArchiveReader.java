@@ -0,0 +1,69 @@
+package de.swiftbyte.gmc.backup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+
+public class ChunkedArchiveReader implements ArchiveReader {
+
+    private final ChunkManifest manifest;
+    private final ChunkStore chunkStore;
+    private final List<ArchiveEntry> entries;
+
+    public ChunkedArchiveReader(Path archive) throws IOException {
+        this.manifest = ChunkManifest.read(archive);
+        this.chunkStore = ChunkStore.forArchive(archive);
+        this.entries = manifest.getEntries().stream()
+                .map(entry -> new ArchiveEntry(entry.getName(), entry.getSize(), entry.getCrc(), entry.getSha256()))
+                .toList();
+    }
+
+    @Override
+    public List<ArchiveEntry> getEntries() {
+        return entries;
+    }
+
+    @Override
+    public InputStream openEntry(ArchiveEntry entry) throws IOException {
+        ChunkManifest.Entry manifestEntry = manifest.getEntry(entry.getName());
+        if (manifestEntry == null) throw new IOException("Archive entry '" + entry.getName() + "' does not exist.");
+        return new ChunkInputStream(manifestEntry.getChunks().iterator());
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private class ChunkInputStream extends InputStream {
+
+        private final Iterator<ChunkManifest.Chunk> chunks;
+        private InputStream current = InputStream.nullInputStream();
+
+        private ChunkInputStream(Iterator<ChunkManifest.Chunk> chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            return read(buffer, 0, 1) == -1 ? -1 : buffer[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+
+            while (true) {
+                int read = current.read(buffer, offset, length);
+                if (read != -1) return read;
+                if (!chunks.hasNext()) return -1;
+
+                ChunkManifest.Chunk chunk = chunks.next();
+                current = new ByteArrayInputStream(chunkStore.read(chunk.getHash(), chunk.getSize()));
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package de.swiftbyte.gmc.backup;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+@Slf4j
+public class ChunkedArchiveWriter implements ArchiveWriter {
+
+    private final Path target;
+    private final ChunkStore chunkStore;
+    private final ChunkManifest manifest = new ChunkManifest();
+    private final ChunkManifest previousManifest;
+    private final MessageDigest chunkDigest = BackupArchiver.createDigest();
+
+    private final ArrayList<String> acquiredChunks = new ArrayList<>();
+    private long reusedBytes;
+    private long storedBytes;
+
+    public ChunkedArchiveWriter(Path target) throws IOException {
+        this.target = target;
+        this.chunkStore = ChunkStore.forArchive(target);
+        this.previousManifest = readPreviousManifest(target);
+    }
+
+    @Override
+    public ArchiveEntry addFile(String name, Path file, LongConsumer progressListener) throws IOException {
+
+        long size = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+
+        //Unchanged files are taken over from the previous backup without reading them again
+        ChunkManifest.Entry previousEntry = previousManifest == null ? null : previousManifest.getEntry(name);
+        if (previousEntry != null && previousEntry.getSha256() != null && previousEntry.getSize() == size && previousEntry.getLastModified() == lastModified) {
+            List<String> hashes = previousEntry.getChunks().stream().map(ChunkManifest.Chunk::getHash).toList();
+            if (chunkStore.retain(hashes)) {
+                acquiredChunks.addAll(hashes);
+                manifest.getEntries().add(new ChunkManifest.Entry(name, size, previousEntry.getCrc(), previousEntry.getSha256(), lastModified, previousEntry.getChunks()));
+                reusedBytes += size;
+                return new ArchiveEntry(name, size, previousEntry.getCrc(), previousEntry.getSha256());
+            }
+        }
+
+        ChunkManifest.Entry entry = new ChunkManifest.Entry(name, 0, 0, null, lastModified, new ArrayList<>());
+        CRC32 crc = new CRC32();
+        MessageDigest fileDigest = BackupArchiver.createDigest();
+
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            ContentChunker.split(inputStream, (buffer, offset, length) -> {
+                chunkDigest.update(buffer, offset, length);
+                String hash = HexFormat.of().formatHex(chunkDigest.digest());
+
+                chunkStore.put(hash, buffer, offset, length);
+                acquiredChunks.add(hash);
+
+                crc.update(buffer, offset, length);
+                fileDigest.update(buffer, offset, length);
+                entry.setSize(entry.getSize() + length);
+                entry.getChunks().add(new ChunkManifest.Chunk(hash, length));
+                storedBytes += length;
+                if (progressListener != null) progressListener.accept(length);
+            });
+        }
+
+        entry.setCrc(crc.getValue());
+        entry.setSha256(HexFormat.of().formatHex(fileDigest.digest()));
+        manifest.getEntries().add(entry);
+
+        return new ArchiveEntry(name, entry.getSize(), entry.getCrc(), entry.getSha256());
+    }
+
+    @Override
+    public void close() throws IOException {
+        manifest.write(target);
+        log.debug("Wrote backup manifest with " + manifest.getEntries().size() + " files. Reused " + reusedBytes + " bytes of unchanged files, chunked " + storedBytes + " bytes.");
+    }
+
+    @Override
+    public void abort() {
+        chunkStore.release(acquiredChunks);
+        acquiredChunks.clear();
+    }
+
+    private static ChunkManifest readPreviousManifest(Path target) {
+
+        Path directory = target.toAbsolutePath().getParent();
+        if (!Files.isDirectory(directory)) return null;
+
+        try (Stream<Path> stream = Files.list(directory)) {
+            Optional<Path> previous = stream.filter(path -> path.getFileName().toString().endsWith(BackupCodec.CHUNKED.getExtension()))
+                    .max(Comparator.comparingLong(path -> path.toFile().lastModified()));
+            return previous.isPresent() ? ChunkManifest.read(previous.get()) : null;
+        } catch (IOException e) {
+            log.debug("Could not read previous backup manifest. All files will be chunked.", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package de.swiftbyte.gmc.backup;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class ClusterBackup {
+
+    private String backupId;
+    private String clusterId;
+    private String directory;
+    private String location;
+    private String name;
+
+    private Instant createdAt;
+    private Instant expiresAt;
+    private long size;
+    private boolean autoBackup;
+
+    private BackupCodec codec = BackupCodec.ZIP;
+    private String saveFingerprint;
+    private List<ArchiveEntry> files;
+    private List<String> memberServerIds;
+}
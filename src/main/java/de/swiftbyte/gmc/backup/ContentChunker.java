@@ -0,0 +1,70 @@
+package de.swiftbyte.gmc.backup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.SplittableRandom;
+
+public class ContentChunker {
+
+    public static final int MIN_CHUNK_SIZE = 256 * 1024;
+    public static final int MAX_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    //Cuts on average every 1 MiB after the minimum chunk size
+    private static final long BOUNDARY_MASK = (1L << 20) - 1;
+
+    //The table has to stay stable, otherwise no chunk of older backups would match anymore
+    private static final long[] GEAR = new SplittableRandom(0x676d632d63646300L).longs(256).toArray();
+
+    public static void split(InputStream inputStream, ChunkConsumer consumer) throws IOException {
+
+        byte[] buffer = new byte[MAX_CHUNK_SIZE * 2];
+        int start = 0;
+        int end = 0;
+        boolean endOfStream = false;
+
+        while (true) {
+
+            if (!endOfStream && end - start < MAX_CHUNK_SIZE) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                start = 0;
+
+                while (end < buffer.length) {
+                    int read = inputStream.read(buffer, end, buffer.length - end);
+                    if (read == -1) {
+                        endOfStream = true;
+                        break;
+                    }
+                    end += read;
+                }
+            }
+
+            if (start == end) return;
+
+            int length = findBoundary(buffer, start, end - start);
+            consumer.accept(buffer, start, length);
+            start += length;
+        }
+    }
+
+    private static int findBoundary(byte[] buffer, int offset, int length) {
+
+        if (length <= MIN_CHUNK_SIZE) return length;
+
+        int limit = Math.min(length, MAX_CHUNK_SIZE);
+        long hash = 0;
+
+        for (int i = MIN_CHUNK_SIZE; i < limit; i++) {
+            hash = (hash << 1) + GEAR[buffer[offset + i] & 0xFF];
+            if ((hash & BOUNDARY_MASK) == 0) return i + 1;
+        }
+
+        return limit;
+    }
+
+    public interface ChunkConsumer {
+
+        void accept(byte[] buffer, int offset, int length) throws IOException;
+
+    }
+}
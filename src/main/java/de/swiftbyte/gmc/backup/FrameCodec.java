@@ -0,0 +1,47 @@
+package de.swiftbyte.gmc.backup;
+
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/*
+ * Compression of the blocks in framed (GMCA) archives and in the chunk store. The id is written into
+ * the archive header and matches the id of the backup codec that writes such archives.
+ */
+@Slf4j
+@Getter
+public enum FrameCodec {
+
+    ZSTD(1),
+    LZ4(2);
+
+    private final int id;
+
+    FrameCodec(int id) {
+        this.id = id;
+    }
+
+    public FrameCompressor createCompressor() {
+        return switch (this) {
+            case ZSTD -> new ZstdFrameCompressor(getZstdLevel());
+            case LZ4 -> new Lz4FrameCompressor();
+        };
+    }
+
+    public static FrameCodec getById(int id) throws IOException {
+        return Arrays.stream(values()).filter(codec -> codec.id == id).findFirst()
+                .orElseThrow(() -> new IOException("Unknown frame codec " + id + "."));
+    }
+
+    private static int getZstdLevel() {
+        try {
+            return Integer.parseInt(ConfigUtils.get("backup.zstd-level", "3"));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for 'backup.zstd-level'. Using level 3.");
+            return 3;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package de.swiftbyte.gmc.backup;
+
+import java.io.IOException;
+
+public interface FrameCompressor {
+
+    byte[] compress(byte[] data) throws IOException;
+
+    byte[] decompress(byte[] data, int uncompressedSize) throws IOException;
+
+}
@@ -0,0 +1,133 @@
+package de.swiftbyte.gmc.backup;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+public class FramedArchiveReader implements ArchiveReader {
+
+    private final FileChannel channel;
+    private final FrameCompressor compressor;
+    private final List<ArchiveEntry> entries = new ArrayList<>();
+    private final HashMap<String, Long> entryOffsets = new HashMap<>();
+
+    public FramedArchiveReader(Path archive) throws IOException {
+        this.channel = FileChannel.open(archive, StandardOpenOption.READ);
+
+        try {
+            ByteBuffer header = readAt(0, FramedArchiveWriter.MAGIC.length + 2);
+            byte[] magic = new byte[FramedArchiveWriter.MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, FramedArchiveWriter.MAGIC)) throw new IOException("'" + archive + "' is not a GMC archive.");
+            if (header.get() != FramedArchiveWriter.VERSION) throw new IOException("Unsupported archive version in '" + archive + "'.");
+            this.compressor = FrameCodec.getById(header.get()).createCompressor();
+
+            ByteBuffer footer = readAt(channel.size() - FramedArchiveWriter.FOOTER_SIZE, FramedArchiveWriter.FOOTER_SIZE);
+            long indexOffset = footer.getLong();
+            int entryCount = footer.getInt();
+            footer.get(magic);
+            if (!Arrays.equals(magic, FramedArchiveWriter.MAGIC)) throw new IOException("Archive '" + archive + "' is truncated.");
+
+            DataInputStream indexStream = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(indexOffset))));
+            for (int i = 0; i < entryCount; i++) {
+                byte[] name = new byte[indexStream.readUnsignedShort()];
+                indexStream.readFully(name);
+                long offset = indexStream.readLong();
+                long size = indexStream.readLong();
+                indexStream.readLong();
+                long crc = Integer.toUnsignedLong(indexStream.readInt());
+
+                ArchiveEntry entry = new ArchiveEntry(new String(name, StandardCharsets.UTF_8), size, crc);
+                entries.add(entry);
+                entryOffsets.put(entry.getName(), offset);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<ArchiveEntry> getEntries() {
+        return entries;
+    }
+
+    @Override
+    public InputStream openEntry(ArchiveEntry entry) throws IOException {
+        Long offset = entryOffsets.get(entry.getName());
+        if (offset == null) throw new IOException("Archive entry '" + entry.getName() + "' does not exist.");
+        return new EntryInputStream(offset, entry.getSize());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private ByteBuffer readAt(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new EOFException();
+        }
+        return buffer.flip();
+    }
+
+    private class EntryInputStream extends InputStream {
+
+        private long position;
+        private long remaining;
+        private byte[] block = new byte[0];
+        private int blockPosition;
+
+        private EntryInputStream(long position, long size) {
+            this.position = position;
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            while (blockPosition >= block.length) {
+                if (remaining <= 0) return -1;
+                readNextBlock();
+            }
+            int read = Math.min(length, block.length - blockPosition);
+            System.arraycopy(block, blockPosition, buffer, offset, read);
+            blockPosition += read;
+            return read;
+        }
+
+        private void readNextBlock() throws IOException {
+            ByteBuffer blockHeader = readAt(position, 8);
+            int compressedSize = blockHeader.getInt();
+            int uncompressedSize = blockHeader.getInt();
+            if (compressedSize < 0 || uncompressedSize < 0 || uncompressedSize > FramedArchiveWriter.BLOCK_SIZE) throw new IOException("Archive contains a corrupt block header.");
+
+            byte[] frame = new byte[compressedSize];
+            readAt(position + 8, compressedSize).get(frame);
+
+            block = compressor.decompress(frame, uncompressedSize);
+            blockPosition = 0;
+            position += 8 + compressedSize;
+            remaining -= uncompressedSize;
+        }
+    }
+}
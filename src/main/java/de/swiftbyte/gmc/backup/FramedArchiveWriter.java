@@ -0,0 +1,186 @@
+package de.swiftbyte.gmc.backup;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+/*
+ * Archive layout: header (magic, version, codec), the blocks of every entry as
+ * [compressed length][uncompressed length][frame], an index of all entries and a fixed size footer
+ * pointing at the index. The index allows opening single entries without reading the whole archive.
+ */
+@Slf4j
+public class FramedArchiveWriter implements ArchiveWriter {
+
+    static final byte[] MAGIC = {'G', 'M', 'C', 'A'};
+    static final int VERSION = 1;
+    static final int BLOCK_SIZE = 1024 * 1024;
+    static final int FOOTER_SIZE = 8 + 4 + 4;
+
+    private final FileChannel channel;
+    private final DataOutputStream outputStream;
+    private final FrameCompressor compressor;
+    private final ExecutorService executor;
+    private final int maxBlocksInFlight;
+
+    private final ArrayDeque<PendingBlock> pendingBlocks = new ArrayDeque<>();
+    private final List<IndexEntry> entries = new ArrayList<>();
+
+    private long position;
+    private boolean closed;
+
+    public FramedArchiveWriter(Path target, FrameCodec codec, int threads) throws IOException {
+        this.channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.outputStream = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1024 * 1024));
+        this.compressor = codec.createCompressor();
+        this.maxBlocksInFlight = Math.max(2, threads * 4);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "backup-compression-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+
+        outputStream.write(MAGIC);
+        outputStream.writeByte(VERSION);
+        outputStream.writeByte(codec.getId());
+        position += MAGIC.length + 2;
+    }
+
+    @Override
+    public ArchiveEntry addFile(String name, Path file, LongConsumer progressListener) throws IOException {
+
+        IndexEntry entry = new IndexEntry(name);
+        entries.add(entry);
+
+        CRC32 crc = new CRC32();
+        MessageDigest digest = BackupArchiver.createDigest();
+
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            byte[] block;
+            do {
+                block = inputStream.readNBytes(BLOCK_SIZE);
+                crc.update(block);
+                digest.update(block);
+                entry.size += block.length;
+
+                while (pendingBlocks.size() >= maxBlocksInFlight) writeNextBlock();
+
+                byte[] data = block;
+                pendingBlocks.add(new PendingBlock(entry, block.length, executor.submit(() -> compressor.compress(data))));
+
+                if (progressListener != null) progressListener.accept(block.length);
+            } while (block.length == BLOCK_SIZE);
+        }
+
+        entry.crc = crc.getValue();
+
+        while (!pendingBlocks.isEmpty() && pendingBlocks.peek().frame.isDone()) writeNextBlock();
+
+        return new ArchiveEntry(name, entry.size, entry.crc, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private void writeNextBlock() throws IOException {
+
+        PendingBlock block = pendingBlocks.poll();
+        if (block == null) return;
+
+        byte[] frame;
+        try {
+            frame = block.frame.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing backup.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress backup block.", e.getCause());
+        }
+
+        if (block.entry.offset < 0) block.entry.offset = position;
+
+        outputStream.writeInt(frame.length);
+        outputStream.writeInt(block.uncompressedSize);
+        outputStream.write(frame);
+
+        position += 8 + frame.length;
+        block.entry.compressedSize += 8 + frame.length;
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed) return;
+        closed = true;
+
+        try {
+            while (!pendingBlocks.isEmpty()) writeNextBlock();
+
+            long indexOffset = position;
+            for (IndexEntry entry : entries) {
+                byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+                outputStream.writeShort(name.length);
+                outputStream.write(name);
+                outputStream.writeLong(entry.offset);
+                outputStream.writeLong(entry.size);
+                outputStream.writeLong(entry.compressedSize);
+                outputStream.writeInt((int) entry.crc);
+            }
+
+            outputStream.writeLong(indexOffset);
+            outputStream.writeInt(entries.size());
+            outputStream.write(MAGIC);
+            outputStream.flush();
+            channel.force(true);
+        } finally {
+            executor.shutdownNow();
+            outputStream.close();
+        }
+    }
+
+    @Override
+    public void abort() {
+        closed = true;
+        pendingBlocks.forEach(block -> block.frame.cancel(true));
+        executor.shutdownNow();
+        try {
+            outputStream.close();
+        } catch (IOException e) {
+            log.debug("Failed to close aborted archive.", e);
+        }
+    }
+
+    private static class IndexEntry {
+
+        private final String name;
+        private long offset = -1;
+        private long size;
+        private long compressedSize;
+        private long crc;
+
+        private IndexEntry(String name) {
+            this.name = name;
+        }
+    }
+
+    private record PendingBlock(IndexEntry entry, int uncompressedSize, Future<byte[]> frame) {
+    }
+}
@@ -0,0 +1,66 @@
+package de.swiftbyte.gmc.backup;
+
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+public class IoThrottle {
+
+    //All running backups share one budget, so concurrent backups do not multiply the disk load
+    public static final IoThrottle DISK = new IoThrottle("backup.io-limit-mb", "0", null);
+    public static final IoThrottle UPLOAD = new IoThrottle("backup.upload-limit-mb", "0", null);
+    //Background verification re-reads every backup, it is limited even when backups themselves are not
+    public static final IoThrottle VERIFY = new IoThrottle("backup.verify-io-limit-mb", "20", DISK);
+
+    private final String configKey;
+    private final String defaultLimit;
+    private final IoThrottle parent;
+
+    private long availableBytes;
+    private long lastRefill = System.nanoTime();
+
+    private IoThrottle(String configKey, String defaultLimit, IoThrottle parent) {
+        this.configKey = configKey;
+        this.defaultLimit = defaultLimit;
+        this.parent = parent;
+    }
+
+    public void acquire(long bytes) {
+
+        if (parent != null) parent.acquire(bytes);
+
+        long bytesPerSecond = getBytesPerSecond();
+        if (bytesPerSecond <= 0) return;
+
+        long waitNanos;
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            long refill = (long) ((now - lastRefill) / 1_000_000_000.0 * bytesPerSecond);
+            availableBytes = Math.min(bytesPerSecond, availableBytes + refill);
+            lastRefill = now;
+
+            availableBytes -= bytes;
+            waitNanos = availableBytes >= 0 ? 0 : (long) (-availableBytes * 1_000_000_000.0 / bytesPerSecond);
+        }
+
+        if (waitNanos == 0) return;
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getBytesPerSecond() {
+        try {
+            return Long.parseLong(ConfigUtils.get(configKey, defaultLimit)) * 1024 * 1024;
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for '" + configKey + "'. " + (defaultLimit.equals("0") ? "No limit will be applied." : "Limiting to " + defaultLimit + " MB/s."));
+            return Long.parseLong(defaultLimit) * 1024 * 1024;
+        }
+    }
+}
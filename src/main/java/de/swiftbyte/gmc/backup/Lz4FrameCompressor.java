@@ -0,0 +1,28 @@
+package de.swiftbyte.gmc.backup;
+
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+
+import java.io.IOException;
+
+public class Lz4FrameCompressor implements FrameCompressor {
+
+    private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+    @Override
+    public byte[] compress(byte[] data) {
+        return LZ4_FACTORY.fastCompressor().compress(data);
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int uncompressedSize) throws IOException {
+        try {
+            //The safe decompressor never reads past the frame, even if the frame is corrupt
+            byte[] decompressed = LZ4_FACTORY.safeDecompressor().decompress(data, uncompressedSize);
+            if (decompressed.length != uncompressedSize) throw new IOException("Lz4 frame decompressed to " + decompressed.length + " instead of " + uncompressedSize + " bytes.");
+            return decompressed;
+        } catch (LZ4Exception e) {
+            throw new IOException("Failed to decompress lz4 frame.", e);
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package de.swiftbyte.gmc.backup;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/*
+ * Zip writer that deflates files in independent blocks on a worker pool, the same way pigz does.
+ * Every block is primed with the last 32 KiB of its predecessor and ends with a sync flush,
+ * so the blocks concatenate into one regular deflate stream that any zip reader can inflate.
+ */
+@Slf4j
+public class ParallelZipWriter implements ArchiveWriter {
+
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final int OUTPUT_BUFFER_SIZE = 1024 * 1024;
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    private static final int ZIP64_VERSION = 45;
+    private static final int UTF8_FLAG = 0x0800;
+    private static final int DEFLATED = 8;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+
+    private final FileChannel channel;
+    private final ByteBuffer outputBuffer = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final ExecutorService executor;
+    private final int level;
+    private final int maxBlocksInFlight;
+
+    private final ArrayDeque<PendingEntry> pendingEntries = new ArrayDeque<>();
+    private final List<PendingEntry> writtenEntries = new ArrayList<>();
+
+    private long flushedPosition;
+    private int blocksInFlight;
+    private boolean closed;
+
+    public ParallelZipWriter(Path target, int threads, int level) throws IOException {
+        this(target, threads, level, 0);
+    }
+
+    //Archives starting behind a sparse gap reach the Zip64 offsets without writing gigabytes first
+    ParallelZipWriter(Path target, int threads, int level, long startPosition) throws IOException {
+        this.channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        this.channel.position(startPosition);
+        this.flushedPosition = startPosition;
+        this.level = level;
+        this.maxBlocksInFlight = Math.max(2, threads * 4);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "backup-compression-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    @Override
+    public ArchiveEntry addFile(String name, Path file, LongConsumer progressListener) throws IOException {
+
+        PendingEntry entry = new PendingEntry(name, Files.getLastModifiedTime(file).toInstant());
+        pendingEntries.add(entry);
+
+        CRC32 crc = new CRC32();
+        MessageDigest digest = BackupArchiver.createDigest();
+        byte[] dictionary = null;
+
+        try (InputStream inputStream = Files.newInputStream(file)) {
+
+            byte[] current = readBlock(inputStream);
+
+            while (true) {
+                byte[] next = current.length < BLOCK_SIZE ? new byte[0] : readBlock(inputStream);
+                boolean lastBlock = next.length == 0;
+
+                crc.update(current);
+                digest.update(current);
+                entry.size += current.length;
+
+                while (blocksInFlight >= maxBlocksInFlight) writeNextBlock();
+                entry.blocks.add(executor.submit(compressBlock(current, dictionary, lastBlock)));
+                blocksInFlight++;
+
+                if (progressListener != null) progressListener.accept(current.length);
+
+                if (lastBlock) break;
+
+                dictionary = Arrays.copyOfRange(current, Math.max(0, current.length - DICTIONARY_SIZE), current.length);
+                current = next;
+            }
+        }
+
+        entry.crc = crc.getValue();
+        entry.complete = true;
+
+        writeCompletedBlocks();
+
+        return new ArchiveEntry(name, entry.size, entry.crc, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    private Callable<byte[]> compressBlock(byte[] data, byte[] dictionary, boolean lastBlock) {
+        return () -> {
+            Deflater deflater = new Deflater(level, true);
+            try {
+                if (dictionary != null) deflater.setDictionary(dictionary);
+                deflater.setInput(data);
+
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length / 2 + 64);
+                byte[] buffer = new byte[64 * 1024];
+
+                if (lastBlock) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        int length = deflater.deflate(buffer);
+                        outputStream.write(buffer, 0, length);
+                    }
+                } else {
+                    int length;
+                    do {
+                        length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                        outputStream.write(buffer, 0, length);
+                    } while (length == buffer.length);
+                }
+
+                return outputStream.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        };
+    }
+
+    private void writeCompletedBlocks() throws IOException {
+        while (!pendingEntries.isEmpty()) {
+            PendingEntry head = pendingEntries.peek();
+            if (!head.blocks.isEmpty() && !head.blocks.peek().isDone()) return;
+            if (head.blocks.isEmpty() && !head.complete) return;
+            writeNextBlock();
+        }
+    }
+
+    private void writeNextBlock() throws IOException {
+
+        PendingEntry head = pendingEntries.peek();
+        if (head == null) return;
+
+        if (head.headerOffset < 0) writeLocalHeader(head);
+
+        Future<byte[]> block = head.blocks.poll();
+        if (block != null) {
+            byte[] compressed = awaitBlock(block);
+            blocksInFlight--;
+            write(compressed);
+            head.compressedSize += compressed.length;
+        }
+
+        if (head.complete && head.blocks.isEmpty()) {
+            finishEntry(head);
+            pendingEntries.poll();
+        }
+    }
+
+    private byte[] awaitBlock(Future<byte[]> block) throws IOException {
+        try {
+            return block.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing backup.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to compress backup block.", e.getCause());
+        }
+    }
+
+    private void writeLocalHeader(PendingEntry entry) throws IOException {
+
+        entry.headerOffset = getPosition();
+
+        byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(30 + name.length + 20).order(ByteOrder.LITTLE_ENDIAN);
+
+        header.putInt(LOCAL_HEADER_SIGNATURE);
+        header.putShort((short) ZIP64_VERSION);
+        header.putShort((short) UTF8_FLAG);
+        header.putShort((short) DEFLATED);
+        header.putInt(toDosTime(entry.lastModified));
+        header.putInt(0);
+        header.putInt((int) ZIP64_MAGIC);
+        header.putInt((int) ZIP64_MAGIC);
+        header.putShort((short) name.length);
+        header.putShort((short) 20);
+        header.put(name);
+        header.putShort((short) ZIP64_EXTRA_ID);
+        header.putShort((short) 16);
+        header.putLong(0);
+        header.putLong(0);
+
+        write(header.array());
+    }
+
+    private void finishEntry(PendingEntry entry) throws IOException {
+
+        int nameLength = entry.name.getBytes(StandardCharsets.UTF_8).length;
+
+        ByteBuffer crc = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) entry.crc);
+        patch(entry.headerOffset + 14, crc.array());
+
+        ByteBuffer sizes = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN).putLong(entry.size).putLong(entry.compressedSize);
+        patch(entry.headerOffset + 30 + nameLength + 4, sizes.array());
+
+        writtenEntries.add(entry);
+    }
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed) return;
+        closed = true;
+
+        try {
+            while (!pendingEntries.isEmpty()) writeNextBlock();
+
+            long centralDirectoryOffset = getPosition();
+            for (PendingEntry entry : writtenEntries) writeCentralHeader(entry);
+            long centralDirectorySize = getPosition() - centralDirectoryOffset;
+
+            writeEnd(centralDirectoryOffset, centralDirectorySize);
+
+            flushOutputBuffer();
+            channel.force(true);
+        } finally {
+            executor.shutdownNow();
+            channel.close();
+        }
+    }
+
+    @Override
+    public void abort() {
+        closed = true;
+        pendingEntries.forEach(entry -> entry.blocks.forEach(block -> block.cancel(true)));
+        executor.shutdownNow();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Failed to close aborted archive.", e);
+        }
+    }
+
+    private void writeCentralHeader(PendingEntry entry) throws IOException {
+
+        byte[] name = entry.name.getBytes(StandardCharsets.UTF_8);
+
+        boolean zip64Size = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+        boolean zip64Offset = entry.headerOffset >= ZIP64_MAGIC;
+        int extraLength = (zip64Size ? 16 : 0) + (zip64Offset ? 8 : 0);
+        if (extraLength > 0) extraLength += 4;
+
+        ByteBuffer header = ByteBuffer.allocate(46 + name.length + extraLength).order(ByteOrder.LITTLE_ENDIAN);
+
+        header.putInt(CENTRAL_HEADER_SIGNATURE);
+        header.putShort((short) ZIP64_VERSION);
+        header.putShort((short) ZIP64_VERSION);
+        header.putShort((short) UTF8_FLAG);
+        header.putShort((short) DEFLATED);
+        header.putInt(toDosTime(entry.lastModified));
+        header.putInt((int) entry.crc);
+        header.putInt((int) (zip64Size ? ZIP64_MAGIC : entry.compressedSize));
+        header.putInt((int) (zip64Size ? ZIP64_MAGIC : entry.size));
+        header.putShort((short) name.length);
+        header.putShort((short) extraLength);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putShort((short) 0);
+        header.putInt(0);
+        header.putInt((int) (zip64Offset ? ZIP64_MAGIC : entry.headerOffset));
+        header.put(name);
+
+        if (extraLength > 0) {
+            header.putShort((short) ZIP64_EXTRA_ID);
+            header.putShort((short) (extraLength - 4));
+            if (zip64Size) {
+                header.putLong(entry.size);
+                header.putLong(entry.compressedSize);
+            }
+            if (zip64Offset) header.putLong(entry.headerOffset);
+        }
+
+        write(header.array());
+    }
+
+    private void writeEnd(long centralDirectoryOffset, long centralDirectorySize) throws IOException {
+
+        int entries = writtenEntries.size();
+        boolean zip64 = entries >= 0xFFFF || centralDirectoryOffset >= ZIP64_MAGIC || centralDirectorySize >= ZIP64_MAGIC;
+
+        if (zip64) {
+            long zip64EndOffset = getPosition();
+
+            ByteBuffer zip64End = ByteBuffer.allocate(56 + 20).order(ByteOrder.LITTLE_ENDIAN);
+            zip64End.putInt(ZIP64_END_SIGNATURE);
+            zip64End.putLong(44);
+            zip64End.putShort((short) ZIP64_VERSION);
+            zip64End.putShort((short) ZIP64_VERSION);
+            zip64End.putInt(0);
+            zip64End.putInt(0);
+            zip64End.putLong(entries);
+            zip64End.putLong(entries);
+            zip64End.putLong(centralDirectorySize);
+            zip64End.putLong(centralDirectoryOffset);
+
+            zip64End.putInt(ZIP64_LOCATOR_SIGNATURE);
+            zip64End.putInt(0);
+            zip64End.putLong(zip64EndOffset);
+            zip64End.putInt(1);
+
+            write(zip64End.array());
+        }
+
+        ByteBuffer end = ByteBuffer.allocate(22).order(ByteOrder.LITTLE_ENDIAN);
+        end.putInt(END_SIGNATURE);
+        end.putShort((short) 0);
+        end.putShort((short) 0);
+        end.putShort((short) (zip64 ? 0xFFFF : entries));
+        end.putShort((short) (zip64 ? 0xFFFF : entries));
+        end.putInt((int) (zip64 ? ZIP64_MAGIC : centralDirectorySize));
+        end.putInt((int) (zip64 ? ZIP64_MAGIC : centralDirectoryOffset));
+        end.putShort((short) 0);
+
+        write(end.array());
+    }
+
+    private void write(byte[] data) throws IOException {
+        int offset = 0;
+        while (offset < data.length) {
+            if (!outputBuffer.hasRemaining()) flushOutputBuffer();
+            int length = Math.min(outputBuffer.remaining(), data.length - offset);
+            outputBuffer.put(data, offset, length);
+            offset += length;
+        }
+    }
+
+    private void patch(long position, byte[] data) throws IOException {
+        if (position >= flushedPosition && position + data.length <= getPosition()) {
+            outputBuffer.put((int) (position - flushedPosition), data);
+            return;
+        }
+        flushOutputBuffer();
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        long offset = position;
+        while (buffer.hasRemaining()) offset += channel.write(buffer, offset);
+    }
+
+    private void flushOutputBuffer() throws IOException {
+        outputBuffer.flip();
+        while (outputBuffer.hasRemaining()) flushedPosition += channel.write(outputBuffer);
+        outputBuffer.clear();
+    }
+
+    private long getPosition() {
+        return flushedPosition + outputBuffer.position();
+    }
+
+    private static byte[] readBlock(InputStream inputStream) throws IOException {
+        return inputStream.readNBytes(BLOCK_SIZE);
+    }
+
+    private static int toDosTime(Instant instant) {
+        LocalDateTime time = LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+        if (time.getYear() < 1980) return (1 << 21) | (1 << 16);
+        return (time.getYear() - 1980) << 25
+                | time.getMonthValue() << 21
+                | time.getDayOfMonth() << 16
+                | time.getHour() << 11
+                | time.getMinute() << 5
+                | time.getSecond() >> 1;
+    }
+
+    private static class PendingEntry {
+
+        private final String name;
+        private final Instant lastModified;
+        private final ArrayDeque<Future<byte[]>> blocks = new ArrayDeque<>();
+
+        private long headerOffset = -1;
+        private long size;
+        private long compressedSize;
+        private long crc;
+        private boolean complete;
+
+        private PendingEntry(String name, Instant lastModified) {
+            this.name = name;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package de.swiftbyte.gmc.backup;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/*
+ * A restore with its archive already opened and its entries resolved. Restores are prepared before
+ * any server is stopped, so a missing or broken backup is noticed while the servers are still running.
+ */
+@Slf4j
+public class PreparedRestore implements Closeable {
+
+    private final String name;
+    private final ArchiveReader archiveReader;
+    private final List<ArchiveEntry> entries;
+    private final Path saveDirectory;
+    private final boolean replaceAll;
+
+    public PreparedRestore(String name, ArchiveReader archiveReader, List<ArchiveEntry> entries, Path saveDirectory, boolean replaceAll) {
+        this.name = name;
+        this.archiveReader = archiveReader;
+        this.entries = entries;
+        this.saveDirectory = saveDirectory;
+        this.replaceAll = replaceAll;
+    }
+
+    public boolean restore() {
+        try {
+            RestoreEngine.restore(archiveReader, entries, saveDirectory, replaceAll);
+            log.debug("Restored " + entries.size() + " files of backup '" + name + "' into '" + saveDirectory + "'.");
+            return true;
+        } catch (IOException e) {
+            log.error("An unknown error occurred while restoring backup '" + name + "'.", e);
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            archiveReader.close();
+        } catch (IOException e) {
+            log.debug("Could not close backup '" + name + "'.", e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package de.swiftbyte.gmc.backup;
+
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/*
+ * Restores are extracted into a staging directory next to the save directory first. Only when every
+ * entry was extracted and matches its checksum, the staging directory replaces the save directory.
+ * An interrupted swap is rolled back on the next restore.
+ */
+@Slf4j
+public class RestoreEngine {
+
+    private static final String STAGING_SUFFIX = ".restore-staging";
+    private static final String PREVIOUS_SUFFIX = ".restore-previous";
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    public static void restore(ArchiveReader archiveReader, List<ArchiveEntry> entries, Path saveDirectory, boolean replaceAll) throws IOException {
+
+        Path absoluteSaveDirectory = saveDirectory.toAbsolutePath().normalize();
+        Path stagingDirectory = absoluteSaveDirectory.resolveSibling(absoluteSaveDirectory.getFileName() + STAGING_SUFFIX);
+        Path previousDirectory = absoluteSaveDirectory.resolveSibling(absoluteSaveDirectory.getFileName() + PREVIOUS_SUFFIX);
+
+        recoverInterruptedSwap(absoluteSaveDirectory, previousDirectory);
+        FileUtils.deleteDirectory(stagingDirectory.toFile());
+
+        try {
+            if (!replaceAll && Files.isDirectory(absoluteSaveDirectory)) linkDirectory(absoluteSaveDirectory, stagingDirectory);
+            else Files.createDirectories(stagingDirectory);
+
+            log.debug("Extracting " + entries.size() + " entries into '" + stagingDirectory + "'...");
+            extractAll(archiveReader, entries, stagingDirectory);
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(stagingDirectory.toFile());
+            throw e;
+        }
+
+        log.debug("Swapping restored files into '" + absoluteSaveDirectory + "'...");
+        if (Files.exists(absoluteSaveDirectory)) AtomicFileUtils.move(absoluteSaveDirectory, previousDirectory);
+        AtomicFileUtils.move(stagingDirectory, absoluteSaveDirectory);
+        FileUtils.deleteDirectory(previousDirectory.toFile());
+    }
+
+    private static void recoverInterruptedSwap(Path saveDirectory, Path previousDirectory) throws IOException {
+
+        if (!Files.exists(previousDirectory)) return;
+
+        if (Files.exists(saveDirectory)) {
+            FileUtils.deleteDirectory(previousDirectory.toFile());
+        } else {
+            log.warn("Found an interrupted restore of '" + saveDirectory + "'. Restoring the previous save files...");
+            AtomicFileUtils.move(previousDirectory, saveDirectory);
+        }
+    }
+
+    //Hard links make the copy of unchanged files free, extracted files replace the links instead of writing through them
+    private static void linkDirectory(Path source, Path target) throws IOException {
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(source)) {
+            files = stream.toList();
+        }
+
+        for (Path file : files) {
+            Path targetFile = target.resolve(source.relativize(file).toString());
+            if (Files.isDirectory(file)) {
+                Files.createDirectories(targetFile);
+                continue;
+            }
+            try {
+                Files.createLink(targetFile, file);
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(file, targetFile);
+            }
+        }
+    }
+
+    private static void extractAll(ArchiveReader archiveReader, List<ArchiveEntry> entries, Path stagingDirectory) throws IOException {
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(entries.size(), BackupArchiver.getCompressionThreads())), runnable -> {
+            Thread thread = new Thread(runnable, "backup-restore-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<?>> extractions = new ArrayList<>();
+            for (ArchiveEntry entry : entries) {
+                extractions.add(executor.submit(() -> {
+                    extract(archiveReader, entry, stagingDirectory);
+                    return null;
+                }));
+            }
+
+            for (Future<?> extraction : extractions) extraction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while restoring backup.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) throw ioException;
+            throw new IOException("Failed to restore backup.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void extract(ArchiveReader archiveReader, ArchiveEntry entry, Path stagingDirectory) throws IOException {
+
+        Path target = stagingDirectory.resolve(entry.getName()).normalize();
+        if (!target.startsWith(stagingDirectory)) throw new IOException("Archive entry '" + entry.getName() + "' points outside of the save directory.");
+
+        Files.createDirectories(target.getParent());
+        Files.deleteIfExists(target);
+
+        CRC32 crc = new CRC32();
+        long size = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try (InputStream inputStream = archiveReader.openEntry(entry); OutputStream outputStream = Files.newOutputStream(target)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+                outputStream.write(buffer, 0, read);
+                size += read;
+            }
+        }
+
+        if (size != entry.getSize() || crc.getValue() != entry.getCrc()) {
+            throw new IOException("Archive entry '" + entry.getName() + "' is corrupt.");
+        }
+    }
+}
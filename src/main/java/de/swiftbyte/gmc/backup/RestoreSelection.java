@@ -0,0 +1,54 @@
+package de.swiftbyte.gmc.backup;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+public class RestoreSelection {
+
+    //A full restore replaces the whole save directory, otherwise only the selected files are replaced
+    private boolean fullRestore;
+    private boolean map;
+    private Set<String> playerIds = new LinkedHashSet<>();
+    private Set<String> tribeIds = new LinkedHashSet<>();
+    //Restores the linked cluster backup for every server of the cluster as well
+    private boolean clusterData;
+
+    public static RestoreSelection full() {
+        RestoreSelection selection = new RestoreSelection();
+        selection.setFullRestore(true);
+        return selection;
+    }
+
+    public static RestoreSelection mapOnly() {
+        RestoreSelection selection = new RestoreSelection();
+        selection.setMap(true);
+        return selection;
+    }
+
+    public List<ArchiveEntry> resolve(ArchiveReader archiveReader, String mapName) throws IOException {
+
+        if (fullRestore) return archiveReader.getEntries();
+
+        List<String> entryNames = new ArrayList<>();
+        if (map) entryNames.add(mapName + ".ark");
+        playerIds.forEach(playerId -> entryNames.add(playerId + ".arkprofile"));
+        tribeIds.forEach(tribeId -> entryNames.add(tribeId + ".arktribe"));
+
+        List<ArchiveEntry> entries = new ArrayList<>();
+        for (String entryName : entryNames) {
+            ArchiveEntry entry = archiveReader.getEntry(entryName);
+            if (entry == null) throw new IOException("The backup does not contain '" + entryName + "'.");
+            entries.add(entry);
+        }
+
+        return entries;
+    }
+}
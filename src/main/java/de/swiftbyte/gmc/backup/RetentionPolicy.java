@@ -0,0 +1,108 @@
+package de.swiftbyte.gmc.backup;
+
+import de.swiftbyte.gmc.common.packet.entity.Backup;
+import de.swiftbyte.gmc.utils.CommonUtils;
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+@Slf4j
+@Getter
+public class RetentionPolicy {
+
+    private final List<Tier> tiers;
+
+    public RetentionPolicy(List<Tier> tiers) {
+        this.tiers = tiers;
+    }
+
+    public boolean isEmpty() {
+        return tiers.isEmpty();
+    }
+
+    public Duration getLongestRetention() {
+        return tiers.stream().map(Tier::retention).max(Comparator.naturalOrder()).orElse(Duration.ZERO);
+    }
+
+    //Keeps the oldest backup of every interval slot inside each tier and always the newest backup
+    public Selection select(List<Backup> backups, Instant now) {
+
+        List<Backup> sortedBackups = backups.stream().sorted(Comparator.comparing(Backup::getCreatedAt)).toList();
+        if (sortedBackups.isEmpty()) return new Selection(List.of(), null);
+
+        HashSet<Backup> keptBackups = new HashSet<>();
+        keptBackups.add(sortedBackups.get(sortedBackups.size() - 1));
+        Instant nextChange = null;
+
+        for (Tier tier : tiers) {
+            HashSet<Long> usedSlots = new HashSet<>();
+
+            for (Backup backup : sortedBackups) {
+                Instant keptUntil = backup.getCreatedAt().plus(tier.retention());
+                if (!keptUntil.isAfter(now)) continue;
+                if (!usedSlots.add(backup.getCreatedAt().toEpochMilli() / tier.interval().toMillis())) continue;
+
+                keptBackups.add(backup);
+                if (nextChange == null || keptUntil.isBefore(nextChange)) nextChange = keptUntil;
+            }
+        }
+
+        List<Backup> expiredBackups = new ArrayList<>();
+        for (Backup backup : sortedBackups) if (!keptBackups.contains(backup)) expiredBackups.add(backup);
+
+        return new Selection(expiredBackups, nextChange);
+    }
+
+    //Format: <interval>:<retention>,... e.g. "1h:1d,1d:7d,7d:30d" keeps hourly backups for a day, daily for a week and weekly for a month
+    public static RetentionPolicy getConfigured() {
+
+        String policy = ConfigUtils.get("backup.retention", "");
+        List<Tier> tiers = new ArrayList<>();
+
+        if (CommonUtils.isNullOrEmpty(policy)) return new RetentionPolicy(tiers);
+
+        try {
+            for (String tier : policy.split(",")) {
+                String[] parts = tier.trim().split(":");
+                if (parts.length != 2) throw new IllegalArgumentException("Expected <interval>:<retention> but got '" + tier + "'.");
+                Duration interval = parseDuration(parts[0]);
+                if (interval.isZero() || interval.isNegative()) throw new IllegalArgumentException("Interval of '" + tier + "' has to be positive.");
+                tiers.add(new Tier(interval, parseDuration(parts[1])));
+            }
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid value for 'backup.retention'. Only the backup expiry date will be used. " + e.getMessage());
+            tiers.clear();
+        }
+
+        return new RetentionPolicy(tiers);
+    }
+
+    private static Duration parseDuration(String value) {
+
+        String trimmedValue = value.trim().toLowerCase();
+        if (trimmedValue.length() < 2) throw new IllegalArgumentException("Invalid duration '" + value + "'.");
+
+        long amount = Long.parseLong(trimmedValue.substring(0, trimmedValue.length() - 1));
+
+        return switch (trimmedValue.charAt(trimmedValue.length() - 1)) {
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            case 'd' -> Duration.ofDays(amount);
+            case 'w' -> Duration.ofDays(amount * 7);
+            default -> throw new IllegalArgumentException("Invalid duration unit in '" + value + "'.");
+        };
+    }
+
+    public record Tier(Duration interval, Duration retention) {
+    }
+
+    public record Selection(List<Backup> expiredBackups, Instant nextChange) {
+    }
+}
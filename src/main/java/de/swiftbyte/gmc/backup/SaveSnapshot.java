@@ -0,0 +1,248 @@
+package de.swiftbyte.gmc.backup;
+
+import de.swiftbyte.gmc.Node;
+import de.swiftbyte.gmc.common.packet.entity.GameServerState;
+import de.swiftbyte.gmc.server.GameServer;
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/*
+ * Frozen copy of the save files of a server. Reflinks share the data blocks copy-on-write, so a
+ * snapshot costs no I/O on filesystems like btrfs or xfs. Hard links are only frozen as long as the
+ * game replaces save files instead of rewriting them, that is why they have to be enabled explicitly.
+ */
+@Slf4j
+public class SaveSnapshot implements Closeable {
+
+    public static final String SNAPSHOT_DIRECTORY = ".gmc-snapshots";
+    private static final long QUIESCE_POLL_MILLIS = 500;
+    private static final int REFLINK_BATCH_SIZE = 200;
+    private static final int MAX_CAPTURE_ATTEMPTS = 3;
+
+    @Getter
+    private final Path directory;
+    @Getter
+    private final String saveFingerprint;
+
+    private SaveSnapshot(Path directory, String saveFingerprint) {
+        this.directory = directory;
+        this.saveFingerprint = saveFingerprint;
+    }
+
+    public static void saveWorld(GameServer server) {
+        if (server.getState() != GameServerState.ONLINE) return;
+        log.debug("Saving world of server '" + server.getFriendlyName() + "' before backup...");
+        if (server.sendRconCommand("saveworld") == null) log.warn("Could not save the world of server '" + server.getFriendlyName() + "' before the backup. Backing up the last save.");
+    }
+
+    public static SaveSnapshot capture(GameServer server, Path saveDirectory, Predicate<Path> filter) throws IOException {
+        return capture(getSnapshotRoot(server.getServerId()), saveDirectory, filter);
+    }
+
+    //Snapshots stay out of the install directories, otherwise instance clones and integrity scans would pick them up
+    public static Path getSnapshotRoot(String name) {
+        return Path.of(Node.INSTANCE.getServerPath(), SNAPSHOT_DIRECTORY, name).toAbsolutePath();
+    }
+
+    public static SaveSnapshot capture(Path snapshotRoot, Path directory, Predicate<Path> filter) throws IOException {
+
+        deleteStaleSnapshots(snapshotRoot);
+
+        for (int attempt = 1; ; attempt++) {
+
+            String saveFingerprint = waitForQuiescence(directory, filter);
+
+            List<Path> files;
+            try (Stream<Path> stream = Files.walk(directory)) {
+                files = stream.filter(Files::isRegularFile).filter(filter).toList();
+            }
+
+            Path snapshotDirectory = snapshotRoot.resolve(UUID.randomUUID().toString());
+            Files.createDirectories(snapshotDirectory);
+
+            long captureStart = System.nanoTime();
+
+            try {
+                SnapshotMode mode = capture(files, directory, snapshotDirectory, getConfiguredMode());
+                log.debug("Captured " + files.size() + " files of '" + directory + "' as " + mode + " in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - captureStart) + "ms.");
+            } catch (IOException e) {
+                FileUtils.deleteQuietly(snapshotDirectory.toFile());
+                throw e;
+            }
+
+            //A copy takes long enough for the game to save in between, which would mix two saves
+            if (BackupArchiver.getFingerprint(directory, filter).equals(saveFingerprint)) return new SaveSnapshot(snapshotDirectory, saveFingerprint);
+
+            if (attempt >= MAX_CAPTURE_ATTEMPTS) {
+                log.warn("Save files in '" + directory + "' changed during all " + MAX_CAPTURE_ATTEMPTS + " captures. Keeping the last capture anyway.");
+                return new SaveSnapshot(snapshotDirectory, saveFingerprint);
+            }
+
+            log.debug("Save files in '" + directory + "' changed during the capture. Capturing them again...");
+            FileUtils.deleteQuietly(snapshotDirectory.toFile());
+        }
+    }
+
+    @Override
+    public void close() {
+        FileUtils.deleteQuietly(directory.toFile());
+    }
+
+    //Snapshots of a crashed daemon would otherwise stay forever
+    private static void deleteStaleSnapshots(Path snapshotRoot) throws IOException {
+
+        if (!Files.isDirectory(snapshotRoot)) return;
+
+        long staleBefore = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1);
+
+        try (Stream<Path> stream = Files.list(snapshotRoot)) {
+            stream.filter(snapshot -> snapshot.toFile().lastModified() < staleBefore).forEach(snapshot -> {
+                log.debug("Deleting stale backup snapshot '" + snapshot + "'...");
+                FileUtils.deleteQuietly(snapshot.toFile());
+            });
+        }
+    }
+
+    private static String waitForQuiescence(Path saveDirectory, Predicate<Path> filter) throws IOException {
+
+        long deadline = System.currentTimeMillis() + getQuiesceTimeoutMillis();
+        String fingerprint = BackupArchiver.getFingerprint(saveDirectory, filter);
+
+        while (true) {
+            try {
+                Thread.sleep(QUIESCE_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the save files.", e);
+            }
+
+            String currentFingerprint = BackupArchiver.getFingerprint(saveDirectory, filter);
+            if (currentFingerprint.equals(fingerprint)) return currentFingerprint;
+            fingerprint = currentFingerprint;
+
+            if (System.currentTimeMillis() > deadline) {
+                log.warn("Save files in '" + saveDirectory + "' are still changing. Capturing them anyway.");
+                return currentFingerprint;
+            }
+        }
+    }
+
+    private static SnapshotMode capture(List<Path> files, Path source, Path target, SnapshotMode mode) throws IOException {
+
+        if (mode == SnapshotMode.AUTO) {
+            if (!isWindows()) {
+                try {
+                    reflinkAll(files, source, target);
+                    return SnapshotMode.REFLINK;
+                } catch (IOException e) {
+                    log.debug("Reflinks are not supported for '" + source + "'. Falling back to copies.", e);
+                }
+            }
+            copyAll(files, source, target);
+            return SnapshotMode.COPY;
+        }
+
+        switch (mode) {
+            case REFLINK -> reflinkAll(files, source, target);
+            case HARDLINK -> {
+                for (Path file : files) {
+                    Path targetFile = target.resolve(source.relativize(file).toString());
+                    Files.createDirectories(targetFile.getParent());
+                    Files.createLink(targetFile, file);
+                }
+            }
+            case COPY -> copyAll(files, source, target);
+        }
+
+        return mode;
+    }
+
+    private static void copyAll(List<Path> files, Path source, Path target) throws IOException {
+        for (Path file : files) {
+            Path targetFile = target.resolve(source.relativize(file).toString());
+            Files.createDirectories(targetFile.getParent());
+            Files.copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+    private static void reflinkAll(List<Path> files, Path source, Path target) throws IOException {
+
+        //cp only takes one target directory per call, so files are grouped by their directory
+        LinkedHashMap<Path, List<Path>> filesByDirectory = new LinkedHashMap<>();
+        for (Path file : files) {
+            Path targetDirectory = target.resolve(source.relativize(file.getParent()).toString());
+            filesByDirectory.computeIfAbsent(targetDirectory, directory -> new ArrayList<>()).add(file);
+        }
+
+        for (Map.Entry<Path, List<Path>> entry : filesByDirectory.entrySet()) {
+            Files.createDirectories(entry.getKey());
+            List<Path> directoryFiles = entry.getValue();
+
+            for (int i = 0; i < directoryFiles.size(); i += REFLINK_BATCH_SIZE) {
+                List<String> command = new ArrayList<>(List.of("cp", "--reflink=always", "--preserve=timestamps", "-t", entry.getKey().toString()));
+                directoryFiles.subList(i, Math.min(directoryFiles.size(), i + REFLINK_BATCH_SIZE)).forEach(file -> command.add(file.toString()));
+                runCommand(command);
+            }
+        }
+    }
+
+    private static void runCommand(List<String> command) throws IOException {
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+        try {
+            String output = new String(process.getInputStream().readAllBytes());
+            if (process.waitFor() != 0) throw new IOException("'" + command.get(0) + "' failed: " + output.trim());
+        } catch (InterruptedException e) {
+            process.destroy();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while capturing save files.", e);
+        }
+    }
+
+    private static boolean isWindows() {
+        return System.getProperty("os.name").toLowerCase().contains("win");
+    }
+
+    private static SnapshotMode getConfiguredMode() {
+        String mode = ConfigUtils.get("backup.snapshot-mode", SnapshotMode.AUTO.name());
+        try {
+            return SnapshotMode.valueOf(mode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown backup snapshot mode '" + mode + "' configured. Falling back to " + SnapshotMode.AUTO.name() + ".");
+            return SnapshotMode.AUTO;
+        }
+    }
+
+    private static long getQuiesceTimeoutMillis() {
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(ConfigUtils.get("backup.quiesce-timeout-seconds", "30")));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for 'backup.quiesce-timeout-seconds'. Waiting up to 30 seconds.");
+            return TimeUnit.SECONDS.toMillis(30);
+        }
+    }
+
+    public enum SnapshotMode {
+        AUTO,
+        REFLINK,
+        HARDLINK,
+        COPY
+    }
+}
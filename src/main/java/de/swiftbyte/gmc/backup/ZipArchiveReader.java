@@ -0,0 +1,40 @@
+package de.swiftbyte.gmc.backup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class ZipArchiveReader implements ArchiveReader {
+
+    private final ZipFile zipFile;
+    private final List<ArchiveEntry> entries;
+
+    public ZipArchiveReader(Path archive) throws IOException {
+        this.zipFile = new ZipFile(archive.toFile());
+        this.entries = Collections.list(zipFile.entries()).stream()
+                .filter(entry -> !entry.isDirectory())
+                .map(entry -> new ArchiveEntry(entry.getName(), entry.getSize(), entry.getCrc()))
+                .toList();
+    }
+
+    @Override
+    public List<ArchiveEntry> getEntries() {
+        return entries;
+    }
+
+    @Override
+    public InputStream openEntry(ArchiveEntry entry) throws IOException {
+        ZipEntry zipEntry = zipFile.getEntry(entry.getName());
+        if (zipEntry == null) throw new IOException("Archive entry '" + entry.getName() + "' does not exist.");
+        return zipFile.getInputStream(zipEntry);
+    }
+
+    @Override
+    public void close() throws IOException {
+        zipFile.close();
+    }
+}
@@ -0,0 +1,33 @@
+package de.swiftbyte.gmc.backup;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdException;
+
+import java.io.IOException;
+
+public class ZstdFrameCompressor implements FrameCompressor {
+
+    private final int level;
+
+    public ZstdFrameCompressor(int level) {
+        this.level = level;
+    }
+
+    @Override
+    public byte[] compress(byte[] data) throws IOException {
+        try {
+            return Zstd.compress(data, level);
+        } catch (ZstdException e) {
+            throw new IOException("Failed to compress zstd frame.", e);
+        }
+    }
+
+    @Override
+    public byte[] decompress(byte[] data, int uncompressedSize) throws IOException {
+        try {
+            return Zstd.decompress(data, uncompressedSize);
+        } catch (ZstdException e) {
+            throw new IOException("Failed to decompress zstd frame.", e);
+        }
+    }
+}
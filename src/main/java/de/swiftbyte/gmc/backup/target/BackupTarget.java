@@ -0,0 +1,20 @@
+package de.swiftbyte.gmc.backup.target;
+
+import de.swiftbyte.gmc.backup.BackupProgressListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface BackupTarget {
+
+    String getName();
+
+    void upload(Path archive, String key, BackupProgressListener progressListener) throws IOException;
+
+    void download(String key, Path target) throws IOException;
+
+    void delete(String key) throws IOException;
+
+    boolean exists(String key) throws IOException;
+
+}
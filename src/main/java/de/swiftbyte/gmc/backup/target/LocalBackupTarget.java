@@ -0,0 +1,78 @@
+package de.swiftbyte.gmc.backup.target;
+
+import de.swiftbyte.gmc.backup.BackupProgressListener;
+import de.swiftbyte.gmc.backup.IoThrottle;
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class LocalBackupTarget implements BackupTarget {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final Path root;
+
+    public LocalBackupTarget(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public String getName() {
+        return "local:" + root;
+    }
+
+    @Override
+    public void upload(Path archive, String key, BackupProgressListener progressListener) throws IOException {
+        copy(archive, resolve(key), progressListener, IoThrottle.UPLOAD);
+    }
+
+    @Override
+    public void download(String key, Path target) throws IOException {
+        copy(resolve(key), target, null, IoThrottle.DISK);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return Files.exists(resolve(key));
+    }
+
+    private Path resolve(String key) throws IOException {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root)) throw new IOException("Backup key '" + key + "' points outside of '" + root + "'.");
+        return path;
+    }
+
+    private static void copy(Path source, Path target, BackupProgressListener progressListener, IoThrottle throttle) throws IOException {
+
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path partFile = target.resolveSibling(target.getFileName() + ".part");
+
+        long totalBytes = Files.size(source);
+        long copiedBytes = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+
+        try (InputStream inputStream = Files.newInputStream(source); OutputStream outputStream = Files.newOutputStream(partFile)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                throttle.acquire(read);
+                outputStream.write(buffer, 0, read);
+                copiedBytes += read;
+                if (progressListener != null) progressListener.onProgress(copiedBytes, totalBytes);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(partFile);
+            throw e;
+        }
+
+        AtomicFileUtils.move(partFile, target);
+    }
+}
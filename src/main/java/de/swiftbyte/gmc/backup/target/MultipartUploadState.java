@@ -0,0 +1,19 @@
+package de.swiftbyte.gmc.backup.target;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.TreeMap;
+
+@Data
+@NoArgsConstructor
+public class MultipartUploadState {
+
+    private String key;
+    private String uploadId;
+    private long size;
+    private long lastModified;
+    private long partSize;
+    private TreeMap<Integer, String> partETags = new TreeMap<>();
+
+}
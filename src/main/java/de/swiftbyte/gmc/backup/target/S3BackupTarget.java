@@ -0,0 +1,319 @@
+package de.swiftbyte.gmc.backup.target;
+
+import de.swiftbyte.gmc.backup.BackupProgressListener;
+import de.swiftbyte.gmc.backup.IoThrottle;
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+import de.swiftbyte.gmc.utils.CommonUtils;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Uploads to S3 compatible storages. Archives larger than one part are sent as multipart upload with
+ * several parts in flight. The upload id and the finished parts are kept in a state file next to the
+ * archive, so an interrupted upload continues with the missing parts instead of starting over.
+ */
+@Slf4j
+public class S3BackupTarget implements BackupTarget {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern UPLOAD_ID_PATTERN = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+
+    private final HttpUrl endpoint;
+    private final String bucket;
+    private final boolean pathStyle;
+    private final long partSize;
+    private final int parallelParts;
+    private final S3Signer signer;
+    private final OkHttpClient client = new OkHttpClient.Builder()
+            .readTimeout(2, TimeUnit.MINUTES)
+            .writeTimeout(2, TimeUnit.MINUTES)
+            .build();
+
+    public S3BackupTarget(String endpoint, String region, String bucket, String accessKey, String secretKey, boolean pathStyle, long partSize, int parallelParts) {
+        this.endpoint = HttpUrl.get(endpoint);
+        this.bucket = bucket;
+        this.pathStyle = pathStyle;
+        this.partSize = partSize;
+        this.parallelParts = Math.max(1, parallelParts);
+        this.signer = new S3Signer(accessKey, secretKey, region);
+    }
+
+    @Override
+    public String getName() {
+        return "s3:" + endpoint.host() + "/" + bucket;
+    }
+
+    @Override
+    public void upload(Path archive, String key, BackupProgressListener progressListener) throws IOException {
+
+        long size = Files.size(archive);
+
+        if (size <= partSize) {
+            try (Response response = execute("PUT", key, Map.of(), fileRegionBody(archive, 0, size))) {
+                checkResponse(response, "upload '" + key + "'");
+            }
+            if (progressListener != null) progressListener.onProgress(size, size);
+            return;
+        }
+
+        Path statePath = archive.resolveSibling(archive.getFileName() + ".upload");
+
+        try {
+            uploadMultipart(archive, key, statePath, progressListener);
+        } catch (NoSuchUploadException e) {
+            log.debug("Multipart upload of '" + key + "' expired on the server. Starting over...");
+            Files.deleteIfExists(statePath);
+            uploadMultipart(archive, key, statePath, progressListener);
+        }
+
+        Files.deleteIfExists(statePath);
+    }
+
+    @Override
+    public void download(String key, Path target) throws IOException {
+
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        Path partFile = target.resolveSibling(target.getFileName() + ".part");
+
+        try (Response response = execute("GET", key, Map.of(), null)) {
+            checkResponse(response, "download '" + key + "'");
+            try (InputStream inputStream = response.body().byteStream()) {
+                Files.copy(inputStream, partFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(partFile);
+            throw e;
+        }
+
+        AtomicFileUtils.move(partFile, target);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try (Response response = execute("DELETE", key, Map.of(), null)) {
+            if (response.code() != 404) checkResponse(response, "delete '" + key + "'");
+        }
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        try (Response response = execute("HEAD", key, Map.of(), null)) {
+            if (response.code() == 404) return false;
+            checkResponse(response, "check '" + key + "'");
+            return true;
+        }
+    }
+
+    private void uploadMultipart(Path archive, String key, Path statePath, BackupProgressListener progressListener) throws IOException {
+
+        long size = Files.size(archive);
+        long lastModified = Files.getLastModifiedTime(archive).toMillis();
+
+        MultipartUploadState state = readState(statePath);
+        if (state == null || !key.equals(state.getKey()) || state.getSize() != size || state.getLastModified() != lastModified || state.getPartSize() != partSize) {
+            state = new MultipartUploadState();
+            state.setKey(key);
+            state.setSize(size);
+            state.setLastModified(lastModified);
+            state.setPartSize(partSize);
+            state.setUploadId(createMultipartUpload(key));
+            writeState(statePath, state);
+        } else {
+            log.debug("Resuming upload of '" + key + "' with " + state.getPartETags().size() + " finished parts...");
+        }
+
+        int partCount = (int) ((size + partSize - 1) / partSize);
+        MultipartUploadState finalState = state;
+        AtomicLong uploadedBytes = new AtomicLong();
+        state.getPartETags().keySet().forEach(partNumber -> uploadedBytes.addAndGet(getPartLength(size, partNumber)));
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelParts, partCount), runnable -> {
+            Thread thread = new Thread(runnable, "backup-upload-part-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<?>> uploads = new ArrayList<>();
+
+            for (int partNumber = 1; partNumber <= partCount; partNumber++) {
+                if (state.getPartETags().containsKey(partNumber)) continue;
+
+                int currentPart = partNumber;
+                uploads.add(executor.submit(() -> {
+                    long offset = (currentPart - 1) * partSize;
+                    long length = getPartLength(size, currentPart);
+                    String eTag = uploadPart(archive, key, finalState.getUploadId(), currentPart, offset, length);
+
+                    synchronized (finalState) {
+                        finalState.getPartETags().put(currentPart, eTag);
+                        writeState(statePath, finalState);
+                    }
+
+                    long uploaded = uploadedBytes.addAndGet(length);
+                    if (progressListener != null) progressListener.onProgress(uploaded, size);
+                    return null;
+                }));
+            }
+
+            for (Future<?> upload : uploads) upload.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while uploading '" + key + "'.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) throw ioException;
+            throw new IOException("Failed to upload '" + key + "'.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        completeMultipartUpload(key, state);
+    }
+
+    private long getPartLength(long size, int partNumber) {
+        return Math.min(partSize, size - (partNumber - 1) * partSize);
+    }
+
+    private String createMultipartUpload(String key) throws IOException {
+        try (Response response = execute("POST", key, Map.of("uploads", ""), RequestBody.create(new byte[0], null))) {
+            checkResponse(response, "start upload of '" + key + "'");
+            Matcher matcher = UPLOAD_ID_PATTERN.matcher(response.body().string());
+            if (!matcher.find()) throw new IOException("S3 did not return an upload id for '" + key + "'.");
+            return matcher.group(1);
+        }
+    }
+
+    private String uploadPart(Path archive, String key, String uploadId, int partNumber, long offset, long length) throws IOException {
+        try (Response response = execute("PUT", key, Map.of("partNumber", String.valueOf(partNumber), "uploadId", uploadId), fileRegionBody(archive, offset, length))) {
+            checkUploadExists(response);
+            checkResponse(response, "upload part " + partNumber + " of '" + key + "'");
+            String eTag = response.header("ETag");
+            if (eTag == null) throw new IOException("S3 did not return an ETag for part " + partNumber + " of '" + key + "'.");
+            return eTag;
+        }
+    }
+
+    private void completeMultipartUpload(String key, MultipartUploadState state) throws IOException {
+
+        StringBuilder body = new StringBuilder("<CompleteMultipartUpload>");
+        state.getPartETags().forEach((partNumber, eTag) -> body.append("<Part><PartNumber>").append(partNumber).append("</PartNumber><ETag>")
+                .append(eTag.replace("&", "&amp;").replace("\"", "&quot;")).append("</ETag></Part>"));
+        body.append("</CompleteMultipartUpload>");
+
+        try (Response response = execute("POST", key, Map.of("uploadId", state.getUploadId()), RequestBody.create(body.toString(), MediaType.get("application/xml")))) {
+            checkUploadExists(response);
+            checkResponse(response, "complete upload of '" + key + "'");
+
+            //S3 reports errors of a completion with status 200 in the body
+            String responseBody = response.body().string();
+            if (responseBody.contains("<Error>")) throw new IOException("Could not complete upload of '" + key + "': " + responseBody);
+        }
+    }
+
+    private Response execute(String method, String key, Map<String, String> query, RequestBody body) throws IOException {
+
+        String encodedPath = (pathStyle ? "/" + S3Signer.encode(bucket, false) : "") + "/" + S3Signer.encode(key, true);
+
+        StringBuilder url = new StringBuilder();
+        url.append(endpoint.scheme()).append("://").append(pathStyle ? "" : bucket + ".").append(endpoint.host()).append(':').append(endpoint.port()).append(encodedPath);
+        if (!query.isEmpty()) {
+            url.append('?');
+            new TreeMap<>(query).forEach((name, value) -> url.append(S3Signer.encode(name, false)).append('=').append(S3Signer.encode(value, false)).append('&'));
+            url.setLength(url.length() - 1);
+        }
+
+        Request request = signer.sign(new Request.Builder(), method, HttpUrl.get(url.toString()), encodedPath, query)
+                .method(method, body)
+                .build();
+
+        return client.newCall(request).execute();
+    }
+
+    private static void checkResponse(Response response, String action) throws IOException {
+        if (response.isSuccessful()) return;
+        ResponseBody body = response.body();
+        throw new IOException("Could not " + action + ". S3 responded with " + response.code() + ": " + (body == null ? "" : body.string()));
+    }
+
+    //A missing bucket is also a 404, only an expired or aborted upload is worth starting over
+    private static void checkUploadExists(Response response) throws IOException {
+        if (response.code() != 404) return;
+        String body = response.peekBody(64 * 1024).string();
+        if (body.contains("<Code>NoSuchUpload</Code>")) throw new NoSuchUploadException();
+    }
+
+    private static RequestBody fileRegionBody(Path file, long offset, long length) {
+        return new RequestBody() {
+
+            @Override
+            public MediaType contentType() {
+                return null;
+            }
+
+            @Override
+            public long contentLength() {
+                return length;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                    long position = offset;
+                    long remaining = length;
+
+                    while (remaining > 0) {
+                        buffer.clear().limit((int) Math.min(BUFFER_SIZE, remaining));
+                        int read = channel.read(buffer, position);
+                        if (read < 0) throw new IOException("'" + file + "' was truncated during the upload.");
+
+                        IoThrottle.UPLOAD.acquire(read);
+                        buffer.flip();
+                        sink.write(buffer);
+
+                        position += read;
+                        remaining -= read;
+                    }
+                }
+            }
+        };
+    }
+
+    private static MultipartUploadState readState(Path statePath) {
+        if (!Files.exists(statePath)) return null;
+        try {
+            return CommonUtils.getObjectReader().readValue(Files.readAllBytes(statePath), MultipartUploadState.class);
+        } catch (IOException e) {
+            log.debug("Could not read upload state '" + statePath + "'. Starting a new upload.", e);
+            return null;
+        }
+    }
+
+    private static void writeState(Path statePath, MultipartUploadState state) throws IOException {
+        AtomicFileUtils.write(statePath, CommonUtils.getObjectWriter().writeValueAsBytes(state));
+    }
+
+    private static class NoSuchUploadException extends IOException {
+
+        private NoSuchUploadException() {
+            super("The multipart upload does not exist anymore.");
+        }
+    }
+}
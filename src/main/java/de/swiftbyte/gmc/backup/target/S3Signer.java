@@ -0,0 +1,114 @@
+package de.swiftbyte.gmc.backup.target;
+
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * AWS Signature Version 4 for S3 compatible storages. Payloads are sent as UNSIGNED-PAYLOAD,
+ * so uploads can be streamed from disk without hashing every part before sending it.
+ */
+class S3Signer {
+
+    static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final String SIGNED_HEADERS = "host;x-amz-content-sha256;x-amz-date";
+
+    private final String accessKey;
+    private final String secretKey;
+    private final String region;
+    private final Clock clock;
+
+    S3Signer(String accessKey, String secretKey, String region) {
+        this(accessKey, secretKey, region, Clock.systemUTC());
+    }
+
+    S3Signer(String accessKey, String secretKey, String region, Clock clock) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.region = region;
+        this.clock = clock;
+    }
+
+    Request.Builder sign(Request.Builder builder, String method, HttpUrl url, String encodedPath, Map<String, String> query) throws IOException {
+
+        ZonedDateTime now = ZonedDateTime.now(clock).withZoneSameInstant(ZoneOffset.UTC);
+        String amzDate = DATE_TIME_FORMAT.format(now);
+        String scope = DATE_FORMAT.format(now) + "/" + region + "/s3/aws4_request";
+
+        String host = url.host() + (url.port() != HttpUrl.defaultPort(url.scheme()) ? ":" + url.port() : "");
+
+        StringBuilder canonicalQuery = new StringBuilder();
+        new TreeMap<>(query).forEach((key, value) -> {
+            if (!canonicalQuery.isEmpty()) canonicalQuery.append('&');
+            canonicalQuery.append(encode(key, false)).append('=').append(encode(value, false));
+        });
+
+        String canonicalRequest = method + "\n"
+                + encodedPath + "\n"
+                + canonicalQuery + "\n"
+                + "host:" + host + "\n"
+                + "x-amz-content-sha256:" + UNSIGNED_PAYLOAD + "\n"
+                + "x-amz-date:" + amzDate + "\n\n"
+                + SIGNED_HEADERS + "\n"
+                + UNSIGNED_PAYLOAD;
+
+        try {
+            String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n" + HexFormat.of().formatHex(sha256(canonicalRequest));
+
+            byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), DATE_FORMAT.format(now));
+            signingKey = hmac(signingKey, region);
+            signingKey = hmac(signingKey, "s3");
+            signingKey = hmac(signingKey, "aws4_request");
+            String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+
+            return builder.url(url)
+                    .header("x-amz-date", amzDate)
+                    .header("x-amz-content-sha256", UNSIGNED_PAYLOAD)
+                    .header("Authorization", "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope + ", SignedHeaders=" + SIGNED_HEADERS + ", Signature=" + signature);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not sign S3 request.", e);
+        }
+    }
+
+    static String encode(String value, boolean keepSlashes) {
+
+        StringBuilder encoded = new StringBuilder();
+
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_' || c == '.' || c == '~' || (keepSlashes && c == '/')) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(HexFormat.of().withUpperCase().toHexDigits(b));
+            }
+        }
+
+        return encoded.toString();
+    }
+
+    private static byte[] sha256(String value) throws GeneralSecurityException {
+        return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] hmac(byte[] key, String value) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
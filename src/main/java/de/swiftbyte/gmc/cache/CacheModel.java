@@ -6,7 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.util.HashMap;
+import java.util.Map;
 
 @Data
 @Builder
@@ -23,5 +23,5 @@ public class CacheModel {
     private String serverStopMessage;
     private String serverRestartMessage;
 
-    private HashMap<String, GameServerCacheModel> gameServerCacheModelHashMap;
+    private Map<String, GameServerCacheModel> gameServerCacheModelHashMap;
 }
@@ -0,0 +1,95 @@
+package de.swiftbyte.gmc.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import de.swiftbyte.gmc.Application;
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+import de.swiftbyte.gmc.utils.CommonUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+public class CacheWriter {
+
+    private static final long DEBOUNCE_MILLIS = 2000;
+
+    private final Path file;
+    private final ObjectWriter writer;
+    private final ScheduledExecutorService executor;
+
+    private byte[] writtenContent;
+    private byte[] pendingContent;
+    private ScheduledFuture<?> pendingFlush;
+    private boolean closed;
+
+    public CacheWriter(Path file) {
+        this.file = file;
+        this.writer = CommonUtils.getPrettyObjectWriter();
+        this.executor = Application.getExecutor();
+
+        try {
+            if (Files.exists(file)) writtenContent = Files.readAllBytes(file);
+        } catch (IOException e) {
+            log.debug("Could not read current content of '" + file + "'. It will be rewritten on the next change.", e);
+        }
+    }
+
+    public synchronized void submit(Object value) {
+
+        if (closed) return;
+
+        byte[] content;
+        try {
+            content = writer.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            log.error("An unknown error occurred while serializing '" + file + "'.", e);
+            return;
+        }
+
+        byte[] latestContent = pendingContent != null ? pendingContent : writtenContent;
+        if (Arrays.equals(content, latestContent)) return;
+
+        pendingContent = content;
+        if (pendingFlush == null) {
+            pendingFlush = executor.schedule(this::flush, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void flush() {
+
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+
+        if (pendingContent == null || closed) return;
+
+        try {
+            AtomicFileUtils.write(file, pendingContent);
+            writtenContent = pendingContent;
+            pendingContent = null;
+        } catch (IOException e) {
+            log.error("An unknown error occurred while writing '" + file + "'. Retrying...", e);
+            pendingFlush = executor.schedule(this::flush, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    //Drops pending content, nothing is written to the file afterwards
+    public synchronized void close() {
+
+        closed = true;
+        pendingContent = null;
+
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+    }
+}
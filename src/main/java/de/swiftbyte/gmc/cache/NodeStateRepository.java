@@ -0,0 +1,223 @@
+package de.swiftbyte.gmc.cache;
+
+import de.swiftbyte.gmc.common.packet.entity.NodeSettings;
+import de.swiftbyte.gmc.common.packet.entity.ServerSettings;
+import de.swiftbyte.gmc.utils.CommonUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Slf4j
+public class NodeStateRepository {
+
+    private static final Path CACHE_PATH = Path.of("./cache.json");
+
+    private static final AtomicReference<Snapshot> SNAPSHOT = new AtomicReference<>(new Snapshot(0, null));
+
+    private static CacheWriter cacheWriter;
+
+    public record Snapshot(long version, CacheModel model) {
+    }
+
+    public static synchronized void load() {
+
+        if (cacheWriter != null) return;
+
+        log.debug("Loading node state...");
+
+        if (Files.exists(CACHE_PATH)) {
+            try {
+                CacheModel cacheModel = CommonUtils.getObjectReader().readValue(CACHE_PATH.toFile(), CacheModel.class);
+                SNAPSHOT.set(new Snapshot(1, freeze(cacheModel)));
+                log.debug("Loaded node state.");
+            } catch (IOException e) {
+                log.error("An unknown error occurred while loading the node state.", e);
+            }
+        } else {
+            log.debug("No cache file found. Starting with empty node state.");
+        }
+
+        cacheWriter = new CacheWriter(CACHE_PATH);
+    }
+
+    //The model is frozen when the snapshot is taken, so readers get it without a copy
+    public static Snapshot getSnapshot() {
+        return SNAPSHOT.get();
+    }
+
+    public static CacheModel getCacheModel() {
+        return SNAPSHOT.get().model();
+    }
+
+    public static long getVersion() {
+        return SNAPSHOT.get().version();
+    }
+
+    public static Map<String, GameServerCacheModel> getGameServers() {
+        CacheModel cacheModel = getCacheModel();
+        if (cacheModel == null) return Map.of();
+        return cacheModel.getGameServerCacheModelHashMap();
+    }
+
+    public static GameServerCacheModel getGameServer(String id) {
+        return getGameServers().get(id);
+    }
+
+    public static String getServerInstallDir(String id) {
+        GameServerCacheModel gameServerCacheModel = getGameServer(id);
+        return gameServerCacheModel == null ? null : gameServerCacheModel.getInstallDir();
+    }
+
+    public static synchronized void update(CacheModel cacheModel) {
+
+        //The copy decouples the snapshot from the live settings, so changes made in place are detected next time
+        CacheModel model = freeze(copy(cacheModel));
+        if (model == null) return;
+
+        Snapshot current = SNAPSHOT.get();
+        if (!model.equals(current.model())) {
+            SNAPSHOT.set(new Snapshot(current.version() + 1, model));
+        }
+
+        if (cacheWriter == null) {
+            log.warn("Node state was updated before it was loaded. Skipping persistence...");
+            return;
+        }
+        cacheWriter.submit(SNAPSHOT.get().model());
+    }
+
+    public static synchronized void flush() {
+        if (cacheWriter != null) cacheWriter.flush();
+    }
+
+    private static CacheModel copy(CacheModel cacheModel) {
+
+        if (cacheModel == null) return null;
+
+        return copy(cacheModel, CacheModel.class);
+    }
+
+    private static <T> T copy(T value, Class<T> type) {
+
+        if (value == null) return null;
+
+        try {
+            return CommonUtils.getObjectReader().readValue(CommonUtils.getObjectWriter().writeValueAsBytes(value), type);
+        } catch (IOException e) {
+            log.error("An unknown error occurred while copying the node state.", e);
+            return null;
+        }
+    }
+
+    //Takes ownership of the given model, it must not be referenced by anyone else afterwards
+    private static CacheModel freeze(CacheModel cacheModel) {
+
+        if (cacheModel == null) return null;
+
+        Map<String, GameServerCacheModel> gameServers = new LinkedHashMap<>();
+        if (cacheModel.getGameServerCacheModelHashMap() != null) {
+            cacheModel.getGameServerCacheModelHashMap().forEach((id, gameServer) -> gameServers.put(id, gameServer == null ? null : new FrozenGameServerCacheModel(gameServer)));
+        }
+
+        return new FrozenCacheModel(cacheModel, Collections.unmodifiableMap(gameServers));
+    }
+
+    //A flush that is still pending must not recreate the cache file after it was deleted
+    public static synchronized void close() {
+        if (cacheWriter != null) cacheWriter.close();
+    }
+
+    /*
+     * The settings objects come from the common library and can't be frozen, so they are copied when they are read.
+     * That only happens while the cached node and servers are loaded and when the cache file is written.
+     */
+    private static class FrozenCacheModel extends CacheModel {
+
+        private FrozenCacheModel(CacheModel source, Map<String, GameServerCacheModel> gameServers) {
+            super(source.getNodeName(), source.getTeamName(), source.getServerPath(), source.isManageFirewallAutomatically(), source.isAutoUpdateEnabled(), source.getAutoBackup(), source.getServerStopMessage(), source.getServerRestartMessage(), gameServers);
+        }
+
+        @Override
+        public NodeSettings.AutoBackup getAutoBackup() {
+            return copy(super.getAutoBackup(), NodeSettings.AutoBackup.class);
+        }
+
+        @Override
+        public void setNodeName(String nodeName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setTeamName(String teamName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setServerPath(String serverPath) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setManageFirewallAutomatically(boolean manageFirewallAutomatically) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setAutoUpdateEnabled(boolean isAutoUpdateEnabled) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setAutoBackup(NodeSettings.AutoBackup autoBackup) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setServerStopMessage(String serverStopMessage) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setServerRestartMessage(String serverRestartMessage) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setGameServerCacheModelHashMap(Map<String, GameServerCacheModel> gameServerCacheModelHashMap) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class FrozenGameServerCacheModel extends GameServerCacheModel {
+
+        private FrozenGameServerCacheModel(GameServerCacheModel source) {
+            super(source.getFriendlyName(), source.getInstallDir(), source.getSettings());
+        }
+
+        @Override
+        public ServerSettings getSettings() {
+            return copy(super.getSettings(), ServerSettings.class);
+        }
+
+        @Override
+        public void setFriendlyName(String friendlyName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setInstallDir(String installDir) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setSettings(ServerSettings settings) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
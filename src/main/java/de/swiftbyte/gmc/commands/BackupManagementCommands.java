@@ -1,12 +1,32 @@
 package de.swiftbyte.gmc.commands;
 
+import de.swiftbyte.gmc.backup.ArchiveEntry;
+import de.swiftbyte.gmc.backup.ArchiveReader;
+import de.swiftbyte.gmc.backup.BackupArchiver;
+import de.swiftbyte.gmc.backup.BackupCodec;
+import de.swiftbyte.gmc.backup.BackupJob;
+import de.swiftbyte.gmc.backup.BackupScheduler;
+import de.swiftbyte.gmc.backup.BackupVerifier;
+import de.swiftbyte.gmc.backup.ClusterBackup;
+import de.swiftbyte.gmc.backup.RestoreSelection;
 import de.swiftbyte.gmc.common.packet.entity.Backup;
 import de.swiftbyte.gmc.server.GameServer;
 import de.swiftbyte.gmc.service.BackupService;
+import de.swiftbyte.gmc.service.ClusterBackupService;
+import de.swiftbyte.gmc.utils.NodeUtils;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.springframework.shell.command.annotation.Command;
 import org.springframework.shell.command.annotation.Option;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
 
 @Command
@@ -26,17 +46,23 @@ public class BackupManagementCommands {
             return "Server with id " + serverId + " not found!";
         }
 
-        return "Backup created!";
+        return "Backup queued! Use 'backup queue' to follow its progress.";
     }
 
     @Command(command = "backup rollback", description = "Rollback a backup.", group = "Backup Management")
-    public String rollbackBackupCommand(@Option(description = "The backup", required = true) String backupId, @Option(description = "Should the player data also be restored?") boolean playerData) {
+    public String rollbackBackupCommand(@Option(description = "The backup", required = true) String backupId, @Option(description = "Should the player data also be restored?") boolean playerData,
+                                        @Option(description = "Should the cluster data of all servers in the cluster also be restored?") boolean clusterData) {
 
         Backup backup = BackupService.getBackupById(backupId);
 
         if (backup != null) {
 
-            BackupService.rollbackBackup(backup.getBackupId(), playerData);
+            RestoreSelection selection = playerData ? RestoreSelection.full() : RestoreSelection.mapOnly();
+            selection.setClusterData(clusterData);
+
+            if (!BackupService.restoreBackup(backup.getBackupId(), selection)) {
+                return "Backup rollback failed! Check the log for the save files that were already restored.";
+            }
 
         } else {
             return "Backup with id " + backupId + " not found!";
@@ -45,6 +71,34 @@ public class BackupManagementCommands {
         return "Backup rollback complete!";
     }
 
+    @Command(command = "backup restore", description = "Restore single files of a backup.", group = "Backup Management")
+    public String restoreBackupCommand(@Option(description = "The backup", required = true) String backupId,
+                                       @Option(description = "Should the map be restored?") boolean map,
+                                       @Option(description = "Comma separated ids of the player profiles to restore", required = false) String players,
+                                       @Option(description = "Comma separated ids of the tribes to restore", required = false) String tribes) {
+
+        Backup backup = BackupService.getBackupById(backupId);
+
+        if (backup == null) {
+            return "Backup with id " + backupId + " not found!";
+        }
+
+        RestoreSelection selection = new RestoreSelection();
+        selection.setMap(map);
+        if (players != null) Arrays.stream(players.split(",")).map(String::trim).filter(id -> !id.isEmpty()).forEach(selection.getPlayerIds()::add);
+        if (tribes != null) Arrays.stream(tribes.split(",")).map(String::trim).filter(id -> !id.isEmpty()).forEach(selection.getTribeIds()::add);
+
+        if (!map && selection.getPlayerIds().isEmpty() && selection.getTribeIds().isEmpty()) {
+            return "Nothing to restore! Select the map, players or tribes.";
+        }
+
+        if (!BackupService.restoreBackup(backup.getBackupId(), selection)) {
+            return "Backup restore failed! Check the log for details.";
+        }
+
+        return "Backup restore complete!";
+    }
+
     @Command(command = "backup list", description = "List all backups.", group = "Backup Management")
     public String listBackupCommand(@Option(description = "Filter for a server id", required = false) String serverId) {
 
@@ -59,10 +113,116 @@ public class BackupManagementCommands {
         StringBuilder list = new StringBuilder();
 
         for (Backup backup : backupList) {
-            list.append(backup.getName()).append("(").append(backup.getBackupId()).append(") - Server: ").append(backup.getServerId()).append(" / Size:  ").append(backup.getSize() / 1024).append("KB\n");
+            list.append(backup.getName()).append("(").append(backup.getBackupId()).append(") - Server: ").append(backup.getServerId()).append(" / Size:  ").append(backup.getSize() / 1024).append("KB / Verified: ").append(BackupService.getBackupMetadata(backup.getBackupId()).getVerificationStatus()).append("\n");
+        }
+
+        return list.toString();
+    }
+
+    @Command(command = "backup clusters", description = "List all cluster backups.", group = "Backup Management")
+    public String listClusterBackupCommand() {
+
+        StringBuilder list = new StringBuilder();
+
+        for (ClusterBackup backup : ClusterBackupService.getAllBackups()) {
+            list.append(backup.getName()).append("(").append(backup.getBackupId()).append(") - Cluster: ").append(backup.getClusterId()).append(" / Directory: ").append(backup.getDirectory()).append(" / Servers: ").append(String.join(", ", backup.getMemberServerIds())).append(" / Size:  ").append(backup.getSize() / 1024).append("KB\n");
+        }
+
+        return list.toString();
+    }
+
+    @Command(command = "backup verify", description = "Verify the integrity of backups.", group = "Backup Management")
+    public String verifyBackupCommand(@Option(description = "The backup, all backups if not set", required = false) String backupId) {
+
+        if (backupId == null) {
+            BackupVerifier.verifyAll();
+            return "Verifying " + BackupService.getAllBackups().size() + " backups in the background. Check the log for the progress and results.";
+        }
+
+        Backup backup = BackupService.getBackupById(backupId);
+        if (backup == null) return "Backup with id " + backupId + " not found!";
+
+        return backup.getName() + "(" + backup.getBackupId() + "): " + BackupVerifier.verify(backup);
+    }
+
+    @Command(command = "backup queue", description = "List all pending and running backups.", group = "Backup Management")
+    public String listBackupQueueCommand() {
+
+        List<BackupJob> jobs = BackupScheduler.getJobs();
+
+        if (jobs.isEmpty()) return "No backups pending.";
+
+        StringBuilder list = new StringBuilder("Running up to " + BackupScheduler.getMaxConcurrentBackups() + " backups at once.\n");
+
+        for (BackupJob job : jobs) {
+            list.append(job.getDisplayName()).append(job.isAutoBackup() ? " (auto)" : "").append(" - ").append(job.getState());
+
+            switch (job.getState()) {
+                case SCHEDULED -> list.append(" / Starts in ").append(Math.max(0, Duration.between(Instant.now(), job.getStartAt()).toSeconds())).append("s");
+                case RUNNING -> {
+                    list.append(" / ").append(job.getProcessedBytes() / 1024).append("KB of ").append(job.getTotalBytes() / 1024).append("KB");
+                    Duration remaining = job.getEstimatedTimeRemaining();
+                    if (remaining != null) list.append(" / ETA ").append(remaining.toSeconds()).append("s");
+                }
+            }
+
+            list.append("\n");
         }
 
         return list.toString();
     }
 
+    @Command(command = "backup benchmark", description = "Benchmark all backup codecs against a save directory.", group = "Backup Management")
+    public String benchmarkBackupCommand(@Option(description = "The save directory to compress", required = true) String directory) {
+
+        Path source = Path.of(directory);
+
+        if (!Files.isDirectory(source)) {
+            return "Directory " + directory + " not found!";
+        }
+
+        long sourceBytes = FileUtils.sizeOfDirectory(source.toFile());
+        StringBuilder result = new StringBuilder();
+
+        for (BackupCodec codec : BackupCodec.values()) {
+
+            //Deduplication only pays off across consecutive backups
+            if (codec == BackupCodec.CHUNKED) continue;
+
+            Path target = Path.of(NodeUtils.TMP_PATH, "benchmark" + codec.getExtension());
+
+            try {
+                long compressStart = System.nanoTime();
+                long archiveBytes = BackupArchiver.archive(source, file -> true, target, codec, null).getSize();
+                long compressNanos = System.nanoTime() - compressStart;
+
+                long decompressStart = System.nanoTime();
+                try (ArchiveReader archiveReader = codec.openReader(target)) {
+                    for (ArchiveEntry entry : archiveReader.getEntries()) {
+                        try (InputStream inputStream = archiveReader.openEntry(entry)) {
+                            inputStream.transferTo(NullOutputStream.INSTANCE);
+                        }
+                    }
+                }
+                long decompressNanos = System.nanoTime() - decompressStart;
+
+                result.append(codec).append(": ").append(archiveBytes / 1024).append("KB (")
+                        .append(sourceBytes == 0 ? 100 : archiveBytes * 100 / sourceBytes).append("%) / Compress: ")
+                        .append(getThroughput(sourceBytes, compressNanos)).append("MB/s / Decompress: ")
+                        .append(getThroughput(sourceBytes, decompressNanos)).append("MB/s\n");
+            } catch (IOException e) {
+                log.error("An unknown error occurred while benchmarking codec " + codec + ".", e);
+                result.append(codec).append(": failed\n");
+            } finally {
+                FileUtils.deleteQuietly(target.toFile());
+            }
+        }
+
+        return result.toString();
+    }
+
+    private static long getThroughput(long bytes, long nanos) {
+        return nanos == 0 ? 0 : bytes * 1000 / nanos;
+    }
+
 }
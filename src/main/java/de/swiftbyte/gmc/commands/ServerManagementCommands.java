@@ -1,16 +1,30 @@
 package de.swiftbyte.gmc.commands;
 
 import de.swiftbyte.gmc.common.packet.entity.ServerSettings;
+import de.swiftbyte.gmc.install.InstallJob;
+import de.swiftbyte.gmc.install.InstallScheduler;
+import de.swiftbyte.gmc.install.IntegrityReport;
+import de.swiftbyte.gmc.install.IntegrityScanner;
+import de.swiftbyte.gmc.install.RollingUpdate;
+import de.swiftbyte.gmc.install.RollingUpdateJob;
+import de.swiftbyte.gmc.install.SteamCmdProgress;
 import de.swiftbyte.gmc.server.AsaServer;
 import de.swiftbyte.gmc.server.GameServer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.shell.command.annotation.Command;
 import org.springframework.shell.command.annotation.Option;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
 @Command
 @Slf4j
 public class ServerManagementCommands {
 
+    private static final int MAX_LISTED_FILES = 20;
+
     @Command(command = "server create", description = "Create a new Server.", group = "Daemon Management", hidden = true)
     public String createServerCommand(@Option(description = "The type of game which server is to be created", required = true) String game, @Option(description = "The server id", required = true) String id, @Option(description = "The FriendlyName of the server", required = true) String name, @Option(description = "Should the server be installed?", required = false) boolean install) {
 
@@ -68,4 +82,100 @@ public class ServerManagementCommands {
 
         return "Server is restarting...";
     }
+
+    @Command(command = "server update", description = "Update a server to the latest build.", group = "Daemon Management")
+    public String updateServerCommand(@Option(description = "The server id", required = true) String id, @Option(description = "Should all game files be validated?") boolean validate) {
+
+        GameServer server = GameServer.getServerById(id);
+
+        if (server == null) return "Server with id " + id + " not found!";
+
+        if (!validate && !server.isUpdateAvailable()) return "Server is already on the latest build!";
+
+        server.updateBuild(InstallJob.Priority.NORMAL, validate).queue();
+
+        return "Server is updating...";
+    }
+
+    @Command(command = "server verify", description = "Check the game files of a server against the files of its last install.", group = "Daemon Management")
+    public String verifyServerCommand(@Option(description = "The server id", required = true) String id, @Option(description = "Should unchanged files be hashed as well?") boolean full, @Option(description = "Should damaged files be repaired?") boolean repair) {
+
+        GameServer server = GameServer.getServerById(id);
+
+        if (server == null) return "Server with id " + id + " not found!";
+
+        IntegrityReport report;
+        try {
+            report = IntegrityScanner.scan(server.getInstallDir(), full);
+        } catch (IOException e) {
+            log.error("An unknown error occurred while verifying server '" + server.getFriendlyName() + "'.", e);
+            return "An unknown error occurred while verifying the server!";
+        }
+
+        if (!report.isManifestFound()) return "Server has no record of its game files yet. It is created with the next install, update or start, or use 'server update --validate'.";
+
+        StringBuilder result = new StringBuilder("Checked ").append(report.getCheckedFiles()).append(" files in ").append(report.getDurationMillis() / 1000.0).append("s, ")
+                .append(report.getHashedFiles()).append(" hashed (").append(report.getHashedBytes() / (1024 * 1024)).append("MB).\n");
+
+        if (report.isIntact()) return result.append("All game files are intact.").toString();
+
+        report.getMissingFiles().stream().limit(MAX_LISTED_FILES).forEach(file -> result.append("Missing: ").append(file).append("\n"));
+        report.getCorruptFiles().stream().limit(MAX_LISTED_FILES).forEach(file -> result.append("Corrupt: ").append(file).append("\n"));
+        result.append(report.getMissingFiles().size()).append(" missing and ").append(report.getCorruptFiles().size()).append(" corrupt files.");
+
+        if (!repair) return result.append(" Use --repair to repair them.").toString();
+
+        server.repair(report.getDamagedFiles()).queue();
+
+        return result.append(" Server is repairing...").toString();
+    }
+
+    @Command(command = "server update-all", description = "Update all servers in batches, one batch online before the next.", group = "Daemon Management")
+    public String updateAllServersCommand(@Option(description = "Should all game files be validated?") boolean validate) {
+
+        RollingUpdateJob job = RollingUpdate.start(validate);
+
+        if (job == null) return "A rolling update is already running! Use 'server update-status' to follow it.";
+
+        return "Rolling update started with " + job.getBatchSize() + " servers per batch. Use 'server update-status' to follow it.";
+    }
+
+    @Command(command = "server update-status", description = "Show the progress of the rolling update.", group = "Daemon Management")
+    public String updateStatusCommand() {
+
+        RollingUpdateJob job = RollingUpdate.getCurrentJob();
+
+        if (job == null) return "No rolling update was started.";
+
+        return job.getSummary();
+    }
+
+    @Command(command = "install jobs", description = "List all pending and running installs.", group = "Daemon Management")
+    public String listInstallJobsCommand() {
+
+        List<InstallJob> jobs = InstallScheduler.getJobs();
+
+        if (jobs.isEmpty()) return "No installs pending.";
+
+        StringBuilder list = new StringBuilder("Running up to " + InstallScheduler.getMaxConcurrentInstalls() + " installs at once.\n");
+
+        for (InstallJob job : jobs) {
+            list.append("App ").append(job.getAppId()).append(" - ").append(job.getInstallDir()).append(": ").append(job.getState())
+                    .append(" / Priority: ").append(job.getPriority())
+                    .append(" / Servers: ").append(String.join(", ", InstallScheduler.getServers(job).stream().map(GameServer::getFriendlyName).toList()));
+
+            if (job.getState() == InstallJob.State.RUNNING) {
+                list.append(" / Running for ").append(Duration.between(job.getStartedAt(), Instant.now()).toSeconds()).append("s");
+                if (job.getAttempt() > 1) list.append(" / Attempt ").append(job.getAttempt());
+
+                SteamCmdProgress progress = job.getProgress();
+                if (progress != null) list.append(" / ").append(progress.getPhase()).append(" ").append(String.format("%.2f", progress.getPercent())).append("% (")
+                        .append(progress.getProcessedBytes() / (1024 * 1024)).append("MB of ").append(progress.getTotalBytes() / (1024 * 1024)).append("MB)");
+            }
+
+            list.append("\n");
+        }
+
+        return list.toString();
+    }
 }
@@ -0,0 +1,19 @@
+package de.swiftbyte.gmc.download;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.TreeMap;
+
+@Data
+@NoArgsConstructor
+public class DownloadState {
+
+    private String url;
+    private String eTag;
+    private String lastModified;
+    private long size;
+    private long segmentSize;
+    private TreeMap<Integer, Long> downloadedBytes = new TreeMap<>();
+
+}
@@ -0,0 +1,343 @@
+package de.swiftbyte.gmc.download;
+
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+import de.swiftbyte.gmc.utils.CommonUtils;
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Downloads files in several HTTP ranges at once. The finished bytes of every segment are kept in a
+ * state file next to the partial file, so an interrupted download continues where it stopped. The
+ * file only replaces the target after its size and, if known, its checksum have been verified.
+ */
+@Slf4j
+public class Downloader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+    private static final int SEGMENT_ATTEMPTS = 3;
+    private static final long STATE_INTERVAL_MILLIS = 1000;
+    private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+    private static final Pattern SHA256_PATTERN = Pattern.compile("\\b([0-9a-fA-F]{64})\\b");
+    private static final OkHttpClient client = new OkHttpClient.Builder()
+            .readTimeout(30, TimeUnit.SECONDS)
+            .build();
+
+    public static void download(String url, Path target, String expectedSha256) throws IOException {
+
+        Path absoluteTarget = target.toAbsolutePath();
+        Files.createDirectories(absoluteTarget.getParent());
+
+        Path partFile = absoluteTarget.resolveSibling(absoluteTarget.getFileName() + ".part");
+        Path statePath = absoluteTarget.resolveSibling(absoluteTarget.getFileName() + ".download");
+
+        RemoteFile remoteFile = probe(url);
+
+        try {
+            if (remoteFile.rangeSupported()) {
+                downloadSegments(url, remoteFile, partFile, statePath);
+            } else {
+                log.debug("'" + url + "' does not support ranges. Downloading it in one piece...");
+                Files.deleteIfExists(statePath);
+                downloadStream(url, partFile);
+            }
+        } catch (RemoteFileChangedException e) {
+            discard(partFile, statePath);
+            throw e;
+        }
+
+        long size = Files.size(partFile);
+        if (remoteFile.size() >= 0 && size != remoteFile.size()) {
+            discard(partFile, statePath);
+            throw new IOException("Download of '" + url + "' is incomplete. Expected " + remoteFile.size() + " bytes but got " + size + ".");
+        }
+
+        if (expectedSha256 != null) {
+            String sha256 = getSha256(partFile);
+            if (!sha256.equalsIgnoreCase(expectedSha256)) {
+                discard(partFile, statePath);
+                throw new IOException("Checksum of '" + url + "' does not match. Expected " + expectedSha256 + " but got " + sha256 + ".");
+            }
+            log.debug("Verified checksum of '" + absoluteTarget.getFileName() + "'.");
+        }
+
+        AtomicFileUtils.move(partFile, absoluteTarget);
+        Files.deleteIfExists(statePath);
+    }
+
+    //Reads a published checksum file, null if there is none
+    public static String fetchSha256(String url) throws IOException {
+
+        Request request = new Request.Builder().url(url).build();
+
+        try (Response response = client.newCall(request).execute()) {
+            if (response.code() == 404) return null;
+            checkResponse(response, url);
+
+            Matcher matcher = SHA256_PATTERN.matcher(response.body().string());
+            if (!matcher.find()) throw new IOException("'" + url + "' does not contain a SHA-256 checksum.");
+            return matcher.group(1);
+        }
+    }
+
+    //Reads a small published file like a signature, null if there is none
+    public static byte[] fetchBytes(String url) throws IOException {
+
+        Request request = new Request.Builder().url(url).build();
+
+        try (Response response = client.newCall(request).execute()) {
+            if (response.code() == 404) return null;
+            checkResponse(response, url);
+            return response.body().bytes();
+        }
+    }
+
+    private static void downloadSegments(String url, RemoteFile remoteFile, Path partFile, Path statePath) throws IOException {
+
+        DownloadState state = readState(statePath);
+        if (state == null || !url.equals(state.getUrl()) || state.getSize() != remoteFile.size() || !Objects.equals(state.getETag(), remoteFile.eTag())
+                || !Objects.equals(state.getLastModified(), remoteFile.lastModified()) || !Files.exists(partFile)) {
+            state = new DownloadState();
+            state.setUrl(url);
+            state.setETag(remoteFile.eTag());
+            state.setLastModified(remoteFile.lastModified());
+            state.setSize(remoteFile.size());
+            state.setSegmentSize(Math.max(MIN_SEGMENT_SIZE, (remoteFile.size() + getSegments() - 1) / getSegments()));
+            Files.deleteIfExists(partFile);
+            writeState(statePath, state);
+        } else {
+            log.debug("Resuming download of '" + url + "' with " + state.getDownloadedBytes().values().stream().mapToLong(Long::longValue).sum() + " of " + state.getSize() + " bytes...");
+        }
+
+        long segmentSize = state.getSegmentSize();
+        int segmentCount = (int) ((state.getSize() + segmentSize - 1) / segmentSize);
+
+        AtomicLongArray downloadedBytes = new AtomicLongArray(segmentCount);
+        state.getDownloadedBytes().forEach((segment, bytes) -> {
+            if (segment < segmentCount) downloadedBytes.set(segment, bytes);
+        });
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(getSegments(), segmentCount)), runnable -> {
+            Thread thread = new Thread(runnable, "download-segment-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (FileChannel channel = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            try {
+                List<Future<?>> downloads = new ArrayList<>();
+
+                for (int segment = 0; segment < segmentCount; segment++) {
+                    long start = segment * segmentSize;
+                    long length = Math.min(segmentSize, state.getSize() - start);
+                    if (downloadedBytes.get(segment) >= length) continue;
+
+                    int currentSegment = segment;
+                    downloads.add(executor.submit(() -> {
+                        downloadSegment(url, remoteFile, channel, start, length, downloadedBytes, currentSegment);
+                        return null;
+                    }));
+                }
+
+                for (Future<?> download : downloads) {
+                    while (true) {
+                        try {
+                            download.get(STATE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                            break;
+                        } catch (TimeoutException e) {
+                            saveProgress(channel, statePath, state, downloadedBytes);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while downloading '" + url + "'.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException ioException) throw ioException;
+                throw new IOException("Failed to download '" + url + "'.", e.getCause());
+            } finally {
+                //Whatever was written so far is kept for the next attempt
+                try {
+                    saveProgress(channel, statePath, state, downloadedBytes);
+                } catch (IOException e) {
+                    log.debug("Could not save the progress of the download of '" + url + "'.", e);
+                }
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    private static void downloadSegment(String url, RemoteFile remoteFile, FileChannel channel, long start, long length, AtomicLongArray downloadedBytes, int segment) throws IOException {
+
+        long end = start + length - 1;
+
+        for (int attempt = 1; ; attempt++) {
+
+            long position = start + downloadedBytes.get(segment);
+            if (position > end) return;
+
+            Request.Builder request = new Request.Builder().url(url).header("Range", "bytes=" + position + "-" + end);
+            //The server answers with the whole file instead of the range if the file changed in the meantime
+            if (remoteFile.eTag() != null && !remoteFile.eTag().startsWith("W/")) request.header("If-Range", remoteFile.eTag());
+
+            try (Response response = client.newCall(request.build()).execute()) {
+                checkResponse(response, url);
+                if (response.code() != 206) throw new RemoteFileChangedException(url);
+
+                Matcher matcher = CONTENT_RANGE_PATTERN.matcher(String.valueOf(response.header("Content-Range")));
+                if (!matcher.matches() || Long.parseLong(matcher.group(1)) != position) throw new IOException("'" + url + "' answered with the wrong range " + response.header("Content-Range") + ".");
+
+                try (InputStream inputStream = response.body().byteStream()) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+
+                    while (position <= end) {
+                        int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, end - position + 1));
+                        if (read < 0) throw new IOException("Segment of '" + url + "' ended after " + (position - start) + " of " + length + " bytes.");
+
+                        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                        while (byteBuffer.hasRemaining()) position += channel.write(byteBuffer, position);
+                        downloadedBytes.addAndGet(segment, read);
+                    }
+                }
+                return;
+            } catch (RemoteFileChangedException e) {
+                throw e;
+            } catch (IOException e) {
+                if (attempt >= SEGMENT_ATTEMPTS || Thread.currentThread().isInterrupted()) throw e;
+                log.debug("Segment at " + position + " of '" + url + "' failed. Retrying (attempt " + (attempt + 1) + " of " + SEGMENT_ATTEMPTS + ")...", e);
+            }
+        }
+    }
+
+    private static void downloadStream(String url, Path partFile) throws IOException {
+
+        Request request = new Request.Builder().url(url).build();
+
+        try (Response response = client.newCall(request).execute()) {
+            checkResponse(response, url);
+            try (InputStream inputStream = response.body().byteStream()) {
+                Files.copy(inputStream, partFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static RemoteFile probe(String url) throws IOException {
+
+        //A one byte range tells the size and whether ranges are supported without a separate HEAD request
+        Request request = new Request.Builder().url(url).header("Range", "bytes=0-0").build();
+
+        try (Response response = client.newCall(request).execute()) {
+            //Empty files cannot satisfy a range
+            if (response.code() == 416) return new RemoteFile(-1, false, null, null);
+            checkResponse(response, url);
+
+            String eTag = response.header("ETag");
+            String lastModified = response.header("Last-Modified");
+
+            if (response.code() == 206) {
+                Matcher matcher = CONTENT_RANGE_PATTERN.matcher(String.valueOf(response.header("Content-Range")));
+                if (matcher.matches()) return new RemoteFile(Long.parseLong(matcher.group(3)), true, eTag, lastModified);
+            }
+
+            return new RemoteFile(response.body().contentLength(), false, eTag, lastModified);
+        }
+    }
+
+    private static void saveProgress(FileChannel channel, Path statePath, DownloadState state, AtomicLongArray downloadedBytes) throws IOException {
+
+        synchronized (state) {
+            for (int segment = 0; segment < downloadedBytes.length(); segment++) state.getDownloadedBytes().put(segment, downloadedBytes.get(segment));
+
+            //The counted bytes have to be on disk before the state claims them
+            channel.force(false);
+            writeState(statePath, state);
+        }
+    }
+
+    private static String getSha256(Path file) throws IOException {
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 is not available.", e);
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void discard(Path partFile, Path statePath) throws IOException {
+        Files.deleteIfExists(partFile);
+        Files.deleteIfExists(statePath);
+    }
+
+    private static DownloadState readState(Path statePath) {
+        if (!Files.exists(statePath)) return null;
+        try {
+            return CommonUtils.getObjectReader().readValue(Files.readAllBytes(statePath), DownloadState.class);
+        } catch (IOException e) {
+            log.debug("Could not read download state '" + statePath + "'. Starting a new download.", e);
+            return null;
+        }
+    }
+
+    private static void writeState(Path statePath, DownloadState state) throws IOException {
+        AtomicFileUtils.write(statePath, CommonUtils.getObjectWriter().writeValueAsBytes(state));
+    }
+
+    private static void checkResponse(Response response, String url) throws IOException {
+        if (!response.isSuccessful()) throw new IOException("Could not download '" + url + "'. The server responded with " + response.code() + ".");
+    }
+
+    private static int getSegments() {
+        try {
+            return Math.max(1, Integer.parseInt(ConfigUtils.get("download.segments", "4")));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for 'download.segments'. Downloading in 4 segments.");
+            return 4;
+        }
+    }
+
+    private record RemoteFile(long size, boolean rangeSupported, String eTag, String lastModified) {
+    }
+
+    private static class RemoteFileChangedException extends IOException {
+
+        private RemoteFileChangedException(String url) {
+            super("'" + url + "' changed during the download. Starting over on the next attempt.");
+        }
+    }
+}
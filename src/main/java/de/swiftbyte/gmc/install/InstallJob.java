@@ -0,0 +1,60 @@
+package de.swiftbyte.gmc.install;
+
+import de.swiftbyte.gmc.server.GameServer;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+@Getter
+public class InstallJob {
+
+    private final String appId;
+    private final Path installDir;
+    private final long sequence;
+    private final Instant createdAt = Instant.now();
+    private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+    //Servers waiting for this job
+    private final Set<GameServer> servers = new LinkedHashSet<>();
+
+    @Setter
+    private volatile Priority priority;
+    @Setter
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    @Setter
+    private volatile boolean validate;
+    @Setter
+    private volatile SteamCmdProgress progress;
+    @Setter
+    private volatile int attempt;
+
+    public InstallJob(String appId, Path installDir, Priority priority, boolean validate, long sequence) {
+        this.appId = appId;
+        this.installDir = installDir;
+        this.priority = priority;
+        this.validate = validate;
+        this.sequence = sequence;
+    }
+
+    public void start() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+        attempt = 1;
+    }
+
+    public enum Priority {
+        LOW,
+        NORMAL,
+        HIGH
+    }
+
+    public enum State {
+        QUEUED,
+        RUNNING
+    }
+}
@@ -0,0 +1,17 @@
+package de.swiftbyte.gmc.install;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class InstallProgress {
+
+    private String serverId;
+    private String appId;
+    private String phase;
+    private double percent;
+    private long processedBytes;
+    private long totalBytes;
+    private int attempt;
+}
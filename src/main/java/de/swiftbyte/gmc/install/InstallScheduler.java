@@ -0,0 +1,255 @@
+package de.swiftbyte.gmc.install;
+
+import de.swiftbyte.gmc.server.GameServer;
+import de.swiftbyte.gmc.stomp.StompHandler;
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+/*
+ * All SteamCMD runs of the node go through this queue. Requests for an install directory that is
+ * already queued join the queued job, so an "update all" downloads every app only once.
+ */
+@Slf4j
+public class InstallScheduler {
+
+    private static final Object LOCK = new Object();
+    private static final AtomicLong sequence = new AtomicLong();
+    private static final PriorityQueue<InstallJob> queue = new PriorityQueue<>(Comparator.comparing(InstallJob::getPriority).reversed().thenComparingLong(InstallJob::getSequence));
+    private static final List<InstallJob> runningJobs = new ArrayList<>();
+    private static final ExecutorService workers = createWorkers();
+    private static final ExecutorService integrityRecorder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "integrity-recorder");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final long PROGRESS_INTERVAL_MILLIS = 2000;
+
+    static {
+        ConfigUtils.addChangeListener("install.max-concurrent", value -> {
+            log.debug("Changing install concurrency limit to " + getMaxConcurrentInstalls() + "...");
+            dispatch();
+        });
+    }
+
+    public static CompletableFuture<Boolean> submit(String appId, Path installDir, InstallJob.Priority priority, boolean validate, GameServer server) {
+
+        Path normalizedInstallDir = installDir.toAbsolutePath().normalize();
+        InstallJob job;
+
+        synchronized (LOCK) {
+            //A running job may have fetched an older build already, so only queued jobs are joined
+            InstallJob queuedJob = queue.stream().filter(queued -> queued.getAppId().equals(appId) && queued.getInstallDir().equals(normalizedInstallDir)).findFirst().orElse(null);
+
+            if (queuedJob != null) {
+                log.debug("Install of app " + appId + " into '" + normalizedInstallDir + "' is already queued. Joining it...");
+                queuedJob.getServers().add(server);
+                if (validate) queuedJob.setValidate(true);
+                if (priority.compareTo(queuedJob.getPriority()) > 0) {
+                    queue.remove(queuedJob);
+                    queuedJob.setPriority(priority);
+                    queue.add(queuedJob);
+                }
+                return queuedJob.getResult();
+            }
+
+            job = new InstallJob(appId, normalizedInstallDir, priority, validate, sequence.incrementAndGet());
+            job.getServers().add(server);
+            queue.add(job);
+            log.debug("Queued install of app " + appId + " into '" + normalizedInstallDir + "' with priority " + priority + ".");
+        }
+
+        dispatch();
+        return job.getResult();
+    }
+
+    public static List<InstallJob> getJobs() {
+        synchronized (LOCK) {
+            List<InstallJob> jobs = new ArrayList<>(runningJobs);
+            queue.stream().sorted(queue.comparator()).forEach(jobs::add);
+            return jobs;
+        }
+    }
+
+    public static List<GameServer> getServers(InstallJob job) {
+        synchronized (LOCK) {
+            return List.copyOf(job.getServers());
+        }
+    }
+
+    private static void dispatch() {
+        synchronized (LOCK) {
+            while (runningJobs.size() < getMaxConcurrentInstalls()) {
+                //SteamCMD must never run twice on the same directory
+                InstallJob job = queue.stream().sorted(queue.comparator())
+                        .filter(queued -> runningJobs.stream().noneMatch(running -> running.getInstallDir().equals(queued.getInstallDir())))
+                        .findFirst().orElse(null);
+                if (job == null) return;
+
+                queue.remove(job);
+                runningJobs.add(job);
+                job.start();
+                workers.execute(() -> run(job));
+            }
+        }
+    }
+
+    private static void run(InstallJob job) {
+
+        boolean success = false;
+
+        try {
+            log.debug("Installing app " + job.getAppId() + " into '" + job.getInstallDir() + "' for " + getServers(job).stream().map(GameServer::getFriendlyName).toList() + "...");
+
+            success = install(job);
+        } catch (Exception e) {
+            log.error("An unknown error occurred while installing app " + job.getAppId() + " into '" + job.getInstallDir() + "'.", e);
+        } finally {
+            synchronized (LOCK) {
+                runningJobs.remove(job);
+            }
+            job.getResult().complete(success);
+            dispatch();
+        }
+    }
+
+    private static boolean install(InstallJob job) {
+
+        UpdatePlanner.UpdatePlan plan = UpdatePlanner.plan(job.getAppId(), job.getInstallDir(), job.isValidate());
+        if (plan.action() == UpdatePlanner.UpdatePlan.Action.SKIP) {
+            log.debug("App " + job.getAppId() + " in '" + job.getInstallDir() + "' is already on the latest build " + plan.installedBuildId() + ". Skipping SteamCMD...");
+            //Installs from before the integrity scanner get their first manifest here
+            if (!IntegrityScanner.hasManifest(job.getInstallDir())) recordIntegrity(job);
+            return true;
+        }
+        log.debug("Running " + plan.action() + " of app " + job.getAppId() + " from build " + plan.installedBuildId() + " to " + (plan.targetBuildId() == null ? "the latest build" : plan.targetBuildId()) + "...");
+
+        //Running instances are linked to the files of the master, SteamCMD must not patch them in place
+        boolean master = MasterInstall.isMasterDirectory(job.getAppId(), job.getInstallDir());
+        Path updateDirectory = job.getInstallDir();
+        if (master) {
+            try {
+                updateDirectory = MasterInstall.prepareUpdate(job.getAppId());
+            } catch (IOException e) {
+                log.error("An unknown error occurred while copying the master install '" + job.getInstallDir() + "' for the update.", e);
+                MasterInstall.discardUpdate(job.getAppId());
+                return false;
+            }
+        }
+
+        int attempts = getStallRetries() + 1;
+        long[] lastPublished = {0};
+        String[] lastPhase = {null};
+
+        while (true) {
+            SteamCmd.Result result = SteamCmd.appUpdate(job.getAppId(), updateDirectory, plan.action() == UpdatePlanner.UpdatePlan.Action.VALIDATE, progress -> {
+                job.setProgress(progress);
+
+                //The panel only needs an update every few seconds, phase changes are sent right away
+                long now = System.currentTimeMillis();
+                if (progress.getPhase().equals(lastPhase[0]) && now - lastPublished[0] < PROGRESS_INTERVAL_MILLIS) return;
+                lastPhase[0] = progress.getPhase();
+                lastPublished[0] = now;
+                publishProgress(job, progress);
+            });
+
+            if (result != SteamCmd.Result.STALLED || job.getAttempt() >= attempts) {
+                if (result != SteamCmd.Result.SUCCESS) {
+                    if (master) MasterInstall.discardUpdate(job.getAppId());
+                    return false;
+                }
+                if (master) {
+                    try {
+                        MasterInstall.switchUpdate(job.getAppId());
+                    } catch (IOException e) {
+                        log.error("An unknown error occurred while switching to the updated master install '" + job.getInstallDir() + "'.", e);
+                        MasterInstall.discardUpdate(job.getAppId());
+                        return false;
+                    }
+                }
+                recordIntegrity(job);
+                return true;
+            }
+
+            job.setAttempt(job.getAttempt() + 1);
+            log.warn("Install of app " + job.getAppId() + " stalled. Retrying (attempt " + job.getAttempt() + " of " + attempts + ")...");
+        }
+    }
+
+    //Hashing a whole install takes minutes, the servers waiting for the job do not wait for it
+    private static void recordIntegrity(InstallJob job) {
+        integrityRecorder.execute(() -> {
+            try {
+                //The next SteamCMD run on the master waits, otherwise the manifest would mix two builds. Instances can still be linked meanwhile
+                if (MasterInstall.isMasterDirectory(job.getAppId(), job.getInstallDir())) {
+                    Lock lock = MasterInstall.getLock(job.getAppId()).readLock();
+                    lock.lock();
+                    try {
+                        IntegrityScanner.record(job.getInstallDir());
+                    } finally {
+                        lock.unlock();
+                    }
+                } else {
+                    IntegrityScanner.record(job.getInstallDir());
+                }
+            } catch (IOException e) {
+                log.warn("Could not record the integrity manifest of '" + job.getInstallDir() + "'. The install cannot be verified until the next update.", e);
+            }
+        });
+    }
+
+    private static void publishProgress(InstallJob job, SteamCmdProgress progress) {
+        for (GameServer server : getServers(job)) {
+            InstallProgress installProgress = new InstallProgress();
+            installProgress.setServerId(server.getServerId());
+            installProgress.setAppId(job.getAppId());
+            installProgress.setPhase(progress.getPhase());
+            installProgress.setPercent(progress.getPercent());
+            installProgress.setProcessedBytes(progress.getProcessedBytes());
+            installProgress.setTotalBytes(progress.getTotalBytes());
+            installProgress.setAttempt(job.getAttempt());
+            StompHandler.send("/app/server/install-progress", installProgress);
+        }
+    }
+
+    private static ExecutorService createWorkers() {
+
+        AtomicInteger threadCount = new AtomicInteger();
+
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "install-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static int getMaxConcurrentInstalls() {
+        try {
+            return Math.max(1, Integer.parseInt(ConfigUtils.get("install.max-concurrent", "1")));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for 'install.max-concurrent'. Running one install at a time.");
+            return 1;
+        }
+    }
+
+    private static int getStallRetries() {
+        try {
+            return Math.max(0, Integer.parseInt(ConfigUtils.get("install.stall-retries", "2")));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for 'install.stall-retries'. Retrying stalled installs twice.");
+            return 2;
+        }
+    }
+}
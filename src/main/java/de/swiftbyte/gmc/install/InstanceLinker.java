@@ -0,0 +1,191 @@
+package de.swiftbyte.gmc.install;
+
+import de.swiftbyte.gmc.backup.SaveSnapshot;
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/*
+ * Server instances hard link every game file of the master install. Paths the server writes to are
+ * copied once and never touched again, so saves, configs and mods stay per server. A list of the
+ * linked files is kept in the instance to remove files a later build no longer ships.
+ */
+@Slf4j
+public class InstanceLinker {
+
+    private static final String LINKED_FILES = ".gmc-linked";
+    private static final List<String> SERVER_PATHS = List.of(
+            "ShooterGame/Saved",
+            "ShooterGame/Binaries/Win64/ShooterGame",
+            "start.bat"
+    );
+    private static final List<String> METADATA_PATHS = List.of(
+            ".gmc-build",
+            ".gmc-pinned",
+            LINKED_FILES
+    );
+    //Files the daemon keeps inside an install, they belong to neither the game nor the server
+    private static final List<String> DAEMON_PATHS = List.of(
+            SaveSnapshot.SNAPSHOT_DIRECTORY,
+            IntegrityScanner.MANIFEST_FILE
+    );
+
+    public static void materialise(Path masterDirectory, Path installDir) throws IOException {
+
+        if (!Files.isDirectory(masterDirectory)) throw new IOException("Master install '" + masterDirectory + "' does not exist.");
+
+        Files.createDirectories(installDir);
+
+        Path linkedFilesPath = installDir.resolve(LINKED_FILES);
+        Set<String> previouslyLinked = new LinkedHashSet<>();
+        if (Files.exists(linkedFilesPath)) previouslyLinked.addAll(Files.readAllLines(linkedFilesPath, StandardCharsets.UTF_8));
+
+        List<Path> masterFiles;
+        try (Stream<Path> stream = Files.walk(masterDirectory)) {
+            masterFiles = stream.filter(Files::isRegularFile).toList();
+        }
+
+        List<String> linked = new ArrayList<>();
+        boolean hardLinks = true;
+        int changedFiles = 0;
+
+        for (Path masterFile : masterFiles) {
+
+            String relativePath = masterDirectory.relativize(masterFile).toString().replace('\\', '/');
+
+            //SteamCMD state belongs to the master, the instances never run SteamCMD themselves
+            if (relativePath.startsWith("steamapps/") || isDaemonPath(relativePath)) continue;
+
+            Path instanceFile = installDir.resolve(relativePath);
+
+            if (isWritable(relativePath)) {
+                if (!Files.exists(instanceFile)) {
+                    Files.createDirectories(instanceFile.getParent());
+                    Files.copy(masterFile, instanceFile, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+                continue;
+            }
+
+            linked.add(relativePath);
+
+            if (hasSameContent(masterFile, instanceFile)) {
+                if (!hardLinks || Files.isSameFile(masterFile, instanceFile)) continue;
+                //Full copies of installs from before the master are replaced with links as well
+            }
+
+            if (hardLinks) {
+                try {
+                    link(masterFile, instanceFile);
+                    changedFiles++;
+                    continue;
+                } catch (IOException | UnsupportedOperationException e) {
+                    log.warn("Could not hard link the game files into '" + installDir + "'. Falling back to copies.", e);
+                    hardLinks = false;
+                    if (hasSameContent(masterFile, instanceFile)) continue;
+                }
+            }
+
+            Files.createDirectories(instanceFile.getParent());
+            Files.copy(masterFile, instanceFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            changedFiles++;
+        }
+
+        previouslyLinked.removeAll(linked);
+        for (String removedPath : previouslyLinked) {
+            log.debug("Removing '" + removedPath + "' from '" + installDir + "' because the master install does not ship it anymore.");
+            Files.deleteIfExists(installDir.resolve(removedPath));
+        }
+
+        IntegrityScanner.copyManifest(masterDirectory, installDir, linked);
+        AtomicFileUtils.write(linkedFilesPath, String.join("\n", linked).getBytes(StandardCharsets.UTF_8));
+        log.debug("Materialised '" + installDir + "' from master install. " + changedFiles + " of " + linked.size() + " game files changed.");
+    }
+
+    //Links the game files of an install into an empty directory, the server paths are left out
+    public static void clone(Path installDir, Path target) throws IOException {
+        clone(installDir, target, true);
+    }
+
+    //Copies instead of linking, for a target that is written to while the source is in use
+    public static void copy(Path installDir, Path target) throws IOException {
+        clone(installDir, target, false);
+    }
+
+    private static void clone(Path installDir, Path target, boolean hardLinks) throws IOException {
+
+        List<Path> files = listGameFiles(installDir);
+
+        for (Path file : files) {
+
+            Path targetFile = target.resolve(installDir.relativize(file).toString());
+            Files.createDirectories(targetFile.getParent());
+
+            if (hardLinks) {
+                try {
+                    Files.createLink(targetFile, file);
+                    continue;
+                } catch (IOException | UnsupportedOperationException e) {
+                    log.warn("Could not hard link the game files into '" + target + "'. Falling back to copies.", e);
+                    hardLinks = false;
+                }
+            }
+
+            Files.copy(file, targetFile, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+
+        log.debug("Cloned " + files.size() + " game files of '" + installDir + "' into '" + target + "'.");
+    }
+
+    private static List<Path> listGameFiles(Path directory) throws IOException {
+        try (Stream<Path> stream = Files.walk(directory)) {
+            return stream.filter(Files::isRegularFile).filter(file -> {
+                String relativePath = directory.relativize(file).toString().replace('\\', '/');
+                return !isWritable(relativePath) && !isDaemonPath(relativePath);
+            }).toList();
+        }
+    }
+
+    public static List<String> getServerPaths() {
+        return SERVER_PATHS;
+    }
+
+    static boolean isDaemonPath(String relativePath) {
+        return DAEMON_PATHS.stream().anyMatch(path -> relativePath.equals(path) || relativePath.startsWith(path + "/"));
+    }
+
+    static boolean isWritable(String relativePath) {
+        return Stream.concat(SERVER_PATHS.stream(), METADATA_PATHS.stream()).anyMatch(path -> relativePath.equals(path) || relativePath.startsWith(path + "/"));
+    }
+
+    private static void link(Path masterFile, Path instanceFile) throws IOException {
+
+        Files.createDirectories(instanceFile.getParent());
+
+        //The link is created next to the file first, so a failed link keeps the current file
+        Path linkFile = instanceFile.resolveSibling(instanceFile.getFileName() + ".gmc-link");
+        Files.deleteIfExists(linkFile);
+        Files.createLink(linkFile, masterFile);
+        AtomicFileUtils.move(linkFile, instanceFile);
+    }
+
+    private static boolean hasSameContent(Path masterFile, Path instanceFile) throws IOException {
+
+        if (!Files.exists(instanceFile)) return false;
+
+        BasicFileAttributes masterAttributes = Files.readAttributes(masterFile, BasicFileAttributes.class);
+        BasicFileAttributes instanceAttributes = Files.readAttributes(instanceFile, BasicFileAttributes.class);
+
+        return masterAttributes.size() == instanceAttributes.size() && masterAttributes.lastModifiedTime().equals(instanceAttributes.lastModifiedTime());
+    }
+}
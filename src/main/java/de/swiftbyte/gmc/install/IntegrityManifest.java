@@ -0,0 +1,26 @@
+package de.swiftbyte.gmc.install;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.TreeMap;
+
+@Data
+@NoArgsConstructor
+public class IntegrityManifest {
+
+    private Instant createdAt;
+    private TreeMap<String, FileEntry> files = new TreeMap<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FileEntry {
+
+        private long size;
+        private long lastModified;
+        private String sha256;
+    }
+}
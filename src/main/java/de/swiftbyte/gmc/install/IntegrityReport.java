@@ -0,0 +1,30 @@
+package de.swiftbyte.gmc.install;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class IntegrityReport {
+
+    private boolean manifestFound;
+    private int checkedFiles;
+    private int hashedFiles;
+    private long hashedBytes;
+    private long durationMillis;
+    private List<String> missingFiles = new ArrayList<>();
+    private List<String> corruptFiles = new ArrayList<>();
+
+    public boolean isIntact() {
+        return manifestFound && missingFiles.isEmpty() && corruptFiles.isEmpty();
+    }
+
+    public List<String> getDamagedFiles() {
+        List<String> damagedFiles = new ArrayList<>(missingFiles);
+        damagedFiles.addAll(corruptFiles);
+        return damagedFiles;
+    }
+}
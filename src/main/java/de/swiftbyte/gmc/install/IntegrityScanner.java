@@ -0,0 +1,247 @@
+package de.swiftbyte.gmc.install;
+
+import de.swiftbyte.gmc.backup.BackupArchiver;
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+import de.swiftbyte.gmc.utils.CommonUtils;
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/*
+ * Checks the game files of an install against the hashes recorded after the last successful SteamCMD
+ * run. Files whose size and modification time still match the manifest are trusted, so a scan only
+ * re-hashes what changed since. A full scan hashes every file again.
+ */
+@Slf4j
+public class IntegrityScanner {
+
+    static final String MANIFEST_FILE = ".gmc-integrity.json";
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    //Runs after SteamCMD finished, the files on disk are the reference from then on
+    public static void record(Path directory) throws IOException {
+
+        long startTime = System.currentTimeMillis();
+        IntegrityManifest previousManifest = readManifest(directory);
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(directory)) {
+            files = stream.filter(Files::isRegularFile).filter(file -> isGameFile(toRelativePath(directory, file))).toList();
+        }
+
+        Map<String, IntegrityManifest.FileEntry> entries = new ConcurrentHashMap<>();
+        AtomicInteger hashedFiles = new AtomicInteger();
+
+        runParallel(files, file -> {
+            String relativePath = toRelativePath(directory, file);
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+
+            IntegrityManifest.FileEntry previousEntry = previousManifest == null ? null : previousManifest.getFiles().get(relativePath);
+            if (previousEntry != null && previousEntry.getSize() == attributes.size() && previousEntry.getLastModified() == attributes.lastModifiedTime().toMillis()) {
+                entries.put(relativePath, previousEntry);
+                return;
+            }
+
+            entries.put(relativePath, new IntegrityManifest.FileEntry(attributes.size(), attributes.lastModifiedTime().toMillis(), hash(file)));
+            hashedFiles.incrementAndGet();
+        });
+
+        IntegrityManifest manifest = new IntegrityManifest();
+        manifest.setCreatedAt(Instant.now());
+        manifest.getFiles().putAll(entries);
+        writeManifest(directory, manifest);
+
+        log.debug("Recorded integrity manifest of '" + directory + "' with " + files.size() + " files, " + hashedFiles.get() + " hashed, in " + (System.currentTimeMillis() - startTime) + "ms.");
+    }
+
+    //Instances never run SteamCMD, they get the entries of the master for the files linked into them
+    static void copyManifest(Path masterDirectory, Path installDir, Collection<String> paths) throws IOException {
+
+        IntegrityManifest masterManifest = readManifest(masterDirectory);
+        if (masterManifest == null) {
+            Files.deleteIfExists(installDir.resolve(MANIFEST_FILE));
+            return;
+        }
+
+        IntegrityManifest manifest = new IntegrityManifest();
+        manifest.setCreatedAt(masterManifest.getCreatedAt());
+        for (String path : paths) {
+            IntegrityManifest.FileEntry entry = masterManifest.getFiles().get(path);
+            if (entry != null) manifest.getFiles().put(path, entry);
+        }
+        writeManifest(installDir, manifest);
+    }
+
+    public static boolean hasManifest(Path directory) {
+        return Files.exists(directory.resolve(MANIFEST_FILE));
+    }
+
+    public static IntegrityReport scan(Path directory, boolean full) throws IOException {
+        return scan(directory, full, null);
+    }
+
+    public static IntegrityReport scan(Path directory, boolean full, Collection<String> paths) throws IOException {
+
+        long startTime = System.currentTimeMillis();
+        IntegrityReport report = new IntegrityReport();
+
+        IntegrityManifest manifest = readManifest(directory);
+        if (manifest == null) return report;
+        report.setManifestFound(true);
+
+        List<Map.Entry<String, IntegrityManifest.FileEntry>> entries = manifest.getFiles().entrySet().stream()
+                .filter(entry -> paths == null || paths.contains(entry.getKey())).toList();
+
+        List<String> missingFiles = Collections.synchronizedList(new ArrayList<>());
+        List<String> corruptFiles = Collections.synchronizedList(new ArrayList<>());
+        Map<String, Long> touchedFiles = new ConcurrentHashMap<>();
+        AtomicInteger hashedFiles = new AtomicInteger();
+        AtomicLong hashedBytes = new AtomicLong();
+
+        runParallel(entries, entry -> {
+            Path file = directory.resolve(entry.getKey());
+            IntegrityManifest.FileEntry expected = entry.getValue();
+
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                missingFiles.add(entry.getKey());
+                return;
+            }
+
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            if (attributes.size() != expected.getSize()) {
+                corruptFiles.add(entry.getKey());
+                return;
+            }
+            if (!full && lastModified == expected.getLastModified()) return;
+
+            String sha256 = hash(file);
+            hashedFiles.incrementAndGet();
+            hashedBytes.addAndGet(attributes.size());
+
+            if (!sha256.equals(expected.getSha256())) corruptFiles.add(entry.getKey());
+            else if (lastModified != expected.getLastModified()) touchedFiles.put(entry.getKey(), lastModified);
+        });
+
+        //Files that were only touched are not hashed again on the next scan
+        if (!touchedFiles.isEmpty()) {
+            touchedFiles.forEach((relativePath, lastModified) -> manifest.getFiles().get(relativePath).setLastModified(lastModified));
+            writeManifest(directory, manifest);
+        }
+
+        Collections.sort(missingFiles);
+        Collections.sort(corruptFiles);
+        report.setCheckedFiles(entries.size());
+        report.setHashedFiles(hashedFiles.get());
+        report.setHashedBytes(hashedBytes.get());
+        report.setMissingFiles(new ArrayList<>(missingFiles));
+        report.setCorruptFiles(new ArrayList<>(corruptFiles));
+        report.setDurationMillis(System.currentTimeMillis() - startTime);
+
+        log.debug("Scanned '" + directory + "': " + entries.size() + " files checked, " + hashedFiles.get() + " hashed, " + missingFiles.size() + " missing, " + corruptFiles.size() + " corrupt.");
+        return report;
+    }
+
+    private static <T> void runParallel(Collection<T> items, FileTask<T> task) throws IOException {
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "integrity-scan-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (T item : items) {
+                futures.add(executor.submit(() -> {
+                    task.run(item);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while scanning the game files.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) throw ioException;
+            throw new IOException("Failed to scan the game files.", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static String hash(Path file) throws IOException {
+
+        MessageDigest digest = BackupArchiver.createDigest();
+        ByteBuffer buffer = buffers.get();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.clear();
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    //Server paths change while the server runs, SteamCMD keeps its own state in steamapps and the daemon its snapshots
+    private static boolean isGameFile(String relativePath) {
+        return !relativePath.startsWith("steamapps/") && !relativePath.endsWith(".gmc-link")
+                && !InstanceLinker.isWritable(relativePath) && !InstanceLinker.isDaemonPath(relativePath);
+    }
+
+    private static String toRelativePath(Path directory, Path file) {
+        return directory.relativize(file).toString().replace('\\', '/');
+    }
+
+    private static IntegrityManifest readManifest(Path directory) {
+        Path manifestPath = directory.resolve(MANIFEST_FILE);
+        if (!Files.exists(manifestPath)) return null;
+        try {
+            return CommonUtils.getObjectReader().readValue(Files.readAllBytes(manifestPath), IntegrityManifest.class);
+        } catch (IOException e) {
+            log.warn("Could not read the integrity manifest of '" + directory + "'.", e);
+            return null;
+        }
+    }
+
+    private static void writeManifest(Path directory, IntegrityManifest manifest) throws IOException {
+        AtomicFileUtils.write(directory.resolve(MANIFEST_FILE), CommonUtils.getObjectWriter().writeValueAsBytes(manifest));
+    }
+
+    private static int getThreads() {
+        int defaultThreads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        try {
+            return Math.max(1, Integer.parseInt(ConfigUtils.get("install.verify-threads", String.valueOf(defaultThreads))));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for 'install.verify-threads'. Scanning with " + defaultThreads + " threads.");
+            return defaultThreads;
+        }
+    }
+
+    private interface FileTask<T> {
+        void run(T item) throws IOException;
+    }
+}
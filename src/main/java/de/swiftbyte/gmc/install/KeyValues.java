@@ -0,0 +1,118 @@
+package de.swiftbyte.gmc.install;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Minimal reader for Valve's KeyValues text format, used by app manifests and app_info_print.
+ * Values are either strings or nested maps, keys are matched case-insensitively by get.
+ */
+public class KeyValues {
+
+    private final String text;
+    private int position;
+
+    private KeyValues(String text, int position) {
+        this.text = text;
+        this.position = position;
+    }
+
+    public static Map<String, Object> parse(String text) {
+        return new KeyValues(text, 0).readObject(false);
+    }
+
+    //app_info_print prints log lines around the data, so only the object of the root key is read
+    public static Map<String, Object> parseObject(String text, String rootKey) {
+
+        int start = text.indexOf("\"" + rootKey + "\"");
+        if (start < 0) return null;
+
+        KeyValues keyValues = new KeyValues(text, start);
+        keyValues.readToken();
+        if (!"{".equals(keyValues.readToken())) return null;
+        return keyValues.readObject(true);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static String get(Map<String, Object> values, String... path) {
+
+        Object current = values;
+
+        for (String key : path) {
+            if (!(current instanceof Map<?, ?> map)) return null;
+            current = ((Map<String, Object>) map).entrySet().stream()
+                    .filter(entry -> entry.getKey().equalsIgnoreCase(key))
+                    .map(Map.Entry::getValue)
+                    .findFirst().orElse(null);
+        }
+
+        return current instanceof String value ? value : null;
+    }
+
+    private Map<String, Object> readObject(boolean nested) {
+
+        LinkedHashMap<String, Object> values = new LinkedHashMap<>();
+
+        while (true) {
+            String key = readToken();
+            if (key == null || key.equals("}")) {
+                if (key == null && nested) throw new IllegalArgumentException("Unexpected end of KeyValues data.");
+                return values;
+            }
+
+            String value = readToken();
+            if (value == null) throw new IllegalArgumentException("Missing value for key '" + key + "'.");
+
+            if (value.equals("{")) values.put(key, readObject(true));
+            else values.put(key, value);
+        }
+    }
+
+    private String readToken() {
+
+        while (position < text.length()) {
+            char character = text.charAt(position);
+
+            if (Character.isWhitespace(character)) {
+                position++;
+            } else if (text.startsWith("//", position)) {
+                int lineEnd = text.indexOf('\n', position);
+                position = lineEnd < 0 ? text.length() : lineEnd + 1;
+            } else if (character == '{' || character == '}') {
+                position++;
+                return String.valueOf(character);
+            } else if (character == '"') {
+                return readQuoted();
+            } else {
+                int start = position;
+                while (position < text.length() && !Character.isWhitespace(text.charAt(position)) && "{}\"".indexOf(text.charAt(position)) < 0) position++;
+                return text.substring(start, position);
+            }
+        }
+
+        return null;
+    }
+
+    private String readQuoted() {
+
+        StringBuilder token = new StringBuilder();
+        position++;
+
+        while (position < text.length()) {
+            char character = text.charAt(position++);
+            if (character == '"') return token.toString();
+            if (character == '\\' && position < text.length()) {
+                char escaped = text.charAt(position++);
+                token.append(switch (escaped) {
+                    case 'n' -> '\n';
+                    case 't' -> '\t';
+                    default -> escaped;
+                });
+            } else {
+                token.append(character);
+            }
+        }
+
+        throw new IllegalArgumentException("Unterminated string in KeyValues data.");
+    }
+}
@@ -0,0 +1,193 @@
+package de.swiftbyte.gmc.install;
+
+import de.swiftbyte.gmc.Node;
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * One SteamCMD install per app id that all servers of the node are materialised from. The master
+ * lives inside the server path, so the instances can hard link its files on the same volume.
+ */
+@Slf4j
+public class MasterInstall {
+
+    private static final String MASTER_DIRECTORY = ".master";
+    private static final String BUILD_FILE = ".gmc-build";
+    private static final String PIN_FILE = ".gmc-pinned";
+    private static final String REJECTED_FILE = ".gmc-rejected";
+    private static final String UPDATE_SUFFIX = ".update";
+    private static final String PREVIOUS_SUFFIX = ".previous";
+    private static final Map<String, ReadWriteLock> locks = new ConcurrentHashMap<>();
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigUtils.get("install.shared-game-files", "true"));
+    }
+
+    public static Path getDirectory(String appId) {
+        return Path.of(Node.INSTANCE.getServerPath(), MASTER_DIRECTORY, appId).toAbsolutePath();
+    }
+
+    public static boolean isInstalled(String appId) {
+        return Files.isDirectory(getDirectory(appId).resolve("steamapps"));
+    }
+
+    public static boolean isMasterDirectory(String appId, Path directory) {
+        return isEnabled() && getDirectory(appId).normalize().equals(directory.toAbsolutePath().normalize());
+    }
+
+    //The write lock is only held while an updated build is switched in, everything else only reads the master
+    static ReadWriteLock getLock(String appId) {
+        return locks.computeIfAbsent(appId, id -> new ReentrantReadWriteLock());
+    }
+
+    //SteamCMD updates a copy of the master, the instances stay linked to the current build until the copy is switched in
+    static Path prepareUpdate(String appId) throws IOException {
+
+        Path directory = getDirectory(appId);
+        Path updateDirectory = directory.resolveSibling(appId + UPDATE_SUFFIX);
+        Path previousDirectory = directory.resolveSibling(appId + PREVIOUS_SUFFIX);
+
+        if (!Files.exists(directory) && Files.exists(previousDirectory)) {
+            log.warn("Found an interrupted switch of the master install of app " + appId + ". Restoring the previous build...");
+            AtomicFileUtils.move(previousDirectory, directory);
+        }
+
+        //Files that running servers still had open could not be deleted after the last switch
+        FileUtils.deleteQuietly(previousDirectory.toFile());
+        FileUtils.deleteDirectory(updateDirectory.toFile());
+
+        if (Files.isDirectory(directory)) FileUtils.copyDirectory(directory.toFile(), updateDirectory.toFile());
+        else Files.createDirectories(updateDirectory);
+
+        return updateDirectory;
+    }
+
+    static void switchUpdate(String appId) throws IOException {
+
+        Path directory = getDirectory(appId);
+        Path updateDirectory = directory.resolveSibling(appId + UPDATE_SUFFIX);
+        Path previousDirectory = directory.resolveSibling(appId + PREVIOUS_SUFFIX);
+
+        Lock lock = getLock(appId).writeLock();
+        lock.lock();
+        try {
+            if (Files.exists(directory)) AtomicFileUtils.move(directory, previousDirectory);
+            try {
+                AtomicFileUtils.move(updateDirectory, directory);
+            } catch (IOException e) {
+                if (Files.exists(previousDirectory)) AtomicFileUtils.move(previousDirectory, directory);
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        //On Windows the files of the previous build stay as long as a running server has them open
+        FileUtils.deleteQuietly(previousDirectory.toFile());
+    }
+
+    static void discardUpdate(String appId) {
+        FileUtils.deleteQuietly(getDirectory(appId).resolveSibling(appId + UPDATE_SUFFIX).toFile());
+    }
+
+    public static void materialise(String appId, Path installDir) throws IOException {
+        Lock lock = getLock(appId).readLock();
+        lock.lock();
+        try {
+            link(appId, installDir);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Returns false without touching the instance while the master is switched, a start does not wait for it
+    public static boolean tryMaterialise(String appId, Path installDir) throws IOException {
+        Lock lock = getLock(appId).readLock();
+        if (!lock.tryLock()) return false;
+        try {
+            link(appId, installDir);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void link(String appId, Path installDir) throws IOException {
+        InstanceLinker.materialise(getDirectory(appId), installDir);
+
+        //Instances have no app manifest, the build they were linked from is recorded instead
+        String buildId = UpdatePlanner.getInstalledBuildId(getDirectory(appId), appId);
+        if (buildId != null) AtomicFileUtils.write(installDir.resolve(BUILD_FILE), buildId.getBytes(StandardCharsets.UTF_8));
+        else Files.deleteIfExists(installDir.resolve(BUILD_FILE));
+        Files.deleteIfExists(installDir.resolve(PIN_FILE));
+    }
+
+    //A pinned instance keeps its build on start, until it is updated explicitly
+    public static void pin(Path installDir) throws IOException {
+        Files.createDirectories(installDir);
+        Files.writeString(installDir.resolve(PIN_FILE), "");
+    }
+
+    public static boolean isPinned(Path installDir) {
+        return Files.exists(installDir.resolve(PIN_FILE));
+    }
+
+    //A build that was rolled back is not linked into other instances, until the master has a newer one
+    public static void reject(String buildId) throws IOException {
+        synchronized (locks) {
+            Path rejectedFile = getRejectedFile();
+            Set<String> rejectedBuildIds = new LinkedHashSet<>(readRejectedBuildIds());
+            if (!rejectedBuildIds.add(buildId)) return;
+            Files.createDirectories(rejectedFile.getParent());
+            AtomicFileUtils.write(rejectedFile, String.join("\n", rejectedBuildIds).getBytes(StandardCharsets.UTF_8));
+        }
+        log.warn("Build " + buildId + " of the master install was rolled back. Other servers keep their current build until a newer one is installed.");
+    }
+
+    public static boolean isRejected(String appId) {
+        String buildId = UpdatePlanner.getInstalledBuildId(getDirectory(appId), appId);
+        if (buildId == null) return false;
+        synchronized (locks) {
+            return readRejectedBuildIds().contains(buildId);
+        }
+    }
+
+    private static List<String> readRejectedBuildIds() {
+        try {
+            Path rejectedFile = getRejectedFile();
+            return Files.exists(rejectedFile) ? Files.readAllLines(rejectedFile, StandardCharsets.UTF_8).stream().map(String::trim).filter(line -> !line.isEmpty()).toList() : List.of();
+        } catch (IOException e) {
+            log.warn("Could not read the rejected builds of the master install.", e);
+            return List.of();
+        }
+    }
+
+    private static Path getRejectedFile() {
+        return Path.of(Node.INSTANCE.getServerPath(), MASTER_DIRECTORY, REJECTED_FILE).toAbsolutePath();
+    }
+
+    public static String getInstanceBuildId(Path installDir) {
+        try {
+            Path buildFile = installDir.resolve(BUILD_FILE);
+            return Files.exists(buildFile) ? Files.readString(buildFile, StandardCharsets.UTF_8).trim() : null;
+        } catch (IOException e) {
+            log.warn("Could not read the build of '" + installDir + "'.", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package de.swiftbyte.gmc.install;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.swiftbyte.gmc.Application;
+import de.swiftbyte.gmc.Node;
+import de.swiftbyte.gmc.backup.BackupArchiver;
+import de.swiftbyte.gmc.common.packet.entity.GameServerState;
+import de.swiftbyte.gmc.server.GameServer;
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+import de.swiftbyte.gmc.utils.CommonUtils;
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*
+ * The game server downloads its mods itself. The cache collects every mod version a server of the
+ * node has downloaded as <modId>/<version>/<folder> and hard links it into the mod directory of the
+ * other servers, so a mod is stored once and servers that add it later do not download it again.
+ * Only the packaged content is linked, the server registers a mod in its library.json, which is
+ * written for every server on its own.
+ */
+@Slf4j
+public class ModCache {
+
+    private static final String CACHE_DIRECTORY = ".mods";
+    //83374 is the CurseForge game id of ARK: Survival Ascended
+    private static final String MODS_PATH = "ShooterGame/Binaries/Win64/ShooterGame/Mods/83374";
+    private static final String LIBRARY_FILE = "library.json";
+    private static final String LIBRARY_ENTRY_FILE = "library-entry.json";
+    private static final Set<String> PACKAGE_EXTENSIONS = Set.of("pak", "ucas", "utoc", "sig");
+    private static final long UNUSED_VERSION_MILLIS = TimeUnit.DAYS.toMillis(7);
+    private static final ScheduledExecutorService executor = Application.getExecutor();
+    private static final Object LOCK = new Object();
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigUtils.get("mods.shared-cache", "true"));
+    }
+
+    public static void prefetch(GameServer server) {
+        if (!isEnabled()) return;
+        executor.execute(() -> {
+            try {
+                synchronized (LOCK) {
+                    //Running servers may still be downloading a mod, so only stopped servers are harvested
+                    for (GameServer member : GameServer.getAllServers()) {
+                        if (member.getState() == GameServerState.OFFLINE) harvest(member, false);
+                    }
+                    //A running server has its mods open, outdated versions are replaced on its next start
+                    link(server, server.getState() == GameServerState.OFFLINE);
+                }
+            } catch (IOException e) {
+                log.warn("Could not prefetch the mods of server '" + server.getFriendlyName() + "'.", e);
+            }
+        });
+    }
+
+    //Runs before a start, while the files of the server are not in use
+    public static void share(GameServer server) {
+
+        if (!isEnabled()) return;
+
+        try {
+            synchronized (LOCK) {
+                harvest(server, true);
+                link(server, true);
+                deleteUnusedVersions();
+            }
+        } catch (IOException e) {
+            log.warn("Could not share the mods of server '" + server.getFriendlyName() + "'. The server keeps its own copies.", e);
+        }
+    }
+
+    private static void harvest(GameServer server, boolean replaceCopies) throws IOException {
+
+        Path modsDirectory = getModsDirectory(server);
+        if (!Files.isDirectory(modsDirectory)) return;
+
+        for (Path modDirectory : listDirectories(modsDirectory)) {
+
+            String modId = getModId(modDirectory.getFileName().toString());
+            if (modId == null) continue;
+
+            Path cachedDirectory = getCacheRoot().resolve(modId).resolve(getVersion(modDirectory)).resolve(modDirectory.getFileName().toString());
+
+            if (!Files.isDirectory(cachedDirectory)) {
+                //The cache links the packages of the server, only the other files are copied
+                Path temporaryDirectory = cachedDirectory.resolveSibling(cachedDirectory.getFileName() + ".tmp");
+                FileUtils.deleteDirectory(temporaryDirectory.toFile());
+                cloneMod(modDirectory, temporaryDirectory);
+                AtomicFileUtils.move(temporaryDirectory, cachedDirectory);
+                log.debug("Cached mod " + modId + " from server '" + server.getFriendlyName() + "'.");
+            } else if (replaceCopies) {
+                relink(cachedDirectory, modDirectory);
+            }
+
+            //Without its library entry a linked mod is not known to the server and would be downloaded again
+            Path libraryEntryFile = cachedDirectory.resolveSibling(LIBRARY_ENTRY_FILE);
+            if (!Files.exists(libraryEntryFile)) {
+                JsonNode libraryEntry = getLibraryEntry(readLibrary(modsDirectory), modId);
+                if (libraryEntry != null) AtomicFileUtils.write(libraryEntryFile, CommonUtils.getObjectWriter().writeValueAsBytes(libraryEntry));
+            }
+        }
+    }
+
+    private static void link(GameServer server, boolean replaceOutdated) throws IOException {
+
+        String modIds = server.getSettings() == null ? null : server.getSettings().getModIds();
+        if (CommonUtils.isNullOrEmpty(modIds)) return;
+
+        Path modsDirectory = getModsDirectory(server);
+        Map<String, List<Path>> installedMods = new HashMap<>();
+        if (Files.isDirectory(modsDirectory)) {
+            for (Path directory : listDirectories(modsDirectory)) {
+                String modId = getModId(directory.getFileName().toString());
+                if (modId != null) installedMods.computeIfAbsent(modId, id -> new ArrayList<>()).add(directory);
+            }
+        }
+
+        for (String modId : modIds.split(",")) {
+            modId = modId.trim();
+            if (modId.isEmpty()) continue;
+
+            Path cachedDirectory = getLatestVersion(modId);
+            List<Path> installedDirectories = installedMods.getOrDefault(modId, List.of());
+
+            if (cachedDirectory == null) {
+                if (installedDirectories.isEmpty()) log.debug("Mod " + modId + " of server '" + server.getFriendlyName() + "' is not cached yet. The server will download it.");
+                continue;
+            }
+
+            if (!installedDirectories.isEmpty()) {
+                //Versions without a file id can not be compared, the server keeps them and updates them itself
+                Long cachedFileId = getFileId(cachedDirectory.getParent());
+                Long installedFileId = installedDirectories.stream().map(ModCache::getInstalledFileId).filter(Objects::nonNull).max(Comparator.naturalOrder()).orElse(null);
+                if (!replaceOutdated || cachedFileId == null || installedFileId == null || cachedFileId <= installedFileId) continue;
+
+                log.debug("Replacing file " + installedFileId + " of mod " + modId + " in server '" + server.getFriendlyName() + "' with the cached file " + cachedFileId + "...");
+                for (Path installedDirectory : installedDirectories) FileUtils.deleteDirectory(installedDirectory.toFile());
+            }
+
+            cloneMod(cachedDirectory, modsDirectory.resolve(cachedDirectory.getFileName().toString()));
+            addLibraryEntry(modsDirectory, modId, cachedDirectory.resolveSibling(LIBRARY_ENTRY_FILE));
+            log.debug("Linked cached mod " + modId + " into server '" + server.getFriendlyName() + "'.");
+        }
+    }
+
+    //Packages are only ever replaced as a whole, every other file may be written by the server and gets its own copy
+    private static void cloneMod(Path source, Path target) throws IOException {
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(source)) {
+            files = stream.filter(Files::isRegularFile).toList();
+        }
+
+        boolean hardLinks = true;
+
+        for (Path file : files) {
+
+            Path targetFile = target.resolve(source.relativize(file).toString());
+            Files.createDirectories(targetFile.getParent());
+
+            if (hardLinks && isPackage(file)) {
+                try {
+                    Files.createLink(targetFile, file);
+                    continue;
+                } catch (IOException | UnsupportedOperationException e) {
+                    log.warn("Could not hard link the mod files into '" + target + "'. Falling back to copies.", e);
+                    hardLinks = false;
+                }
+            }
+
+            Files.copy(file, targetFile, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+    private static void addLibraryEntry(Path modsDirectory, String modId, Path libraryEntryFile) throws IOException {
+
+        if (!Files.exists(libraryEntryFile)) {
+            log.debug("No library entry of mod " + modId + " is cached. The server will register the mod itself.");
+            return;
+        }
+
+        JsonNode libraryEntry = CommonUtils.getObjectReader().readTree(Files.readAllBytes(libraryEntryFile));
+        ObjectNode library = readLibrary(modsDirectory);
+        if (library == null) library = JsonNodeFactory.instance.objectNode();
+
+        ArrayNode installedMods = library.withArray("installedMods");
+        for (int i = installedMods.size() - 1; i >= 0; i--) {
+            if (modId.equals(getLibraryModId(installedMods.get(i)))) installedMods.remove(i);
+        }
+        installedMods.add(libraryEntry);
+
+        AtomicFileUtils.write(modsDirectory.resolve(LIBRARY_FILE), CommonUtils.getPrettyObjectWriter().writeValueAsBytes(library));
+    }
+
+    private static ObjectNode readLibrary(Path modsDirectory) {
+
+        Path libraryFile = modsDirectory.resolve(LIBRARY_FILE);
+        if (!Files.exists(libraryFile)) return null;
+
+        try {
+            return CommonUtils.getObjectReader().readTree(Files.readAllBytes(libraryFile)) instanceof ObjectNode library ? library : null;
+        } catch (IOException e) {
+            log.warn("Could not read the mod library '" + libraryFile + "'.", e);
+            return null;
+        }
+    }
+
+    private static JsonNode getLibraryEntry(ObjectNode library, String modId) {
+        if (library == null) return null;
+        for (JsonNode entry : library.path("installedMods")) {
+            if (modId.equals(getLibraryModId(entry))) return entry;
+        }
+        return null;
+    }
+
+    private static String getLibraryModId(JsonNode entry) {
+        JsonNode modId = getField(entry.path("details"), "id");
+        if (modId == null) modId = getField(entry.path("installedFile"), "modId");
+        return modId == null ? null : modId.asText();
+    }
+
+    //The casing of the keys in library.json is not consistent
+    private static JsonNode getField(JsonNode node, String name) {
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (field.getKey().equalsIgnoreCase(name)) return field.getValue();
+        }
+        return null;
+    }
+
+    private static boolean isPackage(Path file) {
+        String fileName = file.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        return extension >= 0 && PACKAGE_EXTENSIONS.contains(fileName.substring(extension + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private static void relink(Path cachedDirectory, Path modDirectory) throws IOException {
+
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(cachedDirectory)) {
+            files = stream.filter(Files::isRegularFile).toList();
+        }
+
+        for (Path cachedFile : files) {
+            if (!isPackage(cachedFile)) continue;
+
+            Path modFile = modDirectory.resolve(cachedDirectory.relativize(cachedFile).toString());
+            if (!Files.exists(modFile) || Files.isSameFile(cachedFile, modFile)) continue;
+            if (Files.size(modFile) != Files.size(cachedFile) || !Files.getLastModifiedTime(modFile).equals(Files.getLastModifiedTime(cachedFile))) continue;
+
+            Path linkFile = modFile.resolveSibling(modFile.getFileName() + ".gmc-link");
+            Files.deleteIfExists(linkFile);
+            Files.createLink(linkFile, cachedFile);
+            AtomicFileUtils.move(linkFile, modFile);
+        }
+    }
+
+    private static void deleteUnusedVersions() throws IOException {
+
+        Path cacheRoot = getCacheRoot();
+        if (!Files.isDirectory(cacheRoot)) return;
+
+        Set<String> usedFolders = new HashSet<>();
+        for (GameServer server : GameServer.getAllServers()) {
+            Path modsDirectory = getModsDirectory(server);
+            if (Files.isDirectory(modsDirectory)) listDirectories(modsDirectory).forEach(directory -> usedFolders.add(directory.getFileName().toString()));
+        }
+
+        long unusedBefore = System.currentTimeMillis() - UNUSED_VERSION_MILLIS;
+
+        for (Path modDirectory : listDirectories(cacheRoot)) {
+            for (Path versionDirectory : listDirectories(modDirectory)) {
+                boolean used = listDirectories(versionDirectory).stream().anyMatch(folder -> usedFolders.contains(folder.getFileName().toString()));
+                if (used || versionDirectory.toFile().lastModified() > unusedBefore) continue;
+
+                log.debug("Deleting unused cached mod version '" + versionDirectory + "'...");
+                FileUtils.deleteDirectory(versionDirectory.toFile());
+            }
+        }
+    }
+
+    private static Path getLatestVersion(String modId) throws IOException {
+
+        Path modDirectory = getCacheRoot().resolve(modId);
+        if (!Files.isDirectory(modDirectory)) return null;
+
+        //File ids grow with every upload, versions without one only win if no file id is cached
+        return listDirectories(modDirectory).stream()
+                .filter(versionDirectory -> !versionDirectory.getFileName().toString().endsWith(".tmp"))
+                .max(Comparator.comparing(ModCache::getFileId, Comparator.nullsFirst(Comparator.naturalOrder()))
+                        .thenComparingLong(versionDirectory -> versionDirectory.toFile().lastModified()))
+                .flatMap(versionDirectory -> {
+                    try {
+                        return listDirectories(versionDirectory).stream().findFirst();
+                    } catch (IOException e) {
+                        return Optional.empty();
+                    }
+                })
+                .orElse(null);
+    }
+
+    //Mod folders are named after the mod id, optionally followed by the id of the downloaded file
+    private static String getModId(String folderName) {
+        int separator = folderName.indexOf('_');
+        String modId = separator < 0 ? folderName : folderName.substring(0, separator);
+        return !modId.isEmpty() && modId.chars().allMatch(Character::isDigit) ? modId : null;
+    }
+
+    private static Long getFileId(Path versionDirectory) {
+        return parseFileId(versionDirectory.getFileName().toString());
+    }
+
+    private static Long getInstalledFileId(Path modDirectory) {
+        String folderName = modDirectory.getFileName().toString();
+        int separator = folderName.indexOf('_');
+        return separator < 0 ? null : parseFileId(folderName.substring(separator + 1));
+    }
+
+    private static Long parseFileId(String version) {
+        if (version.isEmpty() || !version.chars().allMatch(Character::isDigit)) return null;
+        try {
+            return Long.parseLong(version);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String getVersion(Path modDirectory) throws IOException {
+        String folderName = modDirectory.getFileName().toString();
+        int separator = folderName.indexOf('_');
+        if (separator >= 0) return folderName.substring(separator + 1);
+
+        //Folders without a file id are told apart by their content
+        return UUID.nameUUIDFromBytes(BackupArchiver.getFingerprint(modDirectory, file -> true).getBytes(StandardCharsets.UTF_8)).toString().substring(0, 8);
+    }
+
+    private static List<Path> listDirectories(Path directory) throws IOException {
+        try (Stream<Path> stream = Files.list(directory)) {
+            return stream.filter(Files::isDirectory).toList();
+        }
+    }
+
+    private static Path getModsDirectory(GameServer server) {
+        return server.getInstallDir().resolve(MODS_PATH);
+    }
+
+    private static Path getCacheRoot() {
+        return Path.of(Node.INSTANCE.getServerPath(), CACHE_DIRECTORY).toAbsolutePath();
+    }
+}
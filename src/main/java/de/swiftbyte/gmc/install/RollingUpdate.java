@@ -0,0 +1,161 @@
+package de.swiftbyte.gmc.install;
+
+import de.swiftbyte.gmc.common.packet.entity.GameServerState;
+import de.swiftbyte.gmc.server.GameServer;
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Updates all servers of the node without taking them down at once. Every new build is prepared
+ * before the first server stops, then the servers are swapped in batches. A batch has to come
+ * online before the next one starts, servers that fail are rolled back by the staged update.
+ */
+@Slf4j
+public class RollingUpdate {
+
+    private static volatile RollingUpdateJob currentJob;
+
+    public static synchronized RollingUpdateJob start(boolean validate) {
+
+        if (currentJob != null && currentJob.getFinishedAt() == null) return null;
+
+        RollingUpdateJob job = new RollingUpdateJob(validate, getBatchSize());
+        currentJob = job;
+
+        Thread thread = new Thread(() -> run(job), "rolling-update");
+        thread.setDaemon(true);
+        thread.start();
+
+        return job;
+    }
+
+    public static RollingUpdateJob getCurrentJob() {
+        return currentJob;
+    }
+
+    private static void run(RollingUpdateJob job) {
+
+        try {
+            List<GameServer> servers = GameServer.getAllServers().stream()
+                    .filter(server -> server.getState() != GameServerState.CREATING && server.getState() != GameServerState.DELETING)
+                    .filter(server -> job.isValidate() || server.isUpdateAvailable())
+                    .toList();
+            job.setTotalServers(servers.size());
+
+            if (servers.isEmpty()) {
+                log.info("All servers are already on the latest build.");
+                job.setState(RollingUpdateJob.State.COMPLETED);
+                return;
+            }
+
+            //With the master install the first server downloads the build, all others are only linked
+            log.info("Preparing the update of " + servers.size() + " servers...");
+            LinkedHashMap<GameServer, Path> preparedServers = new LinkedHashMap<>();
+            for (GameServer server : servers) {
+                //The master is validated once, the other servers are only linked from it
+                boolean validate = job.isValidate() && (!MasterInstall.isEnabled() || preparedServers.isEmpty());
+                Path stagingDirectory = server.prepareBuildUpdate(InstallJob.Priority.LOW, validate);
+                if (stagingDirectory == null) {
+                    log.error("Could not prepare the update of server '" + server.getFriendlyName() + "'. Aborting the rolling update...");
+                    job.addResult(server.getFriendlyName(), false);
+                    discard(preparedServers);
+                    pin(servers);
+                    job.setState(RollingUpdateJob.State.ABORTED);
+                    return;
+                }
+                preparedServers.put(server, stagingDirectory);
+            }
+
+            job.setState(RollingUpdateJob.State.UPDATING);
+            List<Map.Entry<GameServer, Path>> pending = new ArrayList<>(preparedServers.entrySet());
+
+            for (int i = 0; i < pending.size(); i += job.getBatchSize()) {
+
+                List<Map.Entry<GameServer, Path>> batch = pending.subList(i, Math.min(pending.size(), i + job.getBatchSize()));
+                job.setCurrentBatch(batch.stream().map(entry -> entry.getKey().getFriendlyName()).toList());
+                log.info("Updating " + String.join(", ", job.getCurrentBatch()) + "...");
+
+                //Each server of the batch blocks until it is online or rolled back
+                ExecutorService batchExecutor = Executors.newFixedThreadPool(batch.size());
+                List<CompletableFuture<Boolean>> results = batch.stream()
+                        .map(entry -> CompletableFuture.supplyAsync(() -> {
+                            GameServer server = entry.getKey();
+                            return StagedUpdate.apply(server, entry.getValue(), server.getState() != GameServerState.OFFLINE);
+                        }, batchExecutor))
+                        .toList();
+                batchExecutor.shutdown();
+
+                boolean batchFailed = false;
+                for (int j = 0; j < batch.size(); j++) {
+                    boolean success = results.get(j).join();
+                    job.addResult(batch.get(j).getKey().getFriendlyName(), success);
+                    if (!success) batchFailed = true;
+                }
+
+                if (batchFailed && isAbortOnFailure()) {
+                    log.error("Servers of the rolling update were rolled back. Aborting the remaining updates...");
+                    LinkedHashMap<GameServer, Path> remaining = new LinkedHashMap<>();
+                    pending.subList(Math.min(pending.size(), i + job.getBatchSize()), pending.size()).forEach(entry -> remaining.put(entry.getKey(), entry.getValue()));
+                    discard(remaining);
+                    pin(remaining.keySet());
+                    job.setState(RollingUpdateJob.State.ABORTED);
+                    return;
+                }
+            }
+
+            job.setState(RollingUpdateJob.State.COMPLETED);
+            log.info(job.getSummary());
+        } catch (Exception e) {
+            log.error("An unknown error occurred during the rolling update.", e);
+            job.setState(RollingUpdateJob.State.ABORTED);
+        } finally {
+            job.setCurrentBatch(List.of());
+            job.setFinishedAt(Instant.now());
+        }
+    }
+
+    private static void discard(Map<GameServer, Path> preparedServers) {
+        preparedServers.values().forEach(stagingDirectory -> FileUtils.deleteQuietly(stagingDirectory.toFile()));
+    }
+
+    //Servers that were not updated keep their build, otherwise their next start links the new build of the master in
+    private static void pin(Collection<GameServer> servers) {
+
+        if (!MasterInstall.isEnabled()) return;
+
+        for (GameServer server : servers) {
+            try {
+                MasterInstall.pin(server.getInstallDir());
+                log.info("Server '" + server.getFriendlyName() + "' keeps its current build until it is updated explicitly.");
+            } catch (IOException e) {
+                log.warn("Could not pin the build of server '" + server.getFriendlyName() + "'. It will use the new build on its next start.", e);
+            }
+        }
+    }
+
+    private static int getBatchSize() {
+        try {
+            return Math.max(1, Integer.parseInt(ConfigUtils.get("update.batch-size", "1")));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for 'update.batch-size'. Updating one server at a time.");
+            return 1;
+        }
+    }
+
+    private static boolean isAbortOnFailure() {
+        return Boolean.parseBoolean(ConfigUtils.get("update.abort-on-failure", "true"));
+    }
+}
@@ -0,0 +1,59 @@
+package de.swiftbyte.gmc.install;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+public class RollingUpdateJob {
+
+    private final Instant startedAt = Instant.now();
+    private final boolean validate;
+    private final int batchSize;
+
+    @Setter
+    private volatile State state = State.PREPARING;
+    @Setter
+    private volatile int totalServers;
+    @Setter
+    private volatile Instant finishedAt;
+
+    //Friendly names of the servers per outcome
+    private final List<String> updatedServers = new ArrayList<>();
+    private final List<String> failedServers = new ArrayList<>();
+    private final List<String> currentBatch = new ArrayList<>();
+
+    public RollingUpdateJob(boolean validate, int batchSize) {
+        this.validate = validate;
+        this.batchSize = batchSize;
+    }
+
+    public synchronized void setCurrentBatch(List<String> servers) {
+        currentBatch.clear();
+        currentBatch.addAll(servers);
+    }
+
+    public synchronized void addResult(String server, boolean success) {
+        if (success) updatedServers.add(server);
+        else failedServers.add(server);
+    }
+
+    public synchronized String getSummary() {
+        StringBuilder summary = new StringBuilder("Rolling update ").append(state).append(" - ")
+                .append(updatedServers.size() + failedServers.size()).append(" of ").append(totalServers).append(" servers done");
+        if (!currentBatch.isEmpty() && state == State.UPDATING) summary.append(" / Updating: ").append(String.join(", ", currentBatch));
+        if (!updatedServers.isEmpty()) summary.append(" / Updated: ").append(String.join(", ", updatedServers));
+        if (!failedServers.isEmpty()) summary.append(" / Failed: ").append(String.join(", ", failedServers));
+        return summary.toString();
+    }
+
+    public enum State {
+        PREPARING,
+        UPDATING,
+        COMPLETED,
+        ABORTED
+    }
+}
@@ -0,0 +1,199 @@
+package de.swiftbyte.gmc.install;
+
+import de.swiftbyte.gmc.common.packet.entity.GameServerState;
+import de.swiftbyte.gmc.server.GameServer;
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * The new build is prepared next to the install while the server keeps running. The server is only
+ * stopped to swap the directories and carry its saves, configs and mods over. If the new build does
+ * not come online, the previous install is swapped back.
+ */
+@Slf4j
+public class StagedUpdate {
+
+    private static final String STAGING_SUFFIX = ".update-staging";
+    private static final String PREVIOUS_SUFFIX = ".update-previous";
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(ConfigUtils.get("update.staged", "true"));
+    }
+
+    public static Path prepare(GameServer server, String appId, InstallJob.Priority priority, boolean validate) {
+
+        Path installDir = server.getInstallDir().toAbsolutePath().normalize();
+        Path stagingDirectory = getSibling(installDir, STAGING_SUFFIX);
+
+        try {
+            FileUtils.deleteDirectory(stagingDirectory.toFile());
+
+            if (MasterInstall.isEnabled()) {
+                if (!InstallScheduler.submit(appId, MasterInstall.getDirectory(appId), priority, validate, server).join()) return null;
+                if (MasterInstall.isRejected(appId)) {
+                    log.error("Not updating server '" + server.getFriendlyName() + "' because the build of the master install was rolled back on another server.");
+                    return null;
+                }
+                MasterInstall.materialise(appId, stagingDirectory);
+            } else {
+                //SteamCMD may patch files in place, so the staging directory must not share them with the running install
+                InstanceLinker.copy(installDir, stagingDirectory);
+                if (!InstallScheduler.submit(appId, stagingDirectory, priority, validate, server).join()) {
+                    FileUtils.deleteQuietly(stagingDirectory.toFile());
+                    return null;
+                }
+            }
+        } catch (IOException e) {
+            log.error("An unknown error occurred while preparing the update of server '" + server.getFriendlyName() + "'.", e);
+            FileUtils.deleteQuietly(stagingDirectory.toFile());
+            return null;
+        }
+
+        log.debug("Prepared the update of server '" + server.getFriendlyName() + "' in '" + stagingDirectory + "'.");
+        return stagingDirectory;
+    }
+
+    public static boolean apply(GameServer server, Path stagingDirectory, boolean start) {
+
+        Path installDir = server.getInstallDir().toAbsolutePath().normalize();
+        Path previousDirectory = getSibling(installDir, PREVIOUS_SUFFIX);
+        String stagedBuildId = MasterInstall.isEnabled() ? MasterInstall.getInstanceBuildId(stagingDirectory) : null;
+
+        try {
+            FileUtils.deleteDirectory(previousDirectory.toFile());
+        } catch (IOException e) {
+            log.error("An unknown error occurred while updating server '" + server.getFriendlyName() + "'.", e);
+            return false;
+        }
+
+        if (!server.stop(false).complete()) {
+            log.error("Could not update server '" + server.getFriendlyName() + "' because it could not be stopped!");
+            return false;
+        }
+
+        try {
+            swap(installDir, stagingDirectory, previousDirectory);
+        } catch (IOException e) {
+            log.error("An unknown error occurred while swapping in the update of server '" + server.getFriendlyName() + "'.", e);
+            if (start) server.start().complete();
+            return false;
+        }
+
+        if (!start) {
+            FileUtils.deleteQuietly(previousDirectory.toFile());
+            log.debug("Updated server '" + server.getFriendlyName() + "'.");
+            return true;
+        }
+
+        server.start().complete();
+
+        if (waitForOnline(server)) {
+            FileUtils.deleteQuietly(previousDirectory.toFile());
+            log.debug("Server '" + server.getFriendlyName() + "' is online with the new build.");
+            return true;
+        }
+
+        log.warn("Server '" + server.getFriendlyName() + "' did not come online with the new build. Rolling back...");
+        server.stop(false).complete();
+
+        try {
+            swapBack(installDir, stagingDirectory, previousDirectory);
+            //Keeps the start of this and every other server from linking the new build of the master install in
+            if (MasterInstall.isEnabled()) {
+                MasterInstall.pin(installDir);
+                if (stagedBuildId != null) MasterInstall.reject(stagedBuildId);
+            }
+            FileUtils.deleteQuietly(stagingDirectory.toFile());
+        } catch (IOException e) {
+            log.error("An unknown error occurred while rolling back the update of server '" + server.getFriendlyName() + "'. The previous build is kept in '" + previousDirectory + "'.", e);
+            return false;
+        }
+
+        server.start().complete();
+        return false;
+    }
+
+    private static void swap(Path installDir, Path stagingDirectory, Path previousDirectory) throws IOException {
+
+        log.debug("Swapping '" + stagingDirectory + "' into '" + installDir + "'...");
+        AtomicFileUtils.move(installDir, previousDirectory);
+
+        try {
+            AtomicFileUtils.move(stagingDirectory, installDir);
+            moveServerPaths(previousDirectory, installDir);
+        } catch (IOException e) {
+            swapBack(installDir, stagingDirectory, previousDirectory);
+            throw e;
+        }
+    }
+
+    private static void swapBack(Path installDir, Path stagingDirectory, Path previousDirectory) throws IOException {
+
+        log.debug("Swapping '" + previousDirectory + "' back into '" + installDir + "'...");
+
+        if (Files.exists(installDir)) {
+            moveServerPaths(installDir, previousDirectory);
+            FileUtils.deleteDirectory(stagingDirectory.toFile());
+            AtomicFileUtils.move(installDir, stagingDirectory);
+        }
+
+        AtomicFileUtils.move(previousDirectory, installDir);
+    }
+
+    private static void moveServerPaths(Path source, Path target) throws IOException {
+        for (String serverPath : InstanceLinker.getServerPaths()) {
+
+            Path sourcePath = source.resolve(serverPath);
+            if (!Files.exists(sourcePath)) continue;
+
+            Path targetPath = target.resolve(serverPath);
+            FileUtils.deleteQuietly(targetPath.toFile());
+            Files.createDirectories(targetPath.getParent());
+            AtomicFileUtils.move(sourcePath, targetPath);
+        }
+    }
+
+    private static boolean waitForOnline(GameServer server) {
+
+        long deadline = System.currentTimeMillis() + getOnlineTimeoutMillis();
+
+        synchronized (server) {
+            while (server.getState() != GameServerState.ONLINE) {
+
+                //The server gives up after repeated crashes
+                if (server.getState() == GameServerState.OFFLINE) return false;
+
+                long remainingMillis = deadline - System.currentTimeMillis();
+                if (remainingMillis <= 0) return false;
+
+                try {
+                    server.wait(Math.min(remainingMillis, 1000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static Path getSibling(Path installDir, String suffix) {
+        return installDir.resolveSibling(installDir.getFileName() + suffix);
+    }
+
+    private static long getOnlineTimeoutMillis() {
+        try {
+            return TimeUnit.MINUTES.toMillis(Math.max(1, Long.parseLong(ConfigUtils.get("update.online-timeout-minutes", "10"))));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for 'update.online-timeout-minutes'. Waiting up to 10 minutes.");
+            return TimeUnit.MINUTES.toMillis(10);
+        }
+    }
+}
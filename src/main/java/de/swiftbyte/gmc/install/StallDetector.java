@@ -0,0 +1,30 @@
+package de.swiftbyte.gmc.install;
+
+/*
+ * Decides when SteamCMD stopped making progress. SteamCMD repeats its last progress line while a
+ * download hangs, so only output lines and progress lines with changed values count as activity.
+ */
+class StallDetector {
+
+    private final long timeoutMillis;
+    private long lastActivity;
+    private SteamCmdProgress lastProgress;
+
+    StallDetector(long timeoutMillis, long now) {
+        this.timeoutMillis = timeoutMillis;
+        this.lastActivity = now;
+    }
+
+    synchronized void onProgress(SteamCmdProgress progress, long now) {
+        if (!progress.equals(lastProgress)) lastActivity = now;
+        lastProgress = progress;
+    }
+
+    synchronized void onLine(long now) {
+        lastActivity = now;
+    }
+
+    synchronized boolean isStalled(long now) {
+        return now - lastActivity >= timeoutMillis;
+    }
+}
@@ -0,0 +1,156 @@
+package de.swiftbyte.gmc.install;
+
+import de.swiftbyte.gmc.Application;
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import de.swiftbyte.gmc.utils.NodeUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+@Slf4j
+public class SteamCmd {
+
+    private static final ScheduledExecutorService watchdogExecutor = Application.getExecutor();
+    private static final long WATCHDOG_INTERVAL_SECONDS = 5;
+
+    private static final Object APP_INFO_LOCK = new Object();
+    private static final long APP_INFO_TIMEOUT_SECONDS = 120;
+
+    public static Result appUpdate(String appId, Path installDir, boolean validate, Consumer<SteamCmdProgress> progressListener) {
+
+        //SteamCMD is run directly instead of through "start", otherwise its output would go to a console window
+        List<String> command = new ArrayList<>(List.of(
+                NodeUtils.getSteamCmdPath().toAbsolutePath().toString(),
+                "+force_install_dir", installDir.toAbsolutePath().toString(),
+                "+login", "anonymous",
+                "+app_update", appId
+        ));
+        if (validate) command.add("validate");
+        command.add("+quit");
+        log.debug("Starting SteamCMD with command " + String.join(" ", command));
+
+        Process process;
+        try {
+            Files.createDirectories(installDir);
+            process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        } catch (IOException e) {
+            log.error("An unknown exception occurred while installing app " + appId + " into '" + installDir + "'.", e);
+            return Result.FAILED;
+        }
+
+        long stallTimeoutMillis = getStallTimeoutMillis();
+        StallDetector stallDetector = new StallDetector(stallTimeoutMillis, System.currentTimeMillis());
+        AtomicBoolean stalled = new AtomicBoolean();
+
+        SteamCmdOutputParser parser = new SteamCmdOutputParser(progress -> {
+            stallDetector.onProgress(progress, System.currentTimeMillis());
+            if (progressListener != null) progressListener.accept(progress);
+        }, line -> stallDetector.onLine(System.currentTimeMillis()));
+
+        ScheduledFuture<?> watchdog = watchdogExecutor.scheduleWithFixedDelay(() -> {
+            if (!stallDetector.isStalled(System.currentTimeMillis())) return;
+            log.warn("SteamCMD made no progress installing app " + appId + " for " + TimeUnit.MILLISECONDS.toSeconds(stallTimeoutMillis) + " seconds. Stopping it...");
+            stalled.set(true);
+            process.descendants().forEach(ProcessHandle::destroyForcibly);
+            process.destroyForcibly();
+        }, WATCHDOG_INTERVAL_SECONDS, WATCHDOG_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        int exitCode;
+        try (InputStream inputStream = process.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                parser.accept(buffer, read);
+            }
+            parser.finish();
+            exitCode = process.waitFor();
+        } catch (IOException e) {
+            if (stalled.get()) return Result.STALLED;
+            log.error("An unknown exception occurred while installing app " + appId + " into '" + installDir + "'.", e);
+            process.destroyForcibly();
+            return Result.FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted while installing app " + appId + " into '" + installDir + "'.", e);
+            process.destroyForcibly();
+            return Result.FAILED;
+        } finally {
+            watchdog.cancel(false);
+        }
+
+        if (stalled.get()) return Result.STALLED;
+
+        if (parser.isSuccess() || exitCode == 0 || exitCode == 7) return Result.SUCCESS;
+
+        log.error("SteamCMD returned error code " + exitCode + " while installing app " + appId + " into '" + installDir + "'." + (parser.getLastError() == null ? "" : " Last error: " + parser.getLastError()));
+        return Result.FAILED;
+    }
+
+    public static String appInfo(String appId) {
+
+        //app_info_update refreshes the cached app info, otherwise SteamCMD may report an old build
+        List<String> command = List.of(
+                NodeUtils.getSteamCmdPath().toAbsolutePath().toString(),
+                "+login", "anonymous",
+                "+app_info_update", "1",
+                "+app_info_print", appId,
+                "+quit"
+        );
+
+        synchronized (APP_INFO_LOCK) {
+            log.debug("Requesting app info with command " + String.join(" ", command));
+
+            try {
+                Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+                ScheduledFuture<?> timeout = watchdogExecutor.schedule(() -> {
+                    log.warn("SteamCMD did not print the app info of app " + appId + " within " + APP_INFO_TIMEOUT_SECONDS + " seconds. Stopping it...");
+                    process.descendants().forEach(ProcessHandle::destroyForcibly);
+                    process.destroyForcibly();
+                }, APP_INFO_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+                try (InputStream inputStream = process.getInputStream()) {
+                    String output = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+                    if (process.waitFor() != 0 && !output.contains("\"" + appId + "\"")) {
+                        log.warn("SteamCMD returned error code " + process.exitValue() + " while requesting the app info of app " + appId + ".");
+                        return null;
+                    }
+                    return output;
+                } finally {
+                    timeout.cancel(false);
+                }
+            } catch (IOException e) {
+                log.warn("An unknown exception occurred while requesting the app info of app " + appId + ".", e);
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    private static long getStallTimeoutMillis() {
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(30, Long.parseLong(ConfigUtils.get("install.stall-timeout-seconds", "300"))));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for 'install.stall-timeout-seconds'. Using 300 seconds.");
+            return TimeUnit.SECONDS.toMillis(300);
+        }
+    }
+
+    public enum Result {
+        SUCCESS,
+        FAILED,
+        STALLED
+    }
+}
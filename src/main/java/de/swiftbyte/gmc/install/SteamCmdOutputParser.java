@@ -0,0 +1,79 @@
+package de.swiftbyte.gmc.install;
+
+import lombok.Getter;
+
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/*
+ * Parses SteamCMD output while it is read. Only the current line is kept, SteamCMD ends progress
+ * lines with a carriage return as well, so both line endings complete a line.
+ */
+public class SteamCmdOutputParser {
+
+    private static final int MAX_LINE_LENGTH = 4096;
+    private static final Pattern PROGRESS_PATTERN = Pattern.compile("Update state \\(0x[0-9a-fA-F]+\\) ([^,]+), progress: ([0-9.]+) \\((\\d+) / (\\d+)\\)");
+    private static final Pattern SUCCESS_PATTERN = Pattern.compile("Success! App '\\d+' (fully installed|already up to date)");
+    private static final Pattern ERROR_PATTERN = Pattern.compile("(ERROR|Error)! .*");
+
+    private final StringBuilder line = new StringBuilder();
+    private final Consumer<SteamCmdProgress> progressListener;
+    private final Consumer<String> lineListener;
+
+    @Getter
+    private boolean success;
+    @Getter
+    private String lastError;
+
+    public SteamCmdOutputParser(Consumer<SteamCmdProgress> progressListener, Consumer<String> lineListener) {
+        this.progressListener = progressListener;
+        this.lineListener = lineListener;
+    }
+
+    public void accept(byte[] buffer, int length) {
+        for (int i = 0; i < length; i++) {
+            char character = (char) (buffer[i] & 0xFF);
+
+            if (character == '\n' || character == '\r') {
+                completeLine();
+            } else if (line.length() < MAX_LINE_LENGTH) {
+                line.append(character);
+            }
+        }
+    }
+
+    public void finish() {
+        completeLine();
+    }
+
+    private void completeLine() {
+
+        if (line.isEmpty()) return;
+
+        String completedLine = line.toString().trim();
+        line.setLength(0);
+
+        if (completedLine.isEmpty()) return;
+
+        Matcher progressMatcher = PROGRESS_PATTERN.matcher(completedLine);
+        if (progressMatcher.find()) {
+            if (progressListener != null) progressListener.accept(new SteamCmdProgress(
+                    progressMatcher.group(1).trim(),
+                    Double.parseDouble(progressMatcher.group(2)),
+                    Long.parseLong(progressMatcher.group(3)),
+                    Long.parseLong(progressMatcher.group(4))
+            ));
+            return;
+        }
+
+        //Progress lines only reach the progress listener, a repeated one is no sign of activity
+        if (lineListener != null) lineListener.accept(completedLine);
+
+        if (SUCCESS_PATTERN.matcher(completedLine).find()) {
+            success = true;
+        } else if (ERROR_PATTERN.matcher(completedLine).find()) {
+            lastError = completedLine;
+        }
+    }
+}
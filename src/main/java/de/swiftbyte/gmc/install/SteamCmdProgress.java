@@ -0,0 +1,16 @@
+package de.swiftbyte.gmc.install;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SteamCmdProgress {
+
+    private String phase;
+    private double percent;
+    private long processedBytes;
+    private long totalBytes;
+}
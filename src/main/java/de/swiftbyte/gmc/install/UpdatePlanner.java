@@ -0,0 +1,93 @@
+package de.swiftbyte.gmc.install;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Decides whether SteamCMD has to run at all. The installed build comes from the app manifest
+ * SteamCMD writes, the latest build from app_info_print. A full validate re-reads the whole game,
+ * so it only runs when it was requested explicitly.
+ */
+@Slf4j
+public class UpdatePlanner {
+
+    private static final long LATEST_BUILD_CACHE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final Map<String, CachedBuild> latestBuilds = new ConcurrentHashMap<>();
+
+    public static UpdatePlan plan(String appId, Path installDir, boolean validate) {
+
+        String installedBuildId = getInstalledBuildId(installDir, appId);
+
+        if (validate) return new UpdatePlan(UpdatePlan.Action.VALIDATE, installedBuildId, null);
+        if (installedBuildId == null) return new UpdatePlan(UpdatePlan.Action.UPDATE, null, null);
+
+        String latestBuildId = getLatestBuildId(appId);
+        if (installedBuildId.equals(latestBuildId)) return new UpdatePlan(UpdatePlan.Action.SKIP, installedBuildId, latestBuildId);
+
+        return new UpdatePlan(UpdatePlan.Action.UPDATE, installedBuildId, latestBuildId);
+    }
+
+    public static String getInstalledBuildId(Path installDir, String appId) {
+
+        Path manifest = installDir.resolve("steamapps").resolve("appmanifest_" + appId + ".acf");
+        if (!Files.exists(manifest)) return null;
+
+        try {
+            Map<String, Object> values = KeyValues.parse(Files.readString(manifest));
+
+            //Every other state means an update was interrupted or is pending
+            if (!"4".equals(KeyValues.get(values, "AppState", "StateFlags"))) {
+                log.debug("App " + appId + " in '" + installDir + "' is not fully installed.");
+                return null;
+            }
+
+            return KeyValues.get(values, "AppState", "buildid");
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Could not read the app manifest of app " + appId + " in '" + installDir + "'.", e);
+            return null;
+        }
+    }
+
+    public static String getLatestBuildId(String appId) {
+
+        CachedBuild cachedBuild = latestBuilds.get(appId);
+        if (cachedBuild != null && System.currentTimeMillis() - cachedBuild.fetchedAt() < LATEST_BUILD_CACHE_MILLIS) return cachedBuild.buildId();
+
+        String appInfo = SteamCmd.appInfo(appId);
+        if (appInfo == null) return null;
+
+        try {
+            Map<String, Object> values = KeyValues.parseObject(appInfo, appId);
+            String buildId = values == null ? null : KeyValues.get(values, "depots", "branches", "public", "buildid");
+
+            if (buildId == null) {
+                log.warn("SteamCMD did not report a build id for app " + appId + ".");
+                return null;
+            }
+
+            latestBuilds.put(appId, new CachedBuild(buildId, System.currentTimeMillis()));
+            return buildId;
+        } catch (IllegalArgumentException e) {
+            log.warn("Could not read the app info of app " + appId + ".", e);
+            return null;
+        }
+    }
+
+    private record CachedBuild(String buildId, long fetchedAt) {
+    }
+
+    public record UpdatePlan(Action action, String installedBuildId, String targetBuildId) {
+
+        public enum Action {
+            SKIP,
+            UPDATE,
+            VALIDATE
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package de.swiftbyte.gmc.launch;
+
+import de.swiftbyte.gmc.utils.CommonUtils;
+
+import java.util.*;
+
+/*
+ * Launch parameters keyed by their name, the part before the first '='. Names compare ignoring case
+ * like the game does, the parameters themselves keep their order and spelling.
+ */
+public class LaunchParameters {
+
+    private final List<String> parameters = new ArrayList<>();
+    private final Set<String> keys = new HashSet<>();
+
+    public static LaunchParameters of(List<String> parameters) {
+        LaunchParameters launchParameters = new LaunchParameters();
+        if (parameters != null) parameters.forEach(launchParameters::add);
+        return launchParameters;
+    }
+
+    public LaunchParameters add(String parameter) {
+        if (CommonUtils.isNullOrEmpty(parameter)) return this;
+        parameters.add(parameter);
+        keys.add(getKey(parameter));
+        return this;
+    }
+
+    public List<String> getParameters() {
+        return Collections.unmodifiableList(parameters);
+    }
+
+    //Parameters the daemon sets itself win over the ones of the user
+    public List<String> withoutKeysOf(LaunchParameters overrides) {
+        return parameters.stream().filter(parameter -> !overrides.keys.contains(getKey(parameter))).toList();
+    }
+
+    //Users write the parameters with or without their '-' or '?' prefix
+    private static String getKey(String parameter) {
+        int separator = parameter.indexOf('=');
+        String key = (separator < 0 ? parameter : parameter.substring(0, separator)).trim();
+        while (key.startsWith("-") || key.startsWith("?")) key = key.substring(1);
+        return key.toLowerCase(Locale.ROOT);
+    }
+}
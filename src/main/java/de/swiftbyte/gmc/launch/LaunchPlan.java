@@ -0,0 +1,19 @@
+package de.swiftbyte.gmc.launch;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class LaunchPlan {
+
+    private final String changeDirectoryCommand;
+    private final String startCommand;
+    private final String rconPassword;
+    private final int rconPort;
+
+    public String getBatch() {
+        String lineSeparator = System.lineSeparator();
+        return changeDirectoryCommand + lineSeparator + startCommand + lineSeparator + "exit" + lineSeparator;
+    }
+}
@@ -0,0 +1,202 @@
+package de.swiftbyte.gmc.launch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import de.swiftbyte.gmc.Node;
+import de.swiftbyte.gmc.common.packet.entity.ServerSettings;
+import de.swiftbyte.gmc.server.AsaServer;
+import de.swiftbyte.gmc.server.GameServer;
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+import de.swiftbyte.gmc.utils.CommonUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Turns the settings of a server into its start.bat. The plan is kept per server together with the
+ * inputs it was built from, so unchanged settings are not compiled again, and the batch is only
+ * written when its content changed. The settings themselves are never modified.
+ */
+@Slf4j
+public class LaunchPlanCompiler {
+
+    private static final String DEFAULT_MAP = "TheIsland_WP";
+    //Placeholder secret of a node that has not joined yet
+    private static final String NO_SECRET = "dummy";
+    private static final Map<String, CachedPlan> plans = new ConcurrentHashMap<>();
+
+    public static boolean write(AsaServer server) {
+
+        LaunchPlan plan;
+        try {
+            plan = compile(server);
+        } catch (IllegalStateException e) {
+            log.error("Could not write the startup batch for server '" + server.getFriendlyName() + "'. " + e.getMessage());
+            return false;
+        }
+
+        server.setRconPort(plan.getRconPort());
+        server.setRconPassword(plan.getRconPassword());
+
+        //The batch must not create the install directory, a missing one triggers the install on start
+        if (!Files.isDirectory(server.getInstallDir())) {
+            log.debug("Not writing startup batch for server " + server.getFriendlyName() + " because it is not installed yet.");
+            return true;
+        }
+
+        Path batchPath = server.getInstallDir().resolve("start.bat");
+        byte[] batch = plan.getBatch().getBytes(Charset.defaultCharset());
+
+        try {
+            if (Files.exists(batchPath) && Arrays.equals(Files.readAllBytes(batchPath), batch)) {
+                log.debug("Startup batch of server " + server.getFriendlyName() + " is up to date.");
+                return true;
+            }
+
+            log.debug("Writing startup batch for server " + server.getFriendlyName() + " with command '" + plan.getStartCommand() + "'");
+            AtomicFileUtils.write(batchPath, batch);
+            return true;
+        } catch (IOException e) {
+            log.error("An unknown exception occurred while writing the startup batch for server '" + server.getFriendlyName() + "'.", e);
+            return false;
+        }
+    }
+
+    public static LaunchPlan compile(AsaServer server) {
+
+        String executableName = Files.exists(server.getInstallDir().resolve("ShooterGame/Binaries/Win64/AsaApiLoader.exe")) ? "AsaApiLoader.exe" : "ArkAscendedServer.exe";
+        String inputs = getInputs(server, executableName);
+
+        CachedPlan cachedPlan = plans.get(server.getServerId());
+        if (inputs != null && cachedPlan != null && cachedPlan.inputs().equals(inputs)) return cachedPlan.plan();
+
+        LaunchPlan plan = build(server.getSettings(), server.getFriendlyName(), server.getInstallDir(), executableName, getRconPassword(server));
+        if (inputs != null) plans.put(server.getServerId(), new CachedPlan(inputs, plan));
+        return plan;
+    }
+
+    public static String getMap(ServerSettings settings) {
+        return CommonUtils.isNullOrEmpty(settings.getMap()) ? DEFAULT_MAP : settings.getMap();
+    }
+
+    //Servers without a configured password get one that stays the same across restarts of the daemon
+    public static String getRconPassword(GameServer server) {
+        return getRconPassword(server.getSettings(), server.getServerId(), server.getFriendlyName(), Node.INSTANCE == null ? null : Node.INSTANCE.getSecret());
+    }
+
+    static String getRconPassword(ServerSettings settings, String serverId, String friendlyName, String secret) {
+
+        if (!CommonUtils.isNullOrEmpty(settings.getRconPassword())) return settings.getRconPassword();
+
+        //Without the node secret the password could be derived from the server id alone
+        if (CommonUtils.isNullOrEmpty(secret) || secret.equals(NO_SECRET)) {
+            throw new IllegalStateException("Server '" + friendlyName + "' has no RCON password and the node has no secret to generate one.");
+        }
+        return "gmc-rp-" + UUID.nameUUIDFromBytes((secret + ":" + serverId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static LaunchPlan build(ServerSettings settings, String friendlyName, Path installDir, String executableName, String rconPassword) {
+
+        if (CommonUtils.isNullOrEmpty(settings.getMap())) {
+            log.error("Map is not set for server '" + friendlyName + "'. Falling back to default map.");
+        }
+
+        LaunchParameters requiredParameters1 = getRequiredParameters1(settings);
+        LaunchParameters requiredParameters2 = getRequiredParameters2(settings);
+
+        StringBuilder arguments = new StringBuilder(String.join("?", requiredParameters1.getParameters()));
+
+        for (String parameter : LaunchParameters.of(settings.getLaunchParameters2()).withoutKeysOf(requiredParameters1)) {
+            if (!parameter.contains("?")) arguments.append("?");
+            arguments.append(parameter);
+        }
+
+        arguments.append("?ServerAdminPassword=\"").append(rconPassword).append("\"");
+
+        requiredParameters2.getParameters().forEach(parameter -> arguments.append(" -").append(parameter));
+
+        for (String parameter : LaunchParameters.of(settings.getLaunchParameters3()).withoutKeysOf(requiredParameters2)) {
+            if (!parameter.replace(" ", "").startsWith("-")) arguments.append(" -");
+            else arguments.append(" ");
+            arguments.append(parameter);
+        }
+
+        String preArguments = String.join(" ", settings.getLaunchParameters1() == null ? List.of() : settings.getLaunchParameters1());
+
+        String changeDirectoryCommand = "cd /d \"" + CommonUtils.convertPathSeparator(installDir) + "\\ShooterGame\\Binaries\\Win64\"";
+
+        String startCommand = "start \"" + friendlyName + "\""
+                + (preArguments.isEmpty() ? "" : " " + preArguments)
+                + " \"" + CommonUtils.convertPathSeparator(installDir + "/ShooterGame/Binaries/Win64/" + executableName) + "\""
+                + " " + arguments;
+
+        return new LaunchPlan(changeDirectoryCommand, startCommand, rconPassword, settings.getRconPort());
+    }
+
+    private static LaunchParameters getRequiredParameters1(ServerSettings settings) {
+
+        LaunchParameters parameters = new LaunchParameters()
+                .add(getMap(settings))
+                .add("listen")
+                .add("Port=" + settings.getGamePort())
+                .add("QueryPort=" + settings.getQueryPort())
+                .add("RCONEnabled=True")
+                .add("RCONPort=" + settings.getRconPort())
+                .add("ClampItemStats=" + settings.isClampItemStats());
+
+        if (!CommonUtils.isNullOrEmpty(settings.getName()))
+            parameters.add("SessionName=" + settings.getName().replace(" ", "-"));
+        if (!CommonUtils.isNullOrEmpty(settings.getServerIp()))
+            parameters.add("MultiHome=" + settings.getServerIp());
+        if (!CommonUtils.isNullOrEmpty(settings.getServerPassword()))
+            parameters.add("ServerPassword=\"" + settings.getServerPassword() + "\"");
+        if (!CommonUtils.isNullOrEmpty(settings.getSpecPassword()))
+            parameters.add("SpectatorPassword=\"" + settings.getSpecPassword() + "\"");
+        return parameters;
+    }
+
+    private static LaunchParameters getRequiredParameters2(ServerSettings settings) {
+
+        LaunchParameters parameters = new LaunchParameters()
+                .add("game")
+                .add("server")
+                .add("log")
+                .add("oldconsole");
+
+        if (settings.getMaxPlayers() != 0)
+            parameters.add("WinLiveMaxPlayers=" + settings.getMaxPlayers());
+        if (!CommonUtils.isNullOrEmpty(settings.getModIds()))
+            parameters.add("mods=" + settings.getModIds());
+        if (!settings.isEnableBattlEye()) parameters.add("NoBattlEye");
+        if (!CommonUtils.isNullOrEmpty(settings.getCulture()))
+            parameters.add("culture=" + settings.getCulture());
+        if (!CommonUtils.isNullOrEmpty(settings.getClusterId())) {
+            parameters.add("clusterID=" + settings.getClusterId());
+            if (!CommonUtils.isNullOrEmpty(settings.getClusterDirOverride()))
+                parameters.add("ClusterDirOverride=\"" + settings.getClusterDirOverride() + "\"");
+        }
+        if (settings.isNoTransferFromFiltering()) parameters.add("notransferfromfiltering");
+        return parameters;
+    }
+
+    private static String getInputs(AsaServer server, String executableName) {
+        try {
+            return String.join("\n", server.getFriendlyName(), String.valueOf(server.getInstallDir()), executableName, getRconPassword(server),
+                    CommonUtils.getObjectWriter().writeValueAsString(server.getSettings()));
+        } catch (JsonProcessingException e) {
+            log.debug("Could not serialise the settings of server '" + server.getFriendlyName() + "'. Compiling its launch plan without cache.", e);
+            return null;
+        }
+    }
+
+    private record CachedPlan(String inputs, LaunchPlan plan) {
+    }
+}
@@ -4,6 +4,14 @@ import de.swiftbyte.gmc.Node;
 import de.swiftbyte.gmc.common.packet.entity.GameServerState;
 import de.swiftbyte.gmc.common.packet.entity.ServerSettings;
 import de.swiftbyte.gmc.common.packet.server.ServerDeletePacket;
+import de.swiftbyte.gmc.install.InstallJob;
+import de.swiftbyte.gmc.install.InstallScheduler;
+import de.swiftbyte.gmc.install.IntegrityScanner;
+import de.swiftbyte.gmc.install.MasterInstall;
+import de.swiftbyte.gmc.install.ModCache;
+import de.swiftbyte.gmc.install.StagedUpdate;
+import de.swiftbyte.gmc.install.UpdatePlanner;
+import de.swiftbyte.gmc.launch.LaunchPlanCompiler;
 import de.swiftbyte.gmc.service.BackupService;
 import de.swiftbyte.gmc.service.FirewallService;
 import de.swiftbyte.gmc.stomp.StompHandler;
@@ -20,6 +28,7 @@ import xyz.astroark.exception.AuthenticationException;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Scanner;
 
 @Slf4j
@@ -36,7 +45,7 @@ public class AsaServer extends GameServer {
 
         super(id, friendlyName, settings);
 
-        rconPassword = settings.getRconPassword();
+        rconPassword = getInitialRconPassword(settings);
         rconPort = settings.getRconPort();
 
         if (!overrideAutoStart) {
@@ -51,7 +60,7 @@ public class AsaServer extends GameServer {
         super(id, friendlyName, settings);
         this.installDir = installDir;
 
-        rconPassword = settings.getRconPassword();
+        rconPassword = getInitialRconPassword(settings);
         rconPort = settings.getRconPort();
 
         if (!overrideAutoStart) {
@@ -61,38 +70,122 @@ public class AsaServer extends GameServer {
         }
     }
 
+    //A server that cannot get a password yet has none until its batch is written
+    private String getInitialRconPassword(ServerSettings settings) {
+        try {
+            return LaunchPlanCompiler.getRconPassword(this);
+        } catch (IllegalStateException e) {
+            log.warn(e.getMessage());
+            return settings.getRconPassword();
+        }
+    }
+
     @Override
-    public AsyncAction<Boolean> install() {
+    public AsyncAction<Boolean> install(InstallJob.Priority priority, boolean validate) {
         return () -> {
             super.setState(GameServerState.CREATING);
-            String installCommand = "cmd /c start \"steamcmd\" \"" + CommonUtils.convertPathSeparator(NodeUtils.getSteamCmdPath().toAbsolutePath()) + "\""
-                    + " +force_install_dir \"" + CommonUtils.convertPathSeparator(installDir.toAbsolutePath()) + "\""
-                    + " +login anonymous +app_update " + STEAM_CMD_ID + " validate +quit";
-            log.debug("Starting server installation with command " + installCommand);
-            try {
-                Process process = Runtime.getRuntime().exec(installCommand);
 
-                Scanner scanner = new Scanner(process.getInputStream());
+            boolean sharedGameFiles = MasterInstall.isEnabled();
+            Path steamCmdInstallDir = sharedGameFiles ? MasterInstall.getDirectory(STEAM_CMD_ID) : installDir;
+
+            log.debug("Waiting for the installation of server '" + friendlyName + "'...");
+            if (!InstallScheduler.submit(STEAM_CMD_ID, steamCmdInstallDir, priority, validate, this).join()) {
+                log.error("Installation of server '" + friendlyName + "' failed.");
+                return false;
+            }
 
-                while (scanner.hasNextLine()) {
-                    scanner.nextLine();
+            if (sharedGameFiles) {
+                try {
+                    MasterInstall.materialise(STEAM_CMD_ID, installDir);
+                } catch (IOException e) {
+                    log.error("An unknown exception occurred while installing the server '" + friendlyName + "'.", e);
+                    return false;
                 }
+            }
 
-                if (process.exitValue() == 7 || process.exitValue() == 0) {
-                    log.debug("Server was installed successfully!");
+            log.debug("Server was installed successfully!");
+            allowFirewallPorts();
+            super.setState(GameServerState.OFFLINE);
+            return true;
+        };
+    }
 
-                    allowFirewallPorts();
+    @Override
+    public boolean isUpdateAvailable() {
 
-                    super.setState(GameServerState.OFFLINE);
-                } else {
-                    log.error("Server installation returned error code " + process.exitValue() + ".");
-                    return false;
+        String latestBuildId = UpdatePlanner.getLatestBuildId(STEAM_CMD_ID);
+
+        //Without the latest build the update runs anyway, SteamCMD will find out itself
+        if (latestBuildId == null) return true;
+
+        String installedBuildId = MasterInstall.isEnabled() ? MasterInstall.getInstanceBuildId(installDir) : UpdatePlanner.getInstalledBuildId(installDir, STEAM_CMD_ID);
+        return !latestBuildId.equals(installedBuildId);
+    }
+
+    @Override
+    public AsyncAction<Boolean> updateBuild(InstallJob.Priority priority, boolean validate) {
+        return () -> {
+            if (!validate && !isUpdateAvailable()) {
+                log.debug("Server '" + friendlyName + "' is already on the latest build.");
+                return true;
+            }
+
+            if (!StagedUpdate.isEnabled()) {
+                if (!stop(false).complete()) return false;
+                return install(priority, validate).complete();
+            }
+
+            boolean wasRunning = state != GameServerState.OFFLINE;
+
+            Path stagingDirectory = prepareBuildUpdate(priority, validate);
+            if (stagingDirectory == null) {
+                log.error("Could not prepare the update of server '" + friendlyName + "'.");
+                return false;
+            }
+
+            return StagedUpdate.apply(this, stagingDirectory, wasRunning);
+        };
+    }
+
+    @Override
+    public Path prepareBuildUpdate(InstallJob.Priority priority, boolean validate) {
+        return StagedUpdate.prepare(this, STEAM_CMD_ID, priority, validate);
+    }
+
+    @Override
+    public AsyncAction<Boolean> repair(List<String> damagedFiles) {
+        return () -> {
+            //Without an intact copy on the node SteamCMD has to find and fetch the damaged files itself
+            if (!MasterInstall.isEnabled() || !MasterInstall.isInstalled(STEAM_CMD_ID) || MasterInstall.isPinned(installDir) || MasterInstall.isRejected(STEAM_CMD_ID)) {
+                return updateBuild(InstallJob.Priority.HIGH, true).complete();
+            }
+
+            Path masterDirectory = MasterInstall.getDirectory(STEAM_CMD_ID);
+
+            try {
+                //Linked files share their content with the master, so a damaged instance file may be damaged there too
+                if (!IntegrityScanner.scan(masterDirectory, true, damagedFiles).isIntact()) {
+                    log.warn("The master install of server '" + friendlyName + "' is damaged as well. Validating it...");
+                    if (!InstallScheduler.submit(STEAM_CMD_ID, masterDirectory, InstallJob.Priority.HIGH, true, this).join()) return false;
                 }
+            } catch (IOException e) {
+                log.error("An unknown error occurred while verifying the master install of server '" + friendlyName + "'.", e);
+                return false;
+            }
+
+            boolean wasRunning = state != GameServerState.OFFLINE;
+            if (wasRunning && !stop(false).complete()) return false;
 
+            try {
+                for (String damagedFile : damagedFiles) Files.deleteIfExists(installDir.resolve(damagedFile));
+                MasterInstall.materialise(STEAM_CMD_ID, installDir);
+                log.debug("Repaired " + damagedFiles.size() + " game files of server '" + friendlyName + "' from the master install.");
             } catch (IOException e) {
-                log.error("An unknown exception occurred while installing the server '" + friendlyName + "'.", e);
+                log.error("An unknown error occurred while repairing server '" + friendlyName + "'.", e);
                 return false;
             }
+
+            if (wasRunning) start().complete();
             return true;
         };
     }
@@ -147,12 +240,27 @@ public class AsaServer extends GameServer {
 
             if (!Files.exists(installDir)) {
                 super.setState(GameServerState.OFFLINE);
-                install().queue();
+                install(InstallJob.Priority.HIGH, false).queue();
                 return false;
             }
 
+            //Picks up a master install that was updated for another server while this one was running
+            if (MasterInstall.isEnabled() && MasterInstall.isInstalled(STEAM_CMD_ID) && !MasterInstall.isPinned(installDir) && !MasterInstall.isRejected(STEAM_CMD_ID)) {
+                try {
+                    if (!MasterInstall.tryMaterialise(STEAM_CMD_ID, installDir)) log.info("The master install of server '" + friendlyName + "' is being updated. Starting with the current files.");
+                } catch (IOException e) {
+                    log.warn("Could not update the game files of server '" + friendlyName + "' from the master install. Starting with the current files.", e);
+                }
+            }
+
+            ModCache.share(this);
+
             new Thread(() -> {
-                ServerUtils.writeAsaStartupBatch(this);
+                //An outdated batch could start the server with the wrong settings or RCON password
+                if (!ServerUtils.writeAsaStartupBatch(this)) {
+                    super.setState(GameServerState.OFFLINE);
+                    return;
+                }
                 try {
                     log.debug("cmd /c start \"" + CommonUtils.convertPathSeparator(installDir + "/start.bat\""));
                     serverProcess = Runtime.getRuntime().exec("cmd /c start /min \"" + "\" \"" + CommonUtils.convertPathSeparator(installDir + "/start.bat\""));
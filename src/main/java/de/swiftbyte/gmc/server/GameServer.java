@@ -5,6 +5,7 @@ import de.swiftbyte.gmc.Node;
 import de.swiftbyte.gmc.common.packet.entity.GameServerState;
 import de.swiftbyte.gmc.common.packet.entity.ServerSettings;
 import de.swiftbyte.gmc.common.packet.server.ServerStatePacket;
+import de.swiftbyte.gmc.install.InstallJob;
 import de.swiftbyte.gmc.service.FirewallService;
 import de.swiftbyte.gmc.stomp.StompHandler;
 import de.swiftbyte.gmc.utils.CommonUtils;
@@ -62,7 +63,19 @@ public abstract class GameServer {
         setState(GameServerState.OFFLINE);
     }
 
-    public abstract AsyncAction<Boolean> install();
+    public abstract AsyncAction<Boolean> install(InstallJob.Priority priority, boolean validate);
+
+    public AsyncAction<Boolean> install() {
+        return install(InstallJob.Priority.NORMAL, false);
+    }
+
+    public abstract boolean isUpdateAvailable();
+
+    public abstract AsyncAction<Boolean> updateBuild(InstallJob.Priority priority, boolean validate);
+
+    public abstract Path prepareBuildUpdate(InstallJob.Priority priority, boolean validate);
+
+    public abstract AsyncAction<Boolean> repair(List<String> damagedFiles);
 
     public abstract AsyncAction<Boolean> delete();
 
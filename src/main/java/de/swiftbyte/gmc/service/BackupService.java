@@ -1,68 +1,74 @@
 package de.swiftbyte.gmc.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import de.swiftbyte.gmc.Application;
 import de.swiftbyte.gmc.Node;
+import de.swiftbyte.gmc.backup.*;
 import de.swiftbyte.gmc.common.packet.entity.Backup;
+import de.swiftbyte.gmc.common.packet.entity.GameServerState;
 import de.swiftbyte.gmc.common.packet.server.ServerBackupResponsePacket;
+import de.swiftbyte.gmc.launch.LaunchPlanCompiler;
 import de.swiftbyte.gmc.server.GameServer;
 import de.swiftbyte.gmc.stomp.StompHandler;
 import de.swiftbyte.gmc.utils.CommonUtils;
-import de.swiftbyte.gmc.utils.NodeUtils;
+import de.swiftbyte.gmc.utils.ConfigUtils;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.filefilter.WildcardFileFilter;
-import org.zeroturnaround.zip.ZipUtil;
 
 import java.io.File;
-import java.io.FileFilter;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Slf4j
 public class BackupService {
 
-    private static HashMap<String, Backup> backups = new HashMap<>();
+    private static final BackupJournal journal = new BackupJournal(Path.of("./backups.journal"), Path.of("./backups.json"));
+    private static final BackupIndex backups = journal.getIndex();
+    private static final ScheduledExecutorService retentionExecutor = Application.getExecutor();
+    private static final long RETENTION_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
     private static ScheduledFuture<?> backupScheduler;
+    private static ScheduledFuture<?> retentionRun;
+    private static boolean serversLoaded;
 
     public static void initialiseBackupService() {
 
         log.debug("Initialising backup service...");
 
-        File cacheFile = new File("./backups.json");
-
-        if (!cacheFile.exists()) {
-            log.debug("No backups found. Skipping...");
-            return;
-        }
-
         try {
-            TypeReference<HashMap<String, Backup>> typeRef = new TypeReference<>() {
-            };
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.registerModules(new JavaTimeModule());
-            backups = mapper.readValue(new File("./backups.json"), typeRef);
-
-            log.debug("Got saved backups.");
-
+            journal.open();
+            log.debug("Got " + backups.size() + " saved backups.");
         } catch (IOException e) {
             log.error("An unknown error occurred while loading backups.", e);
         }
 
+        ClusterBackupService.initialiseClusterBackups();
+
+        //Retention starts once the backend sent the servers, see onServersLoaded
+        ConfigUtils.addChangeListener("backup.retention", value -> requestRetentionRun());
+        BackupVerifier.start();
+        BackupReplicator.start();
+
         updateAutoBackupSettings();
     }
 
@@ -84,24 +90,16 @@ public class BackupService {
             log.debug("Starting auto backup in " + delay + " minutes.");
 
             backupScheduler = Application.getExecutor().scheduleAtFixedRate(() -> {
-                log.debug("Starting auto backup...");
+                log.debug("Scheduling auto backups...");
                 BackupService.backupAllServers(true);
             }, delay, Node.INSTANCE.getAutoBackup().getIntervallMinutes(), TimeUnit.MINUTES);
 
         }
     }
 
-    private static void saveBackupCache() {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new JavaTimeModule());
-        ObjectWriter writer = mapper.writer(new DefaultPrettyPrinter());
-        try {
-            File file = new File("./backups.json");
-            if (!file.exists()) file.createNewFile();
-            writer.writeValue(file, backups);
-        } catch (IOException e) {
-            log.error("An unknown error occurred while saving backups.", e);
-        }
+    public static void deleteBackupJournal() throws IOException {
+        journal.delete();
+        ClusterBackupService.deleteBackupList();
     }
 
     public static void backupServer(String serverId, boolean autoBackup) {
@@ -119,6 +117,42 @@ public class BackupService {
             return;
         }
 
+        BackupScheduler.schedule(server, autoBackup, name, 0);
+    }
+
+    public static void createBackup(GameServer server, boolean autoBackup, String name, BackupProgressListener progressListener) {
+
+        File saveLocation = new File(server.getInstallDir() + "/ShooterGame/Saved/SavedArks/" + LaunchPlanCompiler.getMap(server.getSettings()));
+
+        if (!saveLocation.exists()) {
+            log.error("Could not backup server because save location does not exist!");
+            return;
+        }
+
+        Path savePath = saveLocation.toPath();
+        String mapSaveName = LaunchPlanCompiler.getMap(server.getSettings()) + ".ark";
+
+        //Skip ark backup files of other maps and older saves
+        Predicate<Path> saveFileFilter = file -> !file.getParent().equals(savePath)
+                || !file.getFileName().toString().endsWith(".ark")
+                || file.getFileName().toString().equalsIgnoreCase(mapSaveName);
+
+        //Running servers save first, otherwise changes they only hold in memory would look like an unchanged save
+        SaveSnapshot.saveWorld(server);
+
+        String saveFingerprint;
+        try {
+            saveFingerprint = BackupArchiver.getFingerprint(savePath, saveFileFilter);
+        } catch (IOException e) {
+            log.error("An unknown error occurred while backing up server '" + server.getFriendlyName() + "'.", e);
+            return;
+        }
+
+        if (autoBackup && saveFingerprint.equals(getLatestSaveFingerprint(server))) {
+            log.debug("Save files of server '" + server.getFriendlyName() + "' did not change since the last backup. Skipping auto backup...");
+            return;
+        }
+
         log.debug("Backing up server '" + server.getFriendlyName() + "'...");
 
         if (!CommonUtils.isNullOrEmpty(Node.INSTANCE.getAutoBackup().getMessage()))
@@ -128,63 +162,69 @@ public class BackupService {
 
         backup.setBackupId("gmc-back-" + UUID.randomUUID());
         backup.setCreatedAt(Instant.now());
-        backup.setExpiresAt(backup.getCreatedAt().plus((int) (Node.INSTANCE.getAutoBackup().getDeleteBackupsAfterDays() * 24 * 60), ChronoUnit.MINUTES));
+        //A tiered policy decides which auto backups to keep, the expiry date is only the upper bound
+        RetentionPolicy retentionPolicy = RetentionPolicy.getConfigured();
+        if (autoBackup && !retentionPolicy.isEmpty())
+            backup.setExpiresAt(backup.getCreatedAt().plus(retentionPolicy.getLongestRetention()));
+        else
+            backup.setExpiresAt(backup.getCreatedAt().plus((int) (Node.INSTANCE.getAutoBackup().getDeleteBackupsAfterDays() * 24 * 60), ChronoUnit.MINUTES));
         backup.setServerId(server.getServerId());
         if (CommonUtils.isNullOrEmpty(name))
-            backup.setName(DateTimeFormatter.ofPattern("yyyy.MM.dd_HH-mm-ss").withZone(ZoneId.systemDefault()).format(LocalDateTime.now()) + "_" + server.getSettings().getMap());
+            backup.setName(DateTimeFormatter.ofPattern("yyyy.MM.dd_HH-mm-ss").withZone(ZoneId.systemDefault()).format(LocalDateTime.now()) + "_" + LaunchPlanCompiler.getMap(server.getSettings()));
         else backup.setName(name);
         backup.setAutoBackup(autoBackup);
 
-        File tempBackupLocation = new File(NodeUtils.TMP_PATH + server.getServerId() + "/" + backup.getBackupId());
-        File backupLocation = new File(Node.INSTANCE.getServerPath() + "/backups/" + server.getFriendlyName().toLowerCase().replace(" ", "-") + "/" + backup.getName() + ".zip");
-        File saveLocation = new File(server.getInstallDir() + "/ShooterGame/Saved/SavedArks/" + server.getSettings().getMap());
-
-        log.debug("Creating backup directories...");
+        BackupMetadata metadata = new BackupMetadata();
+        metadata.setCodec(BackupCodec.getConfigured());
 
-        if (!tempBackupLocation.exists()) {
-            tempBackupLocation.mkdirs();
-        }
+        ClusterBackup clusterBackup = ClusterBackupService.getLatestBackup(server);
+        if (clusterBackup != null) metadata.setClusterBackupId(clusterBackup.getBackupId());
 
-        if (!backupLocation.getParentFile().exists()) {
-            backupLocation.getParentFile().mkdirs();
-        }
+        File backupLocation = getBackupLocation(server, backup, metadata);
 
-        if (!saveLocation.exists()) {
-            log.error("Could not backup server because save location does not exist!");
-            return;
-        }
+        //The server only has to hold still until the snapshot is taken, compression runs from the snapshot
+        try (SaveSnapshot snapshot = SaveSnapshot.capture(server, savePath, saveFileFilter)) {
+            metadata.setSaveFingerprint(snapshot.getSaveFingerprint());
 
-        log.debug("Copying save files to temporary backup location...");
+            log.debug("Compressing save files into backup using " + metadata.getCodec() + "...");
 
-        try {
-            FileUtils.copyDirectory(saveLocation, tempBackupLocation);
-
-            //Remove ark backup files
-            FileFilter mapSaveFilter = WildcardFileFilter.builder().setWildcards("*.ark").get();
-            File[] mapSaveFiles = tempBackupLocation.listFiles(mapSaveFilter);
-            Arrays.stream(mapSaveFiles).filter(file -> !file.getName().equalsIgnoreCase(server.getSettings().getMap() + ".ark")).forEach(File::delete);
-
-            log.debug("Compressing backup...");
-            ZipUtil.pack(tempBackupLocation, backupLocation);
+            BackupProgressListener progressLogger = getProgressLogger(backup);
+            ArchiveResult archiveResult = BackupArchiver.archive(snapshot.getDirectory(), file -> true, backupLocation.toPath(), metadata.getCodec(), (processedBytes, totalBytes) -> {
+                progressLogger.onProgress(processedBytes, totalBytes);
+                if (progressListener != null) progressListener.onProgress(processedBytes, totalBytes);
+            });
 
             log.debug("Gathering backup information...");
-            backup.setSize(backupLocation.length());
-            backups.put(backup.getBackupId(), backup);
+            backup.setSize(archiveResult.getSize());
+            metadata.setFiles(archiveResult.getEntries());
+            journal.recordCreate(backup, metadata);
+            requestRetentionRun();
+            BackupReplicator.replicate(backup);
 
             ServerBackupResponsePacket responsePacket = new ServerBackupResponsePacket();
             responsePacket.setBackup(backup);
             responsePacket.setServerId(server.getServerId());
             StompHandler.send("/app/server/backup", responsePacket);
-
-            log.debug("Cleaning up temporary backup location...");
-            FileUtils.deleteDirectory(tempBackupLocation);
-
-            saveBackupCache();
         } catch (IOException e) {
             log.error("An unknown error occurred while backing up server '" + server.getFriendlyName() + "'.", e);
         }
     }
 
+    private static BackupProgressListener getProgressLogger(Backup backup) {
+        return new BackupProgressListener() {
+
+            private int lastReportedPercent = -1;
+
+            @Override
+            public void onProgress(long processedBytes, long totalBytes) {
+                int percent = totalBytes == 0 ? 100 : (int) (processedBytes * 100 / totalBytes);
+                if (Math.floorDiv(percent, 10) == Math.floorDiv(lastReportedPercent, 10)) return;
+                lastReportedPercent = percent;
+                log.debug("Backup '" + backup.getName() + "': " + processedBytes + " / " + totalBytes + " bytes (" + percent + "%)");
+            }
+        };
+    }
+
     public static void deleteBackup(String backupId) {
         Backup backup = backups.get(backupId);
 
@@ -193,105 +233,292 @@ public class BackupService {
             return;
         }
 
+        if (deleteBackupFiles(backup)) journal.recordDelete(backupId);
+    }
+
+    private static boolean deleteBackupFiles(Backup backup) {
+
+        BackupMetadata metadata = backups.getMetadata(backup.getBackupId());
+
         GameServer server = GameServer.getServerById(backup.getServerId());
         if (server == null) {
-            log.error("Could not delete backup on file system because server id was not found!");
-            backups.remove(backupId);
-            saveBackupCache();
-            return;
+            log.error("Could not delete backup '" + backup.getName() + "' on file system because server id was not found! Keeping backup...");
+            return false;
         }
 
         log.debug("Deleting backup '" + backup.getName() + "'...");
-        File backupLocation = new File(Node.INSTANCE.getServerPath() + "/backups/" + GameServer.getServerById(backup.getServerId()).getFriendlyName().toLowerCase().replace(" ", "-") + "/" + backup.getName() + ".zip");
+        File backupLocation = getBackupLocation(server, backup, metadata);
         if (!backupLocation.exists()) {
-            log.error("Could not delete backup because backup location does not exist!");
-            return;
+            log.warn("Backup location of backup '" + backup.getName() + "' does not exist anymore. Removing backup...");
+            BackupReplicator.deleteReplica(backup, metadata);
+            return true;
         }
 
         try {
-            FileUtils.forceDelete(backupLocation);
-            backups.remove(backupId);
-            saveBackupCache();
+            metadata.getCodec().delete(backupLocation.toPath());
+            Files.deleteIfExists(Path.of(backupLocation + ".upload"));
         } catch (IOException e) {
             log.error("An unknown error occurred while deleting backup '" + backup.getName() + "'.", e);
+            return false;
         }
+
+        //The replica is the last copy as long as the local files could not be deleted
+        BackupReplicator.deleteReplica(backup, metadata);
+        return true;
+    }
+
+    private static int deleteBackups(Collection<Backup> backupsToDelete) {
+        List<String> deletedBackupIds = backupsToDelete.stream()
+                .filter(BackupService::deleteBackupFiles)
+                .map(Backup::getBackupId)
+                .toList();
+        journal.recordDeletes(deletedBackupIds);
+        return deletedBackupIds.size();
     }
 
-    public static void deleteAllExpiredBackups() {
-        List<Backup> expiredBackups = backups.values().stream().filter(backup -> backup.getExpiresAt().isBefore(Instant.now())).toList();
+    public static synchronized void onServersLoaded() {
+        serversLoaded = true;
+        requestRetentionRun();
+    }
+
+    public static void requestRetentionRun() {
+        scheduleRetention(0);
+    }
 
-        expiredBackups.forEach(backup -> {
-            log.debug("Deleting expired backup '" + backup.getName() + "'...");
-            deleteBackup(backup.getBackupId());
-        });
+    //The backup paths depend on the servers, without them every backup would look like one of an unknown server
+    private static synchronized void scheduleRetention(long delayMillis) {
+        if (!serversLoaded) {
+            log.debug("Servers are not loaded yet. Delaying backup retention...");
+            return;
+        }
+        if (retentionRun != null) retentionRun.cancel(false);
+        retentionRun = retentionExecutor.schedule(BackupService::applyRetention, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static void applyRetention() {
+
+        Instant now = Instant.now();
+        LinkedHashSet<Backup> expiredBackups = new LinkedHashSet<>(backups.getExpired(now));
+        Instant nextPolicyChange = null;
+
+        RetentionPolicy retentionPolicy = RetentionPolicy.getConfigured();
+        if (!retentionPolicy.isEmpty()) {
+            for (String serverId : backups.getServerIds()) {
+                List<Backup> autoBackups = backups.getByServer(serverId).stream().filter(Backup::isAutoBackup).toList();
+                RetentionPolicy.Selection selection = retentionPolicy.select(autoBackups, now);
+                expiredBackups.addAll(selection.expiredBackups());
+                if (selection.nextChange() != null && (nextPolicyChange == null || selection.nextChange().isBefore(nextPolicyChange)))
+                    nextPolicyChange = selection.nextChange();
+            }
+        }
+
+        //Their files can not be located, they stay until the server is known again or deleted with its backups
+        int unknownServerBackups = expiredBackups.size();
+        expiredBackups.removeIf(backup -> GameServer.getServerById(backup.getServerId()) == null);
+        unknownServerBackups -= expiredBackups.size();
+        if (unknownServerBackups > 0) log.debug("Keeping " + unknownServerBackups + " expired backups of unknown servers.");
+
+        boolean deletionFailed = false;
+        if (!expiredBackups.isEmpty()) {
+            log.debug("Deleting " + expiredBackups.size() + " expired backups...");
+            deletionFailed = deleteBackups(expiredBackups) < expiredBackups.size();
+        }
+
+        Set<String> linkedClusterBackupIds = backups.getAll().stream()
+                .map(backup -> backups.getMetadata(backup.getBackupId()).getClusterBackupId())
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        ClusterBackupService.applyRetention(linkedClusterBackupIds, now);
+
+        //Expired backups that are kept, like the ones of unknown servers, must not wake the retention up again
+        Instant nextRun = backups.getNextExpiry(now);
+        if (nextPolicyChange != null && (nextRun == null || nextPolicyChange.isBefore(nextRun))) nextRun = nextPolicyChange;
+
+        //Backups that could not be deleted are retried later instead of spinning
+        Instant retryAt = now.plusMillis(RETENTION_RETRY_MILLIS);
+        if (deletionFailed && (nextRun == null || retryAt.isBefore(nextRun))) nextRun = retryAt;
+
+        if (nextRun == null) {
+            log.debug("No backup expires. Retention is idle until the next backup is created.");
+            return;
+        }
+
+        long delayMillis = Math.max(0, Duration.between(Instant.now(), nextRun).toMillis());
+
+        log.debug("Next backup retention run at " + nextRun + ".");
+        scheduleRetention(delayMillis);
     }
 
     public static void rollbackBackup(String backupId, boolean playerData) {
+        restoreBackup(backupId, playerData ? RestoreSelection.full() : RestoreSelection.mapOnly());
+    }
+
+    public static boolean restoreBackup(String backupId, RestoreSelection selection) {
 
         log.debug("Rolling back backup '" + backupId + "'...");
 
         Backup backup = backups.get(backupId);
         if (backup == null) {
-            log.error("Could not delete backup because backup id was not found!");
-            return;
+            log.error("Could not rollback backup because backup id was not found!");
+            return false;
         }
 
         GameServer server = GameServer.getServerById(backup.getServerId());
         if (server == null) {
-            log.error("Could not delete backup because server id was not found!");
-            return;
+            log.error("Could not rollback backup because server id was not found!");
+            return false;
         }
 
-        server.stop(false).complete();
+        BackupMetadata metadata = backups.getMetadata(backupId);
+        if (!selection.isClusterData()) {
+            try (PreparedRestore restore = prepareRestore(server, backup, metadata, selection)) {
+                if (restore == null) return false;
+                server.stop(false).complete();
+                return restore.restore();
+            }
+        }
 
-        File backupLocation = new File(Node.INSTANCE.getServerPath() + "/backups/" + server.getFriendlyName().toLowerCase().replace(" ", "-") + "/" + backup.getName() + ".zip");
-        File saveLocation = new File(server.getInstallDir() + "/ShooterGame/Saved/SavedArks/" + server.getSettings().getMap());
+        if (metadata.getClusterBackupId() == null) {
+            log.error("Could not rollback cluster data because backup '" + backup.getName() + "' is not linked to a cluster backup!");
+            return false;
+        }
 
-        if (!backupLocation.exists()) {
-            log.error("Could not rollback backup because backup location does not exist!");
-            return;
+        ClusterBackup clusterBackup = ClusterBackupService.getBackupById(metadata.getClusterBackupId());
+        if (clusterBackup == null) {
+            log.error("Could not rollback cluster data because cluster backup '" + metadata.getClusterBackupId() + "' was not found!");
+            return false;
         }
 
-        if (!saveLocation.exists()) {
-            log.error("Could not rollback backup because server save location does not exist!");
-            return;
+        //The other servers of the cluster go back to their backup of the same cycle, otherwise their saves do not match the transfer data
+        Map<GameServer, Backup> memberBackups = new LinkedHashMap<>();
+        memberBackups.put(server, backup);
+        for (GameServer member : ClusterBackupService.getMembers(Path.of(clusterBackup.getDirectory()))) {
+            if (member == server) continue;
+            Backup memberBackup = getBackupsByServer(member).stream()
+                    .filter(candidate -> clusterBackup.getBackupId().equals(backups.getMetadata(candidate.getBackupId()).getClusterBackupId()))
+                    .findFirst().orElse(null);
+            if (memberBackup == null) {
+                log.error("Could not rollback cluster data because server '" + member.getFriendlyName() + "' has no backup linked to cluster backup '" + clusterBackup.getName() + "'!");
+                return false;
+            }
+            memberBackups.put(member, memberBackup);
         }
 
-        if (playerData) {
-            File[] playerDataFiles = saveLocation.listFiles();
+        List<PreparedRestore> restores = new ArrayList<>();
+        List<GameServer> stoppedMembers = new ArrayList<>();
 
-            for (File playerDataFile : playerDataFiles) playerDataFile.delete();
+        try {
+            //Every archive is opened and resolved first, a broken backup must not leave the cluster half restored
+            PreparedRestore clusterRestore = ClusterBackupService.prepareRestore(clusterBackup.getBackupId());
+            if (clusterRestore == null) return false;
+            restores.add(clusterRestore);
+
+            for (Map.Entry<GameServer, Backup> entry : memberBackups.entrySet()) {
+                //Only the rolled back server uses the selection, the others are restored completely to the same cycle
+                RestoreSelection memberSelection = entry.getKey() == server ? selection : RestoreSelection.full();
+                PreparedRestore restore = prepareRestore(entry.getKey(), entry.getValue(), backups.getMetadata(entry.getValue().getBackupId()), memberSelection);
+                if (restore == null) return false;
+                restores.add(restore);
+            }
+
+            //The rolled back server stays stopped like on a single rollback, the others are brought back afterwards
+            for (GameServer member : memberBackups.keySet()) {
+                if (member != server && member.getState() != GameServerState.OFFLINE) stoppedMembers.add(member);
+                log.debug("Stopping server '" + member.getFriendlyName() + "' to restore cluster data...");
+                member.stop(false).complete();
+            }
+
+            //The cluster goes first, a failed cluster restore leaves the save files untouched
+            if (!clusterRestore.restore()) return false;
+
+            boolean restored = true;
+            for (PreparedRestore restore : restores) {
+                if (restore != clusterRestore && !restore.restore()) restored = false;
+            }
+            if (!restored) log.error("Cluster data of backup '" + clusterBackup.getName() + "' was restored, but not every server of the cluster could be restored!");
+            return restored;
+        } finally {
+            restores.forEach(PreparedRestore::close);
+            for (GameServer member : stoppedMembers) {
+                log.debug("Starting server '" + member.getFriendlyName() + "' again after the cluster rollback...");
+                member.start().queue();
+            }
+        }
+    }
+
+    private static PreparedRestore prepareRestore(GameServer server, Backup backup, BackupMetadata metadata, RestoreSelection selection) {
 
-            ZipUtil.unpack(backupLocation, saveLocation);
-        } else {
-            ZipUtil.unpackEntry(backupLocation, server.getSettings().getMap() + ".ark", new File(saveLocation + "/" + server.getSettings().getMap() + ".ark"));
+        File backupLocation = getBackupLocation(server, backup, metadata);
+        if (!backupLocation.exists() && !BackupReplicator.fetchReplica(backup, metadata, backupLocation.toPath())) {
+            log.error("Could not rollback backup '" + backup.getName() + "' because backup location does not exist!");
+            return null;
+        }
+
+        File saveLocation = getSaveLocation(server);
+        if (!saveLocation.exists()) {
+            log.error("Could not rollback backup '" + backup.getName() + "' because server save location does not exist!");
+            return null;
         }
 
+        try {
+            ArchiveReader archiveReader = metadata.getCodec().openReader(backupLocation.toPath());
+            try {
+                List<ArchiveEntry> entries = selection.resolve(archiveReader, LaunchPlanCompiler.getMap(server.getSettings()));
+                return new PreparedRestore(backup.getName(), archiveReader, entries, saveLocation.toPath(), selection.isFullRestore());
+            } catch (IOException e) {
+                archiveReader.close();
+                throw e;
+            }
+        } catch (IOException e) {
+            log.error("An unknown error occurred while rolling back backup '" + backup.getName() + "'.", e);
+            return null;
+        }
     }
 
-    public static void backupAllServers(boolean autoBackup) {
+    private static File getSaveLocation(GameServer server) {
+        return new File(server.getInstallDir() + "/ShooterGame/Saved/SavedArks/" + LaunchPlanCompiler.getMap(server.getSettings()));
+    }
 
-        GameServer.getAllServers().forEach((server) -> backupServer(server, autoBackup));
+    public static File getBackupLocation(GameServer server, Backup backup, BackupMetadata metadata) {
+        return new File(Node.INSTANCE.getServerPath() + "/backups/" + server.getFriendlyName().toLowerCase().replace(" ", "-") + "/" + backup.getName() + metadata.getCodec().getExtension());
+    }
 
+    public static void backupAllServers(boolean autoBackup) {
+        BackupScheduler.scheduleAll(autoBackup);
+    }
+
+    private static String getLatestSaveFingerprint(GameServer server) {
+        return getBackupsByServer(server).stream()
+                .max(Comparator.comparing(Backup::getCreatedAt))
+                .map(backup -> backups.getMetadata(backup.getBackupId()).getSaveFingerprint())
+                .orElse(null);
     }
 
     public static List<Backup> getAllBackups() {
-        return backups.values().stream().toList();
+        return backups.getAll();
     }
 
     public static Backup getBackupById(String backupId) {
         return backups.get(backupId);
     }
 
+    public static BackupMetadata getBackupMetadata(String backupId) {
+        return backups.getMetadata(backupId);
+    }
+
+    public static void updateBackupMetadata(Backup backup, BackupMetadataUpdate update) {
+        if (!journal.recordUpdate(backup.getBackupId(), update)) log.debug("Not updating backup '" + backup.getName() + "' because it was deleted.");
+    }
+
     public static List<Backup> getBackupsByServer(String serverId) {
         return getBackupsByServer(GameServer.getServerById(serverId));
     }
 
     public static List<Backup> getBackupsByServer(GameServer server) {
-        return backups.values().stream().filter(backup -> backup.getServerId().equals(server.getServerId())).toList();
+        return backups.getByServer(server.getServerId());
     }
 
     public static void deleteAllBackupsByServer(GameServer server) {
-        getBackupsByServer(server).forEach(backup -> deleteBackup(backup.getBackupId()));
+        deleteBackups(getBackupsByServer(server));
     }
 }
@@ -0,0 +1,239 @@
+package de.swiftbyte.gmc.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import de.swiftbyte.gmc.Node;
+import de.swiftbyte.gmc.backup.*;
+import de.swiftbyte.gmc.server.GameServer;
+import de.swiftbyte.gmc.utils.AtomicFileUtils;
+import de.swiftbyte.gmc.utils.CommonUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/*
+ * Servers with the same cluster id and cluster directory share their transfer data. The directory is
+ * backed up once per backup cycle and every server backup links to the latest cluster backup, so a
+ * rollback can bring all member servers back to the same cluster state.
+ */
+@Slf4j
+public class ClusterBackupService {
+
+    private static final Path BACKUPS_FILE = Path.of("./cluster-backups.json");
+    private static final List<ClusterBackup> backups = new ArrayList<>();
+
+    public static void initialiseClusterBackups() {
+
+        if (!Files.exists(BACKUPS_FILE)) return;
+
+        try {
+            List<ClusterBackup> loadedBackups = CommonUtils.getObjectReader().forType(new TypeReference<List<ClusterBackup>>() {}).readValue(BACKUPS_FILE.toFile());
+            synchronized (backups) {
+                backups.clear();
+                backups.addAll(loadedBackups);
+            }
+            log.debug("Got " + loadedBackups.size() + " saved cluster backups.");
+        } catch (IOException e) {
+            log.error("An unknown error occurred while loading cluster backups.", e);
+        }
+    }
+
+    public static Path getClusterDirectory(GameServer server) {
+
+        if (server.getSettings() == null || CommonUtils.isNullOrEmpty(server.getSettings().getClusterId())) return null;
+
+        String clusterDirOverride = server.getSettings().getClusterDirOverride();
+        Path clusterDirectory = CommonUtils.isNullOrEmpty(clusterDirOverride) ? server.getInstallDir().resolve("ShooterGame/Saved/clusters") : Path.of(clusterDirOverride);
+        return clusterDirectory.toAbsolutePath().normalize();
+    }
+
+    public static Set<Path> getClusterDirectories() {
+        LinkedHashSet<Path> clusterDirectories = new LinkedHashSet<>();
+        for (GameServer server : GameServer.getAllServers()) {
+            Path clusterDirectory = getClusterDirectory(server);
+            if (clusterDirectory != null) clusterDirectories.add(clusterDirectory);
+        }
+        return clusterDirectories;
+    }
+
+    public static List<GameServer> getMembers(Path clusterDirectory) {
+        return GameServer.getAllServers().stream().filter(server -> clusterDirectory.equals(getClusterDirectory(server))).toList();
+    }
+
+    public static void createBackup(Path clusterDirectory, boolean autoBackup, BackupProgressListener progressListener) {
+
+        List<GameServer> members = getMembers(clusterDirectory);
+
+        if (members.isEmpty()) {
+            log.debug("No server uses cluster directory '" + clusterDirectory + "' anymore. Skipping...");
+            return;
+        }
+
+        if (!Files.isDirectory(clusterDirectory)) {
+            log.debug("Cluster directory '" + clusterDirectory + "' does not exist yet. Skipping...");
+            return;
+        }
+
+        ClusterBackup latestBackup = getLatestBackup(clusterDirectory);
+
+        try {
+            if (autoBackup && latestBackup != null && BackupArchiver.getFingerprint(clusterDirectory, file -> true).equals(latestBackup.getSaveFingerprint())) {
+                log.debug("Cluster directory '" + clusterDirectory + "' did not change since the last backup. Skipping auto backup...");
+                return;
+            }
+        } catch (IOException e) {
+            log.error("An unknown error occurred while backing up cluster directory '" + clusterDirectory + "'.", e);
+            return;
+        }
+
+        log.debug("Backing up cluster directory '" + clusterDirectory + "'...");
+
+        String clusterId = members.get(0).getSettings().getClusterId();
+
+        ClusterBackup backup = new ClusterBackup();
+        backup.setBackupId("gmc-cluster-back-" + UUID.randomUUID());
+        backup.setClusterId(clusterId);
+        backup.setDirectory(clusterDirectory.toString());
+        backup.setCreatedAt(Instant.now());
+        RetentionPolicy retentionPolicy = RetentionPolicy.getConfigured();
+        if (autoBackup && !retentionPolicy.isEmpty())
+            backup.setExpiresAt(backup.getCreatedAt().plus(retentionPolicy.getLongestRetention()));
+        else
+            backup.setExpiresAt(backup.getCreatedAt().plus((int) (Node.INSTANCE.getAutoBackup().getDeleteBackupsAfterDays() * 24 * 60), ChronoUnit.MINUTES));
+        backup.setName(DateTimeFormatter.ofPattern("yyyy.MM.dd_HH-mm-ss").withZone(ZoneId.systemDefault()).format(LocalDateTime.now()) + "_cluster");
+        backup.setAutoBackup(autoBackup);
+        backup.setCodec(BackupCodec.getConfigured());
+        backup.setMemberServerIds(members.stream().map(GameServer::getServerId).toList());
+
+        //The folder also has to tell apart clusters that share an id but not a directory
+        String folderName = ".cluster-" + clusterId.toLowerCase().replaceAll("[^a-z0-9_-]", "-") + "-" + UUID.nameUUIDFromBytes(clusterDirectory.toString().getBytes(StandardCharsets.UTF_8)).toString().substring(0, 8);
+        Path backupLocation = Path.of(Node.INSTANCE.getServerPath(), "backups", folderName, backup.getName() + backup.getCodec().getExtension()).toAbsolutePath();
+        backup.setLocation(backupLocation.toString());
+
+        try (SaveSnapshot snapshot = SaveSnapshot.capture(SaveSnapshot.getSnapshotRoot(folderName), clusterDirectory, file -> true)) {
+            backup.setSaveFingerprint(snapshot.getSaveFingerprint());
+
+            ArchiveResult archiveResult = BackupArchiver.archive(snapshot.getDirectory(), file -> true, backupLocation, backup.getCodec(), progressListener);
+            backup.setSize(archiveResult.getSize());
+            backup.setFiles(archiveResult.getEntries());
+
+            synchronized (backups) {
+                backups.add(backup);
+                save();
+            }
+            log.debug("Backed up cluster directory '" + clusterDirectory + "' for " + members.size() + " servers.");
+        } catch (IOException e) {
+            log.error("An unknown error occurred while backing up cluster directory '" + clusterDirectory + "'.", e);
+        }
+    }
+
+    //The caller stops every server of the cluster, each could write transfer data while it is swapped
+    public static PreparedRestore prepareRestore(String clusterBackupId) {
+
+        ClusterBackup backup = getBackupById(clusterBackupId);
+        if (backup == null) {
+            log.error("Could not restore cluster data because cluster backup id was not found!");
+            return null;
+        }
+
+        Path backupLocation = Path.of(backup.getLocation());
+        if (!Files.exists(backupLocation)) {
+            log.error("Could not restore cluster data because backup location does not exist!");
+            return null;
+        }
+
+        try {
+            ArchiveReader archiveReader = backup.getCodec().openReader(backupLocation);
+            return new PreparedRestore(backup.getName(), archiveReader, archiveReader.getEntries(), Path.of(backup.getDirectory()), true);
+        } catch (IOException e) {
+            log.error("An unknown error occurred while opening cluster backup '" + backup.getName() + "'.", e);
+            return null;
+        }
+    }
+
+    public static void applyRetention(Set<String> linkedBackupIds, Instant now) {
+
+        List<ClusterBackup> expiredBackups;
+        synchronized (backups) {
+            //The latest backup of a directory is kept, upcoming server backups will link to it
+            expiredBackups = backups.stream()
+                    .filter(backup -> !linkedBackupIds.contains(backup.getBackupId()))
+                    .filter(backup -> backup.getExpiresAt() != null && !backup.getExpiresAt().isAfter(now))
+                    .filter(backup -> backup != getLatestBackup(Path.of(backup.getDirectory())))
+                    .toList();
+        }
+
+        if (expiredBackups.isEmpty()) return;
+
+        log.debug("Deleting " + expiredBackups.size() + " expired cluster backups...");
+        List<ClusterBackup> deletedBackups = expiredBackups.stream().filter(ClusterBackupService::deleteBackupFiles).toList();
+
+        synchronized (backups) {
+            backups.removeAll(deletedBackups);
+            save();
+        }
+    }
+
+    private static boolean deleteBackupFiles(ClusterBackup backup) {
+
+        Path backupLocation = Path.of(backup.getLocation());
+        if (!Files.exists(backupLocation)) return true;
+
+        try {
+            backup.getCodec().delete(backupLocation);
+            return true;
+        } catch (IOException e) {
+            log.error("An unknown error occurred while deleting cluster backup '" + backup.getName() + "'.", e);
+            return false;
+        }
+    }
+
+    public static void deleteBackupList() throws IOException {
+        synchronized (backups) {
+            backups.clear();
+        }
+        Files.deleteIfExists(BACKUPS_FILE);
+    }
+
+    public static ClusterBackup getLatestBackup(Path clusterDirectory) {
+        synchronized (backups) {
+            return backups.stream()
+                    .filter(backup -> backup.getDirectory().equals(clusterDirectory.toString()))
+                    .max(Comparator.comparing(ClusterBackup::getCreatedAt))
+                    .orElse(null);
+        }
+    }
+
+    public static ClusterBackup getLatestBackup(GameServer server) {
+        Path clusterDirectory = getClusterDirectory(server);
+        return clusterDirectory == null ? null : getLatestBackup(clusterDirectory);
+    }
+
+    public static ClusterBackup getBackupById(String backupId) {
+        synchronized (backups) {
+            return backups.stream().filter(backup -> backup.getBackupId().equals(backupId)).findFirst().orElse(null);
+        }
+    }
+
+    public static List<ClusterBackup> getAllBackups() {
+        synchronized (backups) {
+            return List.copyOf(backups);
+        }
+    }
+
+    private static void save() {
+        try {
+            AtomicFileUtils.write(BACKUPS_FILE, CommonUtils.getObjectWriter().writeValueAsBytes(backups));
+        } catch (IOException e) {
+            log.error("An unknown error occurred while saving cluster backups.", e);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package de.swiftbyte.gmc.stomp.consumers.node;
 import de.swiftbyte.gmc.Node;
 import de.swiftbyte.gmc.common.packet.node.NodeLoginAckPacket;
 import de.swiftbyte.gmc.server.AsaServer;
+import de.swiftbyte.gmc.service.BackupService;
 import de.swiftbyte.gmc.server.GameServer;
 import de.swiftbyte.gmc.stomp.StompPacketConsumer;
 import de.swiftbyte.gmc.stomp.StompPacketInfo;
@@ -41,5 +42,6 @@ public class LoginAckPacketConsumer implements StompPacketConsumer<NodeLoginAckP
         Node.INSTANCE.updateSettings(packet.getNodeSettings());
 
         Node.INSTANCE.setConnectionState(ConnectionState.CONNECTED);
+        BackupService.onServersLoaded();
     }
 }
@@ -1,8 +1,10 @@
 package de.swiftbyte.gmc.stomp.consumers.node;
 
 import de.swiftbyte.gmc.Node;
+import de.swiftbyte.gmc.cache.NodeStateRepository;
 import de.swiftbyte.gmc.common.packet.node.NodeDeletePacket;
 import de.swiftbyte.gmc.server.GameServer;
+import de.swiftbyte.gmc.service.BackupService;
 import de.swiftbyte.gmc.stomp.StompPacketConsumer;
 import de.swiftbyte.gmc.stomp.StompPacketInfo;
 import de.swiftbyte.gmc.utils.ConfigUtils;
@@ -36,6 +38,8 @@ public class NodeDeletePacketConsumer implements StompPacketConsumer<NodeDeleteP
             FileUtils.deleteDirectory(new File(NodeUtils.STEAM_CMD_DIR));
             FileUtils.deleteDirectory(new File("logs"));
 
+            NodeStateRepository.close();
+
             try {
                 FileUtils.delete(new File("cache.json"));
             } catch (Exception e) {
@@ -43,12 +47,13 @@ public class NodeDeletePacketConsumer implements StompPacketConsumer<NodeDeleteP
             }
 
             try {
-                FileUtils.delete(new File("backups.json"));
+                BackupService.deleteBackupJournal();
             } catch (Exception e) {
-                log.debug("Could not delete backups.json directory.", e);
+                log.debug("Could not delete backup journal.", e);
             }
             ConfigUtils.remove("node.id");
             ConfigUtils.remove("node.secret");
+            ConfigUtils.flush();
         } catch (IOException e) {
             log.warn("An error occurred while cleaning up.", e);
         }
@@ -2,6 +2,7 @@ package de.swiftbyte.gmc.stomp.consumers.server;
 
 import de.swiftbyte.gmc.common.packet.server.ServerSettingsPacket;
 import de.swiftbyte.gmc.common.packet.server.ServerSettingsResponsePacket;
+import de.swiftbyte.gmc.install.ModCache;
 import de.swiftbyte.gmc.server.AsaServer;
 import de.swiftbyte.gmc.server.GameServer;
 import de.swiftbyte.gmc.stomp.StompHandler;
@@ -31,6 +32,9 @@ public class ChangeServerSettingsPacketConsumer implements StompPacketConsumer<S
 
             ServerUtils.writeAsaStartupBatch((AsaServer) server);
 
+            //Mods added to the settings are linked from the cache before the next start
+            ModCache.prefetch(server);
+
         } else {
             log.error("Server with id " + packet.getServerId() + " not found!");
         }
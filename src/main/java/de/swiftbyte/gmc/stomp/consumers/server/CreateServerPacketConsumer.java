@@ -1,6 +1,7 @@
 package de.swiftbyte.gmc.stomp.consumers.server;
 
 import de.swiftbyte.gmc.common.packet.server.ServerCreatePacket;
+import de.swiftbyte.gmc.install.InstallJob;
 import de.swiftbyte.gmc.server.AsaServer;
 import de.swiftbyte.gmc.stomp.StompPacketConsumer;
 import de.swiftbyte.gmc.stomp.StompPacketInfo;
@@ -16,7 +17,7 @@ public class CreateServerPacketConsumer implements StompPacketConsumer<ServerCre
         if (packet.getGame().equalsIgnoreCase("ASCENDED")) {
             AsaServer server = new AsaServer(packet.getServerId(), packet.getServerName(), packet.getDefaultSettings(), true);
 
-            server.install().complete();
+            server.install(InstallJob.Priority.HIGH, false).complete();
             log.info("Installed server with id " + packet.getServerId() + " and name " + packet.getServerName() + " successfully.");
         } else {
             log.error("Game " + packet.getGame() + " is not supported!");
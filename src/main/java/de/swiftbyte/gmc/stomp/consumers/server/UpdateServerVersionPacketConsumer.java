@@ -1,6 +1,7 @@
 package de.swiftbyte.gmc.stomp.consumers.server;
 
 import de.swiftbyte.gmc.common.packet.server.ServerUpdatePacket;
+import de.swiftbyte.gmc.install.InstallJob;
 import de.swiftbyte.gmc.server.GameServer;
 import de.swiftbyte.gmc.stomp.StompPacketConsumer;
 import de.swiftbyte.gmc.stomp.StompPacketInfo;
@@ -16,12 +17,11 @@ public class UpdateServerVersionPacketConsumer implements StompPacketConsumer<Se
         GameServer server = GameServer.getServerById(packet.getServerId());
 
         if (server != null) {
-            if (server.stop(false).complete()) {
-                server.install().complete();
-                log.info("Updated server with id " + packet.getServerId() + " successfully.");
-            } else {
-                log.error("Failed to update server with id " + packet.getServerId() + " because it could not be stopped!");
-            }
+            //Looking up the latest build runs SteamCMD, the consumer thread must not wait for it
+            server.updateBuild(InstallJob.Priority.NORMAL, false).queue(success -> {
+                if (success) log.info("Updated server with id " + packet.getServerId() + " successfully.");
+                else log.error("Failed to update server with id " + packet.getServerId() + "!");
+            });
         } else {
             log.error("Server with id " + packet.getServerId() + " not found!");
         }
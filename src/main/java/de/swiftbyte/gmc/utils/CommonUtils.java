@@ -1,7 +1,9 @@
 package de.swiftbyte.gmc.utils;
 
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import de.swiftbyte.gmc.common.packet.entity.NodeData;
 import lombok.extern.slf4j.Slf4j;
@@ -19,6 +21,8 @@ import java.util.*;
 @Slf4j
 public class CommonUtils {
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModules(new JavaTimeModule());
+
     public static boolean isNullOrEmpty(String string) {
         return string == null || string.isEmpty();
     }
@@ -89,8 +93,14 @@ public class CommonUtils {
     }
 
     public static ObjectReader getObjectReader() {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModules(new JavaTimeModule());
-        return mapper.reader();
+        return OBJECT_MAPPER.reader();
+    }
+
+    public static ObjectWriter getObjectWriter() {
+        return OBJECT_MAPPER.writer();
+    }
+
+    public static ObjectWriter getPrettyObjectWriter() {
+        return OBJECT_MAPPER.writer(new DefaultPrettyPrinter());
     }
 }
@@ -1,38 +1,49 @@
 package de.swiftbyte.gmc.utils;
 
+import de.swiftbyte.gmc.Application;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.Properties;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Slf4j
 public class ConfigUtils {
 
     private static final String CONFIG_NAME = "gmc.properties";
-    private static final File CONFIG_FILE = new File(CONFIG_NAME);
+    private static final Path CONFIG_PATH = Path.of(CONFIG_NAME).toAbsolutePath();
+    private static final String CONFIG_COMMENT = "Do not make any changes! If the file gets edited, it can lead to malfunctions, unexpected behavior and data loss.";
 
-    private static Properties properties;
+    private static final long FLUSH_DELAY_MILLIS = 500;
 
-    public static void initialiseConfigSystem() {
+    private static final Object LOCK = new Object();
+    private static final Object FLUSH_LOCK = new Object();
+    private static final Set<String> pendingKeys = new HashSet<>();
+    private static final Map<String, List<Consumer<String>>> changeListeners = new ConcurrentHashMap<>();
 
-        log.debug("Start initialising of config system...");
+    private static volatile Map<String, String> snapshot = Map.of();
 
-        if (!CONFIG_FILE.exists()) {
-            try {
+    private static ScheduledExecutorService executor;
+    private static ScheduledFuture<?> pendingFlush;
 
-                log.debug("Creating config file...");
+    public static void initialiseConfigSystem() {
 
-                if (!CONFIG_FILE.createNewFile()) {
-                    log.error("The configuration file has already been created, but the existence could not be confirmed by the program. Please delete the file manually.");
-                    System.exit(1);
-                }
+        log.debug("Start initialising of config system...");
 
-                properties = new Properties();
-                properties.load(new FileInputStream(CONFIG_FILE));
-                properties.store(new FileWriter(CONFIG_FILE), "Do not make any changes! If the file gets edited, it can lead to malfunctions, unexpected behavior and data loss.");
+        executor = Application.getExecutor();
+
+        if (!Files.exists(CONFIG_PATH)) {
+            log.debug("Creating config file...");
+            try {
+                writeConfigFile(Map.of());
             } catch (IOException | SecurityException e) {
                 log.error("The configuration file could not be created due to an error.", e);
                 System.exit(1);
@@ -44,11 +55,12 @@ public class ConfigUtils {
         log.debug("Loading daemon configuration...");
 
         try {
-            properties = new Properties();
-            properties.load(new FileInputStream(CONFIG_FILE));
+            snapshot = readConfigFile();
         } catch (IOException e) {
             log.error("An unknown error occurred while loading the configuration file.", e);
         }
+
+        startConfigWatcher();
     }
 
     public static boolean store(String key, String value) {
@@ -58,13 +70,7 @@ public class ConfigUtils {
             return false;
         }
 
-        properties.setProperty(key, value);
-        try {
-            properties.store(new FileWriter(CONFIG_FILE), "Do not make any changes! If the file gets, edited it can lead to malfunctions, unexpected behavior and data loss.");
-        } catch (IOException e) {
-            log.error("An unknown error occurred while saving the value.", e);
-        }
-        return true;
+        return storeAll(Map.of(key, value));
     }
 
     public static boolean store(String key, int value) {
@@ -75,6 +81,17 @@ public class ConfigUtils {
         return store(key, String.valueOf(value));
     }
 
+    public static boolean storeAll(Map<String, String> values) {
+
+        if (values.keySet().stream().anyMatch(Objects::isNull) || values.values().stream().anyMatch(Objects::isNull)) {
+            log.error("Tried to store null value or key.");
+            return false;
+        }
+
+        applyLocalChange(properties -> properties.putAll(values), values.keySet());
+        return true;
+    }
+
     public static String get(String key, String defaultValue) {
 
         if (key == null) {
@@ -82,7 +99,7 @@ public class ConfigUtils {
             return null;
         }
 
-        return properties.getProperty(key, defaultValue);
+        return snapshot.getOrDefault(key, defaultValue);
     }
 
     public static String get(String key) {
@@ -96,12 +113,7 @@ public class ConfigUtils {
             return;
         }
 
-        properties.remove(key);
-        try {
-            properties.store(new FileWriter(CONFIG_FILE), "Do not make any changes! If the file gets, edited it can lead to malfunctions, unexpected behavior and data loss.");
-        } catch (IOException e) {
-            log.error("An unknown error occurred while saving the value.", e);
-        }
+        applyLocalChange(properties -> properties.remove(key), Set.of(key));
     }
 
     public static boolean hasKey(String key) {
@@ -111,7 +123,163 @@ public class ConfigUtils {
             return false;
         }
 
-        return properties.containsKey(key);
+        return snapshot.containsKey(key);
+    }
+
+    public static void addChangeListener(String key, Consumer<String> listener) {
+        changeListeners.computeIfAbsent(key, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    public static void flush() {
+
+        synchronized (FLUSH_LOCK) {
+
+            Map<String, String> content;
+            Set<String> flushedKeys;
+
+            synchronized (LOCK) {
+                if (pendingFlush != null) {
+                    pendingFlush.cancel(false);
+                    pendingFlush = null;
+                }
+                if (pendingKeys.isEmpty()) return;
+                content = snapshot;
+                flushedKeys = Set.copyOf(pendingKeys);
+            }
+
+            //The keys stay pending until they are on disk, so a reload in between can't revert them
+            try {
+                writeConfigFile(content);
+            } catch (IOException e) {
+                log.error("An unknown error occurred while saving the configuration file.", e);
+                synchronized (LOCK) {
+                    if (pendingFlush == null && executor != null) {
+                        pendingFlush = executor.schedule(ConfigUtils::flush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                    }
+                }
+                return;
+            }
+
+            synchronized (LOCK) {
+                //Keys that were changed again during the write still have to be written
+                for (String key : flushedKeys) {
+                    if (Objects.equals(snapshot.get(key), content.get(key))) pendingKeys.remove(key);
+                }
+            }
+        }
+    }
+
+    private static void applyLocalChange(Consumer<Map<String, String>> change, Set<String> keys) {
+
+        Map<String, String> oldSnapshot;
+        Map<String, String> newSnapshot;
+
+        synchronized (LOCK) {
+            oldSnapshot = snapshot;
+            HashMap<String, String> properties = new HashMap<>(oldSnapshot);
+            change.accept(properties);
+            newSnapshot = Map.copyOf(properties);
+            if (newSnapshot.equals(oldSnapshot)) return;
+
+            snapshot = newSnapshot;
+            pendingKeys.addAll(keys);
+
+            if (pendingFlush == null && executor != null) {
+                pendingFlush = executor.schedule(ConfigUtils::flush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        notifyListeners(oldSnapshot, newSnapshot);
+    }
+
+    private static void reloadConfigFile() {
+
+        Map<String, String> oldSnapshot;
+        Map<String, String> newSnapshot;
+
+        try {
+            Map<String, String> fileContent = readConfigFile();
+
+            synchronized (LOCK) {
+                oldSnapshot = snapshot;
+                HashMap<String, String> properties = new HashMap<>(fileContent);
+                for (String key : pendingKeys) {
+                    if (oldSnapshot.containsKey(key)) properties.put(key, oldSnapshot.get(key));
+                    else properties.remove(key);
+                }
+                newSnapshot = Map.copyOf(properties);
+                if (newSnapshot.equals(oldSnapshot)) return;
+                snapshot = newSnapshot;
+            }
+        } catch (IOException e) {
+            log.warn("The configuration file was changed but could not be reloaded.", e);
+            return;
+        }
+
+        log.info("Configuration file was changed externally. Reloaded configuration.");
+        notifyListeners(oldSnapshot, newSnapshot);
+    }
+
+    private static void notifyListeners(Map<String, String> oldSnapshot, Map<String, String> newSnapshot) {
+        changeListeners.forEach((key, listeners) -> {
+            String newValue = newSnapshot.get(key);
+            if (Objects.equals(oldSnapshot.get(key), newValue)) return;
+            listeners.forEach(listener -> {
+                try {
+                    listener.accept(newValue);
+                } catch (Exception e) {
+                    log.error("An unknown error occurred while applying the changed configuration value '" + key + "'.", e);
+                }
+            });
+        });
+    }
+
+    private static void startConfigWatcher() {
+
+        Thread watcherThread = new Thread(() -> {
+            try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+
+                CONFIG_PATH.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+                while (true) {
+                    WatchKey key = watchService.take();
+
+                    boolean configChanged = key.pollEvents().stream()
+                            .anyMatch(event -> event.context() instanceof Path path && path.toString().equals(CONFIG_NAME));
+                    key.reset();
+
+                    if (configChanged) reloadConfigFile();
+                }
+
+            } catch (IOException e) {
+                log.warn("Could not watch the configuration file for changes. External edits require a restart.", e);
+            } catch (InterruptedException ignored) {
+            }
+        }, "config-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    private static Map<String, String> readConfigFile() throws IOException {
+
+        Properties properties = new Properties();
+        try (InputStream inputStream = Files.newInputStream(CONFIG_PATH)) {
+            properties.load(inputStream);
+        }
+
+        HashMap<String, String> content = new HashMap<>();
+        properties.stringPropertyNames().forEach(key -> content.put(key, properties.getProperty(key)));
+        return Map.copyOf(content);
+    }
+
+    private static void writeConfigFile(Map<String, String> content) throws IOException {
+
+        Properties properties = new Properties();
+        properties.putAll(content);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        properties.store(outputStream, CONFIG_COMMENT);
 
+        AtomicFileUtils.write(CONFIG_PATH, outputStream.toByteArray());
     }
 }
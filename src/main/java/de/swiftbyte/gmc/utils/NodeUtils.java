@@ -1,13 +1,11 @@
 package de.swiftbyte.gmc.utils;
 
-import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import de.swiftbyte.gmc.Application;
 import de.swiftbyte.gmc.Node;
 import de.swiftbyte.gmc.cache.CacheModel;
 import de.swiftbyte.gmc.cache.GameServerCacheModel;
+import de.swiftbyte.gmc.cache.NodeStateRepository;
+import de.swiftbyte.gmc.download.Downloader;
 import de.swiftbyte.gmc.server.GameServer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
@@ -17,10 +15,16 @@ import org.zeroturnaround.zip.ZipUtil;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.URL;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
 import java.util.HashMap;
 
 @Slf4j
@@ -33,7 +37,7 @@ public class NodeUtils {
             STEAM_CMD_DOWNLOAD_URL = "https://steamcdn-a.akamaihd.net/client/installer/steamcmd.zip";
 
     public static Path getSteamCmdPath() {
-        return Paths.get(STEAM_CMD_PATH);
+        return Paths.get(ConfigUtils.get("install.steamcmd-path", STEAM_CMD_PATH));
     }
 
     public static Integer getValidatedToken(String token) {
@@ -72,7 +76,7 @@ public class NodeUtils {
     }
 
     public static void checkInstallation() {
-        if (Files.exists(Paths.get(STEAM_CMD_PATH))) {
+        if (Files.exists(getSteamCmdPath())) {
             log.debug("SteamCMD installation found.");
         } else {
             log.info("SteamCMD installation not found. Try to install...");
@@ -85,41 +89,80 @@ public class NodeUtils {
 
         File tmp = new File(TMP_PATH);
         try {
-            FileUtils.copyURLToFile(
-                    new URL(STEAM_CMD_DOWNLOAD_URL),
-                    new File(TMP_PATH + "steamcmd.zip"));
+            Downloader.download(STEAM_CMD_DOWNLOAD_URL, Path.of(TMP_PATH + "steamcmd.zip"), null);
 
             ZipUtil.unpack(new File(TMP_PATH + "steamcmd.zip"), new File(STEAM_CMD_DIR));
             FileUtils.deleteDirectory(tmp);
             log.info("SteamCMD successfully installed!");
         } catch (IOException e) {
+            //The partial download is kept, the next start continues it
             log.error("An error occurred while downloading SteamCMD. Please check your internet connection!", e);
-            try {
-                FileUtils.deleteDirectory(tmp);
-            } catch (IOException ex) {
-                log.warn("An error occurred while deleting the temporary directory.", ex);
-            }
             System.exit(1);
         }
     }
 
-    public static void downloadLatestDaemonInstaller() {
-        File tmp = new File(TMP_PATH);
-
+    public static boolean downloadLatestDaemonInstaller() {
         try {
-            FileUtils.copyURLToFile(
-                    new URL(DAEMON_LATEST_DOWNLOAD_URL),
-                    new File(TMP_PATH + "latest-installer.exe"));
+            String sha256 = Downloader.fetchSha256(DAEMON_LATEST_DOWNLOAD_URL + ".sha256");
+            if (sha256 == null) {
+                //Releases do not publish a checksum yet, requiring one would stop every update
+                if (Boolean.parseBoolean(ConfigUtils.get("update.require-checksum", "false"))) {
+                    log.error("The update has no published checksum. Aborting the update, set 'update.require-checksum' to false to install it anyway.");
+                    return false;
+                }
+                log.warn("The update has no published checksum. Only its size is verified.");
+            }
+
+            Path installerPath = Path.of(TMP_PATH + "latest-installer.exe");
+            Downloader.download(DAEMON_LATEST_DOWNLOAD_URL, installerPath, sha256);
+
+            //The checksum comes from the same release as the installer, only a signature proves who built it
+            String signingKey = ConfigUtils.get("update.signing-key", "");
+            if (!signingKey.isBlank() && !verifySignature(installerPath, DAEMON_LATEST_DOWNLOAD_URL + ".sig", signingKey)) {
+                Files.deleteIfExists(installerPath);
+                return false;
+            }
 
             log.debug("Update successfully downloaded!");
+            return true;
         } catch (IOException e) {
+            //The partial download is kept, the next update continues it
             log.error("An error occurred while downloading the update. Please check your internet connection!", e);
-            try {
-                FileUtils.deleteDirectory(tmp);
-            } catch (IOException ex) {
-                log.warn("An error occurred while deleting the temporary directory.", ex);
+            return false;
+        }
+    }
+
+    //The key is the Base64 encoded X.509 form of an Ed25519 public key
+    private static boolean verifySignature(Path file, String signatureUrl, String signingKey) throws IOException {
+
+        byte[] signature = Downloader.fetchBytes(signatureUrl);
+        if (signature == null) {
+            log.error("The update has no published signature. Aborting the update because 'update.signing-key' is set.");
+            return false;
+        }
+
+        try {
+            PublicKey publicKey = KeyFactory.getInstance("Ed25519").generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(signingKey.trim())));
+            Signature verifier = Signature.getInstance("Ed25519");
+            verifier.initVerify(publicKey);
+
+            try (InputStream inputStream = Files.newInputStream(file)) {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) verifier.update(buffer, 0, read);
+            }
+
+            if (!verifier.verify(signature)) {
+                log.error("The signature of the update does not match 'update.signing-key'. Aborting the update.");
+                return false;
             }
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            log.error("Could not verify the signature of the update. Aborting the update.", e);
+            return false;
         }
+
+        log.debug("Verified the signature of the update.");
+        return true;
     }
 
     public static void cacheInformation(Node node) {
@@ -149,16 +192,6 @@ public class NodeUtils {
                 .serverStopMessage(node.getServerStopMessage())
                 .build();
 
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.registerModule(new JavaTimeModule());
-        ObjectWriter writer = mapper.writer(new DefaultPrettyPrinter());
-        try {
-            File file = new File("./cache.json");
-            if (!file.exists()) file.createNewFile();
-            writer.writeValue(file, cacheModel);
-        } catch (IOException e) {
-            log.error("An unknown error occurred while caching information.", e);
-        }
-
+        NodeStateRepository.update(cacheModel);
     }
 }
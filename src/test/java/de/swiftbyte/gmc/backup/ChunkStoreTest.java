@@ -0,0 +1,67 @@
+package de.swiftbyte.gmc.backup;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void deletingBackupKeepsChunksSharedWithOtherBackups() throws IOException {
+
+        byte[] save = new byte[512 * 1024];
+        new Random(3).nextBytes(save);
+        Path saveFile = Files.write(directory.resolve("TheIsland_WP.ark"), save);
+
+        Path backups = directory.resolve("written/backups");
+        writeBackup(backups.resolve("server/first.gmcm"), saveFile);
+        writeBackup(backups.resolve("server/second.gmcm"), saveFile);
+
+        //A copy of the backups gets its own store, like after a restart of the daemon
+        Path restartedBackups = directory.resolve("restarted/backups");
+        FileUtils.copyDirectory(backups.toFile(), restartedBackups.toFile());
+        long chunks = countChunks(restartedBackups);
+        assertTrue(chunks > 0);
+
+        BackupCodec.CHUNKED.delete(restartedBackups.resolve("server/first.gmcm"));
+
+        assertFalse(Files.exists(restartedBackups.resolve("server/first.gmcm")));
+        assertEquals(chunks, countChunks(restartedBackups));
+
+        try (ArchiveReader reader = BackupCodec.CHUNKED.openReader(restartedBackups.resolve("server/second.gmcm"));
+             InputStream inputStream = reader.openEntry(reader.getEntry("TheIsland_WP.ark"))) {
+            assertArrayEquals(save, inputStream.readAllBytes());
+        }
+
+        BackupCodec.CHUNKED.delete(restartedBackups.resolve("server/second.gmcm"));
+        assertEquals(0, countChunks(restartedBackups));
+    }
+
+    private static void writeBackup(Path manifest, Path saveFile) throws IOException {
+        Files.createDirectories(manifest.getParent());
+        try (ArchiveWriter writer = BackupCodec.CHUNKED.createWriter(manifest, 1)) {
+            writer.addFile("TheIsland_WP.ark", saveFile, bytes -> {
+            });
+        }
+    }
+
+    private static long countChunks(Path backups) throws IOException {
+        Path chunkRoot = backups.resolve(ChunkStore.DIRECTORY_NAME);
+        if (!Files.isDirectory(chunkRoot)) return 0;
+        try (Stream<Path> stream = Files.walk(chunkRoot)) {
+            return stream.filter(Files::isRegularFile).count();
+        }
+    }
+}
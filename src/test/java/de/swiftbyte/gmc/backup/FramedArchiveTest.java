@@ -0,0 +1,126 @@
+package de.swiftbyte.gmc.backup;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FramedArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @EnumSource(value = BackupCodec.class, names = {"ZSTD", "LZ4"})
+    void roundTripsEntries(BackupCodec codec) throws IOException {
+
+        byte[] large = new byte[FramedArchiveWriter.BLOCK_SIZE * 2 + 4321];
+        Random random = new Random(7);
+        for (int i = 0; i < large.length; i++) large[i] = (byte) (i % 100 < 70 ? i % 13 : random.nextInt(256));
+
+        Path emptyFile = Files.createFile(directory.resolve("empty.ark"));
+        Path smallFile = Files.write(directory.resolve("small.ini"), "[ServerSettings]".getBytes());
+        Path largeFile = Files.write(directory.resolve("large.ark"), large);
+
+        Path archive = directory.resolve("backup" + codec.getExtension());
+        try (ArchiveWriter writer = codec.createWriter(archive, 3)) {
+            writer.addFile("SavedArks/empty.ark", emptyFile, null);
+            writer.addFile("Config/small.ini", smallFile, null);
+            ArchiveEntry entry = writer.addFile("SavedArks/large.ark", largeFile, null);
+            assertEquals(large.length, entry.getSize());
+        }
+
+        try (ArchiveReader reader = codec.openReader(archive)) {
+            assertEquals(List.of("SavedArks/empty.ark", "Config/small.ini", "SavedArks/large.ark"), reader.getEntries().stream().map(ArchiveEntry::getName).toList());
+
+            assertContent(reader, "SavedArks/empty.ark", new byte[0]);
+            assertContent(reader, "Config/small.ini", "[ServerSettings]".getBytes());
+            assertContent(reader, "SavedArks/large.ark", large);
+
+            //Entries can be opened in any order
+            assertContent(reader, "Config/small.ini", "[ServerSettings]".getBytes());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(FrameCodec.class)
+    void writesCodecIntoHeader(FrameCodec codec) throws IOException {
+
+        Path archive = directory.resolve("backup.gmca");
+        try (FramedArchiveWriter writer = new FramedArchiveWriter(archive, codec, 1)) {
+            writer.addFile("a", Files.write(directory.resolve("a"), new byte[]{1, 2, 3}), null);
+        }
+
+        byte[] content = Files.readAllBytes(archive);
+        assertArrayEquals(FramedArchiveWriter.MAGIC, Arrays.copyOf(content, 4));
+        assertEquals(FramedArchiveWriter.VERSION, content[4]);
+        assertEquals(codec.getId(), content[5]);
+    }
+
+    @ParameterizedTest
+    @EnumSource(FrameCodec.class)
+    void rejectsTruncatedArchive(FrameCodec codec) throws IOException {
+
+        Path archive = directory.resolve("backup.gmca");
+        try (FramedArchiveWriter writer = new FramedArchiveWriter(archive, codec, 1)) {
+            writer.addFile("a", Files.write(directory.resolve("a"), new byte[1000]), null);
+        }
+
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        assertThrows(IOException.class, () -> new FramedArchiveReader(archive).close());
+    }
+
+    @ParameterizedTest
+    @EnumSource(FrameCodec.class)
+    void rejectsCorruptFrame(FrameCodec codec) throws IOException {
+
+        byte[] content = new byte[64 * 1024];
+        for (int i = 0; i < content.length; i++) content[i] = (byte) (i % 31);
+
+        Path archive = directory.resolve("backup.gmca");
+        try (FramedArchiveWriter writer = new FramedArchiveWriter(archive, codec, 1)) {
+            writer.addFile("a", Files.write(directory.resolve("a"), content), null);
+        }
+
+        //Header (6 bytes) and block header (8 bytes) stay intact, the frame itself is overwritten
+        byte[] archiveContent = Files.readAllBytes(archive);
+        for (int i = 14; i < 30; i++) archiveContent[i] = (byte) 0xFF;
+        Files.write(archive, archiveContent);
+
+        try (FramedArchiveReader reader = new FramedArchiveReader(archive)) {
+            assertThrows(IOException.class, () -> {
+                try (InputStream inputStream = reader.openEntry(reader.getEntry("a"))) {
+                    inputStream.readAllBytes();
+                }
+            });
+        }
+    }
+
+    private static void assertContent(ArchiveReader reader, String name, byte[] expected) throws IOException {
+        ArchiveEntry entry = reader.getEntry(name);
+        assertNotNull(entry, "Missing entry " + name);
+
+        CRC32 crc = new CRC32();
+        crc.update(expected);
+        assertEquals(crc.getValue(), entry.getCrc());
+
+        try (InputStream inputStream = reader.openEntry(entry)) {
+            assertArrayEquals(expected, inputStream.readAllBytes());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package de.swiftbyte.gmc.backup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelZipWriterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writesEmptyAndSmallFiles() throws IOException {
+
+        Path empty = Files.createFile(directory.resolve("empty.ark"));
+        Path small = write("small.ark", "TheIsland_WP".getBytes());
+
+        Path archive = directory.resolve("backup.zip");
+        List<ArchiveEntry> entries = new ArrayList<>();
+        try (ParallelZipWriter writer = new ParallelZipWriter(archive, 2, 6)) {
+            entries.add(writer.addFile("SavedArks/empty.ark", empty, null));
+            entries.add(writer.addFile("SavedArks/small.ark", small, null));
+        }
+
+        assertEquals(0, entries.get(0).getSize());
+        assertEquals(12, entries.get(1).getSize());
+
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            assertEquals(2, zipFile.size());
+            assertContent(zipFile, "SavedArks/empty.ark", new byte[0]);
+            assertContent(zipFile, "SavedArks/small.ark", Files.readAllBytes(small));
+        }
+    }
+
+    @Test
+    void writesFilesSpanningSeveralBlocks() throws IOException {
+
+        //Compressible but not uniform, so every block references the dictionary of its predecessor
+        byte[] content = new byte[3 * 1024 * 1024 + 12345];
+        Random random = new Random(42);
+        for (int i = 0; i < content.length; i++) content[i] = (byte) ('a' + random.nextInt(6));
+
+        Path large = write("large.ark", content);
+        Path archive = directory.resolve("backup.zip");
+
+        long processedBytes;
+        try (ParallelZipWriter writer = new ParallelZipWriter(archive, 4, 6)) {
+            long[] progress = new long[1];
+            ArchiveEntry entry = writer.addFile("large.ark", large, bytes -> progress[0] += bytes);
+            processedBytes = progress[0];
+
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            assertEquals(crc.getValue(), entry.getCrc());
+        }
+
+        assertEquals(content.length, processedBytes);
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            assertContent(zipFile, "large.ark", content);
+        }
+    }
+
+    @Test
+    void writesZip64EndRecordForManyEntries() throws IOException {
+
+        Path file = write("player.arkprofile", "profile".getBytes());
+        Path archive = directory.resolve("backup.zip");
+        int entries = 0xFFFF + 100;
+
+        try (ParallelZipWriter writer = new ParallelZipWriter(archive, 2, 1)) {
+            for (int i = 0; i < entries; i++) writer.addFile("profiles/" + i + ".arkprofile", file, null);
+        }
+
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            assertEquals(entries, zipFile.size());
+            assertContent(zipFile, "profiles/0.arkprofile", "profile".getBytes());
+            assertContent(zipFile, "profiles/" + (entries - 1) + ".arkprofile", "profile".getBytes());
+        }
+    }
+
+    //The archive starts 5 GiB into the file, which is only cheap where the file system creates sparse files by default
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void writesZip64OffsetsBehindFourGigabytes() throws IOException {
+
+        Path first = write("first.ark", "first".getBytes());
+        Path second = write("second.ark", "second".getBytes());
+        Path archive = directory.resolve("backup.zip");
+
+        try (ParallelZipWriter writer = new ParallelZipWriter(archive, 2, 6, 5L * 1024 * 1024 * 1024)) {
+            writer.addFile("first.ark", first, null);
+            writer.addFile("second.ark", second, null);
+        }
+
+        try (ZipFile zipFile = new ZipFile(archive.toFile())) {
+            assertEquals(List.of("first.ark", "second.ark"), Collections.list(zipFile.entries()).stream().map(ZipEntry::getName).toList());
+            assertContent(zipFile, "first.ark", "first".getBytes());
+            assertContent(zipFile, "second.ark", "second".getBytes());
+        }
+    }
+
+    private Path write(String name, byte[] content) throws IOException {
+        return Files.write(directory.resolve(name), content);
+    }
+
+    private static void assertContent(ZipFile zipFile, String name, byte[] expected) throws IOException {
+        ZipEntry entry = zipFile.getEntry(name);
+        assertNotNull(entry, "Missing entry " + name);
+        assertEquals(expected.length, entry.getSize());
+        try (InputStream inputStream = zipFile.getInputStream(entry)) {
+            assertArrayEquals(expected, inputStream.readAllBytes());
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package de.swiftbyte.gmc.backup.target;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class S3BackupTargetTest {
+
+    private static final String BUCKET = "gmc-backups";
+    private static final String KEY = "server-id/2024.03.01_12-30-45_TheIsland_WP.zip";
+    private static final int PART_SIZE = 1024;
+
+    @TempDir
+    Path directory;
+
+    private final FakeS3 s3 = new FakeS3();
+    private MockWebServer server;
+    private S3BackupTarget target;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(s3);
+        server.start();
+        target = new S3BackupTarget(server.url("/").toString(), "us-east-1", BUCKET, "access", "secret", true, PART_SIZE, 1);
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void uploadsSmallArchiveInOneRequest() throws IOException {
+
+        byte[] content = createContent(PART_SIZE - 1);
+        Path archive = Files.write(directory.resolve("backup.zip"), content);
+
+        target.upload(archive, KEY, null);
+
+        assertArrayEquals(content, s3.objects.get("/" + BUCKET + "/" + KEY));
+        assertEquals(0, s3.createdUploads.get());
+
+        Path downloaded = directory.resolve("downloaded.zip");
+        target.download(KEY, downloaded);
+        assertArrayEquals(content, Files.readAllBytes(downloaded));
+    }
+
+    @Test
+    void resumesMultipartUploadWithMissingParts() throws IOException {
+
+        byte[] content = createContent(PART_SIZE * 4 + 100);
+        Path archive = Files.write(directory.resolve("backup.zip"), content);
+        Path statePath = directory.resolve("backup.zip.upload");
+
+        s3.failingParts.add(3);
+        assertThrows(IOException.class, () -> target.upload(archive, KEY, null));
+        assertTrue(Files.exists(statePath));
+
+        long[] progress = new long[2];
+        target.upload(archive, KEY, (processedBytes, totalBytes) -> {
+            progress[0] = processedBytes;
+            progress[1] = totalBytes;
+        });
+
+        assertArrayEquals(content, s3.objects.get("/" + BUCKET + "/" + KEY));
+        assertEquals(1, s3.createdUploads.get());
+        s3.storedParts.forEach((partNumber, count) -> assertEquals(1, count.get(), "Part " + partNumber + " was uploaded again"));
+        assertEquals(5, s3.storedParts.size());
+        assertArrayEquals(new long[]{content.length, content.length}, progress);
+        assertFalse(Files.exists(statePath));
+    }
+
+    @Test
+    void restartsMultipartUploadThatNoLongerExists() throws IOException {
+
+        byte[] content = createContent(PART_SIZE * 3 + 1);
+        Path archive = Files.write(directory.resolve("backup.zip"), content);
+
+        s3.failingParts.add(2);
+        assertThrows(IOException.class, () -> target.upload(archive, KEY, null));
+
+        //The storage aborted the upload in the meantime, e.g. through a lifecycle rule
+        s3.uploads.clear();
+        target.upload(archive, KEY, null);
+
+        assertArrayEquals(content, s3.objects.get("/" + BUCKET + "/" + KEY));
+        assertEquals(2, s3.createdUploads.get());
+        assertFalse(Files.exists(directory.resolve("backup.zip.upload")));
+    }
+
+    @Test
+    void doesNotRestartUploadWhenBucketIsMissing() throws IOException {
+
+        Path archive = Files.write(directory.resolve("backup.zip"), createContent(PART_SIZE * 2 + 1));
+
+        s3.missingBucketParts.add(1);
+        IOException exception = assertThrows(IOException.class, () -> target.upload(archive, KEY, null));
+
+        assertTrue(exception.getMessage().contains("NoSuchBucket"));
+        assertEquals(1, s3.createdUploads.get());
+    }
+
+    @Test
+    void checksWhetherObjectsExist() throws IOException {
+
+        assertFalse(target.exists(KEY));
+
+        target.upload(Files.write(directory.resolve("backup.zip"), createContent(10)), KEY, null);
+        assertTrue(target.exists(KEY));
+
+        target.delete(KEY);
+        assertFalse(target.exists(KEY));
+    }
+
+    @Test
+    void signsEveryRequest() throws Exception {
+
+        target.upload(Files.write(directory.resolve("backup.zip"), createContent(10)), KEY, null);
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/" + BUCKET + "/" + KEY, request.getRequestUrl().encodedPath());
+        assertEquals(S3Signer.UNSIGNED_PAYLOAD, request.getHeader("x-amz-content-sha256"));
+        assertNotNull(request.getHeader("x-amz-date"));
+        assertTrue(Objects.requireNonNull(request.getHeader("Authorization")).startsWith("AWS4-HMAC-SHA256 Credential=access/"));
+    }
+
+    private static byte[] createContent(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    //Just enough of the S3 API for the calls of S3BackupTarget, with errors injected per part
+    private static class FakeS3 extends Dispatcher {
+
+        private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+        private final Map<Integer, AtomicInteger> storedParts = new ConcurrentHashMap<>();
+        private final Set<Integer> failingParts = ConcurrentHashMap.newKeySet();
+        private final Set<Integer> missingBucketParts = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger createdUploads = new AtomicInteger();
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+
+            HttpUrl url = Objects.requireNonNull(request.getRequestUrl());
+            String path = url.encodedPath();
+            String uploadId = url.queryParameter("uploadId");
+
+            switch (Objects.requireNonNull(request.getMethod())) {
+                case "POST" -> {
+                    if (url.queryParameter("uploads") != null) {
+                        String newUploadId = "upload-" + createdUploads.incrementAndGet();
+                        uploads.put(newUploadId, new ConcurrentHashMap<>());
+                        return new MockResponse().setBody("<InitiateMultipartUploadResult><UploadId>" + newUploadId + "</UploadId></InitiateMultipartUploadResult>");
+                    }
+                    return complete(path, uploads.remove(uploadId), request.getBody().readUtf8());
+                }
+                case "PUT" -> {
+                    byte[] body = request.getBody().readByteArray();
+                    if (uploadId == null) {
+                        objects.put(path, body);
+                        return new MockResponse().setHeader("ETag", "\"object\"");
+                    }
+
+                    int partNumber = Integer.parseInt(Objects.requireNonNull(url.queryParameter("partNumber")));
+                    if (missingBucketParts.contains(partNumber)) return error(404, "NoSuchBucket");
+                    if (failingParts.remove(partNumber)) return error(500, "InternalError");
+
+                    Map<Integer, byte[]> parts = uploads.get(uploadId);
+                    if (parts == null) return error(404, "NoSuchUpload");
+
+                    parts.put(partNumber, body);
+                    storedParts.computeIfAbsent(partNumber, number -> new AtomicInteger()).incrementAndGet();
+                    return new MockResponse().setHeader("ETag", "\"etag-" + partNumber + "\"");
+                }
+                case "GET" -> {
+                    byte[] object = objects.get(path);
+                    if (object == null) return error(404, "NoSuchKey");
+                    return new MockResponse().setBody(new okio.Buffer().write(object));
+                }
+                case "HEAD" -> {
+                    return objects.containsKey(path) ? new MockResponse() : new MockResponse().setResponseCode(404);
+                }
+                case "DELETE" -> {
+                    objects.remove(path);
+                    return new MockResponse().setResponseCode(204);
+                }
+                default -> {
+                    return error(405, "MethodNotAllowed");
+                }
+            }
+        }
+
+        private MockResponse complete(String path, Map<Integer, byte[]> parts, String body) {
+
+            if (parts == null) return error(404, "NoSuchUpload");
+
+            ByteArrayOutputStream object = new ByteArrayOutputStream();
+            for (int partNumber = 1; partNumber <= parts.size(); partNumber++) {
+                if (!body.contains("<PartNumber>" + partNumber + "</PartNumber><ETag>&quot;etag-" + partNumber + "&quot;</ETag>")) return error(400, "InvalidPart");
+                object.writeBytes(parts.get(partNumber));
+            }
+
+            objects.put(path, object.toByteArray());
+            return new MockResponse().setBody("<CompleteMultipartUploadResult><Key>" + path + "</Key></CompleteMultipartUploadResult>");
+        }
+
+        private static MockResponse error(int code, String errorCode) {
+            return new MockResponse().setResponseCode(code).setBody("<Error><Code>" + errorCode + "</Code></Error>");
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package de.swiftbyte.gmc.backup.target;
+
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class S3SignerTest {
+
+    private final S3Signer signer = new S3Signer("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY", "eu-central-1",
+            Clock.fixed(Instant.parse("2024-03-01T12:30:45Z"), ZoneOffset.UTC));
+
+    //The signature was checked against the request validation of s3proxy
+    @Test
+    void signsUploadPartRequest() throws IOException {
+
+        Request request = signer.sign(new Request.Builder(), "PUT",
+                        HttpUrl.get("https://s3.example.com/gmc-backups/server%201/backup.zip?partNumber=2&uploadId=a%2Fb"),
+                        "/gmc-backups/server%201/backup.zip", Map.of("uploadId", "a/b", "partNumber", "2"))
+                .method("PUT", RequestBody.create(new byte[0], null))
+                .build();
+
+        assertEquals("20240301T123045Z", request.header("x-amz-date"));
+        assertEquals(S3Signer.UNSIGNED_PAYLOAD, request.header("x-amz-content-sha256"));
+        assertEquals("AWS4-HMAC-SHA256 Credential=AKIDEXAMPLE/20240301/eu-central-1/s3/aws4_request, SignedHeaders=host;x-amz-content-sha256;x-amz-date, "
+                + "Signature=57c76e58c803b48c019922ef20f824a7ff9b5a3280d3bea163484bfb4646fd24", request.header("Authorization"));
+    }
+
+    @Test
+    void encodesLikeS3() {
+        assertEquals("server%20id/backup%20%C3%BC%2B.zip", S3Signer.encode("server id/backup ü+.zip", true));
+        assertEquals("a%2Fb", S3Signer.encode("a/b", false));
+        assertEquals("AZaz09-_.~", S3Signer.encode("AZaz09-_.~", false));
+    }
+}
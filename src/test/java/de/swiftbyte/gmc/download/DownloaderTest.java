@@ -0,0 +1,153 @@
+package de.swiftbyte.gmc.download;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+import okio.Buffer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownloaderTest {
+
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d+)-(\\d+)");
+    private static final String ETAG = "\"v1\"";
+
+    @TempDir
+    Path directory;
+
+    private final byte[] content = createContent(3 * 1024 * 1024 + 123);
+    private final FakeServer fakeServer = new FakeServer();
+    private MockWebServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(fakeServer);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    void resumesInterruptedDownload() throws IOException {
+
+        Path target = directory.resolve("installer.exe");
+        String url = server.url("/installer.exe").toString();
+
+        //The last segment breaks on every attempt, the others finish
+        fakeServer.failFrom = content.length - 1;
+        assertThrows(IOException.class, () -> Downloader.download(url, target, sha256(content)));
+        assertFalse(Files.exists(target));
+        assertTrue(Files.exists(directory.resolve("installer.exe.part")));
+        assertTrue(Files.exists(directory.resolve("installer.exe.download")));
+
+        fakeServer.failFrom = -1;
+        fakeServer.ranges.clear();
+        Downloader.download(url, target, sha256(content));
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertFalse(Files.exists(directory.resolve("installer.exe.part")));
+        assertFalse(Files.exists(directory.resolve("installer.exe.download")));
+
+        //Only the probe starts at the beginning again, the finished segments are not requested twice
+        assertEquals(List.of(0L), fakeServer.ranges.stream().filter(start -> start < content.length / 2).toList());
+        assertEquals(2, fakeServer.ranges.size());
+    }
+
+    @Test
+    void downloadsInOnePieceWithoutRanges() throws IOException {
+
+        fakeServer.rangesSupported = false;
+        Path target = directory.resolve("installer.exe");
+
+        Downloader.download(server.url("/installer.exe").toString(), target, sha256(content));
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertFalse(Files.exists(directory.resolve("installer.exe.download")));
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    void rejectsWrongChecksum() {
+
+        Path target = directory.resolve("installer.exe");
+
+        assertThrows(IOException.class, () -> Downloader.download(server.url("/installer.exe").toString(), target, sha256(new byte[]{1})));
+        assertFalse(Files.exists(target));
+        assertFalse(Files.exists(directory.resolve("installer.exe.part")));
+    }
+
+    @Test
+    void fetchesPublishedChecksum() throws IOException {
+        assertEquals(sha256(content), Downloader.fetchSha256(server.url("/installer.exe.sha256").toString()));
+        assertNull(Downloader.fetchSha256(server.url("/missing.sha256").toString()));
+    }
+
+    private static byte[] createContent(int size) {
+        byte[] bytes = new byte[size];
+        new Random(5).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private class FakeServer extends Dispatcher {
+
+        private final List<Long> ranges = new CopyOnWriteArrayList<>();
+        private volatile boolean rangesSupported = true;
+        private volatile long failFrom = -1;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+
+            String path = request.getPath();
+            if (path.equals("/installer.exe.sha256")) return new MockResponse().setBody(sha256(content) + "  gmc-daemon-setup.exe\n");
+            if (!path.equals("/installer.exe")) return new MockResponse().setResponseCode(404);
+
+            String range = request.getHeader("Range");
+            if (!rangesSupported || range == null) return new MockResponse().setHeader("ETag", ETAG).setBody(new Buffer().write(content));
+
+            Matcher matcher = RANGE_PATTERN.matcher(range);
+            assertTrue(matcher.matches(), "Unexpected range " + range);
+            long start = Long.parseLong(matcher.group(1));
+            long end = Math.min(Long.parseLong(matcher.group(2)), content.length - 1);
+            ranges.add(start);
+
+            MockResponse response = new MockResponse().setResponseCode(206).setHeader("ETag", ETAG)
+                    .setHeader("Content-Range", "bytes " + start + "-" + end + "/" + content.length)
+                    .setBody(new Buffer().write(content, (int) start, (int) (end - start + 1)));
+
+            if (failFrom >= 0 && end >= failFrom && start > 0) {
+                response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package de.swiftbyte.gmc.install;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyValuesTest {
+
+    @Test
+    void parsesAppManifest() throws IOException {
+
+        Map<String, Object> values = KeyValues.parse(readFixture("appmanifest_2430930.acf"));
+
+        assertEquals("4", KeyValues.get(values, "AppState", "StateFlags"));
+        assertEquals("13615232", KeyValues.get(values, "AppState", "buildid"));
+        assertEquals("9683243571", KeyValues.get(values, "AppState", "InstalledDepots", "2430931", "size"));
+    }
+
+    @Test
+    void matchesKeysCaseInsensitively() {
+
+        Map<String, Object> values = KeyValues.parse("\"AppState\" { \"BuildID\" \"42\" }");
+
+        assertEquals("42", KeyValues.get(values, "appstate", "buildid"));
+        assertNull(KeyValues.get(values, "AppState"));
+        assertNull(KeyValues.get(values, "AppState", "BuildID", "nested"));
+    }
+
+    @Test
+    void readsAppInfoBetweenLogLines() throws IOException {
+
+        Map<String, Object> values = KeyValues.parseObject(readFixture("app_info_2430930.txt"), "2430930");
+
+        assertNotNull(values);
+        assertEquals("13615232", KeyValues.get(values, "depots", "branches", "public", "buildid"));
+        assertEquals("13620001", KeyValues.get(values, "depots", "branches", "beta", "buildid"));
+        assertEquals("The \"official\" server", KeyValues.get(values, "common", "description"));
+    }
+
+    @Test
+    void returnsNullWithoutRootKey() throws IOException {
+        assertNull(KeyValues.parseObject(readFixture("app_info_2430930.txt"), "376030"));
+        assertNull(KeyValues.parseObject("\"2430930\" \"value\"", "2430930"));
+    }
+
+    @Test
+    void rejectsTruncatedData() {
+        assertThrows(IllegalArgumentException.class, () -> KeyValues.parseObject("\"2430930\" { \"common\" { \"name\" \"ARK\"", "2430930"));
+        assertThrows(IllegalArgumentException.class, () -> KeyValues.parse("\"AppState\" { \"buildid\" \"136"));
+        assertThrows(IllegalArgumentException.class, () -> KeyValues.parse("\"AppState\" { \"buildid\""));
+    }
+
+    static String readFixture(String name) throws IOException {
+        try (InputStream inputStream = KeyValuesTest.class.getResourceAsStream(name)) {
+            assertNotNull(inputStream, "Missing fixture " + name);
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
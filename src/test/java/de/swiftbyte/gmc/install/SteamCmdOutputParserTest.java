@@ -0,0 +1,88 @@
+package de.swiftbyte.gmc.install;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SteamCmdOutputParserTest {
+
+    private static final String PROGRESS_LINE = " Update state (0x61) downloading, progress: 12.50 (1250 / 10000)\r";
+
+    @Test
+    void parsesProgressSplitAcrossReads() {
+
+        List<SteamCmdProgress> progress = new ArrayList<>();
+        List<String> lines = new ArrayList<>();
+        SteamCmdOutputParser parser = new SteamCmdOutputParser(progress::add, lines::add);
+
+        byte[] output = ("Loading Steam API...OK\n" + PROGRESS_LINE + "Success! App '2430930' fully installed.\n").getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < output.length; i += 7) {
+            byte[] chunk = new byte[Math.min(7, output.length - i)];
+            System.arraycopy(output, i, chunk, 0, chunk.length);
+            parser.accept(chunk, chunk.length);
+        }
+        parser.finish();
+
+        assertEquals(List.of(new SteamCmdProgress("downloading", 12.5, 1250, 10000)), progress);
+        assertEquals(List.of("Loading Steam API...OK", "Success! App '2430930' fully installed."), lines);
+        assertTrue(parser.isSuccess());
+        assertNull(parser.getLastError());
+    }
+
+    @Test
+    void keepsLastError() {
+
+        SteamCmdOutputParser parser = new SteamCmdOutputParser(null, null);
+        accept(parser, "ERROR! Failed to install app '2430930' (No subscription)\n");
+
+        assertFalse(parser.isSuccess());
+        assertEquals("ERROR! Failed to install app '2430930' (No subscription)", parser.getLastError());
+    }
+
+    @Test
+    void repeatedProgressLinesStall() {
+
+        long[] now = {0};
+        StallDetector stallDetector = new StallDetector(300_000, now[0]);
+        SteamCmdOutputParser parser = new SteamCmdOutputParser(progress -> stallDetector.onProgress(progress, now[0]), line -> stallDetector.onLine(now[0]));
+
+        accept(parser, PROGRESS_LINE);
+        for (int i = 0; i < 10; i++) {
+            now[0] += 60_000;
+            accept(parser, PROGRESS_LINE);
+        }
+
+        assertTrue(stallDetector.isStalled(now[0]));
+    }
+
+    @Test
+    void changedProgressAndOutputLinesAreActivity() {
+
+        long[] now = {0};
+        StallDetector stallDetector = new StallDetector(300_000, now[0]);
+        SteamCmdOutputParser parser = new SteamCmdOutputParser(progress -> stallDetector.onProgress(progress, now[0]), line -> stallDetector.onLine(now[0]));
+
+        for (int i = 0; i < 10; i++) {
+            now[0] += 200_000;
+            accept(parser, " Update state (0x61) downloading, progress: " + i + ".00 (" + i * 100 + " / 10000)\r");
+        }
+        assertFalse(stallDetector.isStalled(now[0]));
+
+        now[0] += 200_000;
+        accept(parser, "Downloading update (0 of 1 KB)...\n");
+        now[0] += 200_000;
+        assertFalse(stallDetector.isStalled(now[0]));
+
+        now[0] += 100_000;
+        assertTrue(stallDetector.isStalled(now[0]));
+    }
+
+    private static void accept(SteamCmdOutputParser parser, String output) {
+        byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+        parser.accept(bytes, bytes.length);
+    }
+}
@@ -0,0 +1,138 @@
+package de.swiftbyte.gmc.install;
+
+import de.swiftbyte.gmc.utils.ConfigUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//The fake SteamCMD is a shell script, so the planner is tested where one can run
+@DisabledOnOs(OS.WINDOWS)
+class UpdatePlannerTest {
+
+    //The latest build is cached per app, so every test plans a different app
+    private static final AtomicInteger appIds = new AtomicInteger(2430930);
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void removeSteamCmd() {
+        ConfigUtils.remove("install.steamcmd-path");
+    }
+
+    @Test
+    void validatesWhenRequested() throws IOException {
+
+        String appId = nextAppId();
+        Path installDir = installManifest(appId, "4", "13615232");
+        Path steamCmd = fakeSteamCmd(appId, "13615232");
+
+        UpdatePlanner.UpdatePlan plan = UpdatePlanner.plan(appId, installDir, true);
+
+        assertEquals(new UpdatePlanner.UpdatePlan(UpdatePlanner.UpdatePlan.Action.VALIDATE, "13615232", null), plan);
+        assertFalse(Files.exists(steamCmd.resolveSibling("calls")), "Validating must not ask SteamCMD for the latest build");
+    }
+
+    @Test
+    void updatesWithoutManifest() throws IOException {
+
+        String appId = nextAppId();
+        fakeSteamCmd(appId, "13615232");
+
+        UpdatePlanner.UpdatePlan plan = UpdatePlanner.plan(appId, directory.resolve("install"), false);
+
+        assertEquals(new UpdatePlanner.UpdatePlan(UpdatePlanner.UpdatePlan.Action.UPDATE, null, null), plan);
+    }
+
+    @Test
+    void updatesInterruptedInstall() throws IOException {
+
+        String appId = nextAppId();
+        Path installDir = installManifest(appId, "1026", "13615232");
+        fakeSteamCmd(appId, "13615232");
+
+        UpdatePlanner.UpdatePlan plan = UpdatePlanner.plan(appId, installDir, false);
+
+        assertEquals(new UpdatePlanner.UpdatePlan(UpdatePlanner.UpdatePlan.Action.UPDATE, null, null), plan);
+    }
+
+    @Test
+    void skipsLatestBuild() throws IOException {
+
+        String appId = nextAppId();
+        Path installDir = installManifest(appId, "4", "13615232");
+        fakeSteamCmd(appId, "13615232");
+
+        UpdatePlanner.UpdatePlan plan = UpdatePlanner.plan(appId, installDir, false);
+
+        assertEquals(new UpdatePlanner.UpdatePlan(UpdatePlanner.UpdatePlan.Action.SKIP, "13615232", "13615232"), plan);
+    }
+
+    @Test
+    void updatesOlderBuild() throws IOException {
+
+        String appId = nextAppId();
+        Path installDir = installManifest(appId, "4", "13500000");
+        fakeSteamCmd(appId, "13615232");
+
+        UpdatePlanner.UpdatePlan plan = UpdatePlanner.plan(appId, installDir, false);
+
+        assertEquals(new UpdatePlanner.UpdatePlan(UpdatePlanner.UpdatePlan.Action.UPDATE, "13500000", "13615232"), plan);
+    }
+
+    @Test
+    void updatesWhenLatestBuildIsUnknown() throws IOException {
+
+        String appId = nextAppId();
+        Path installDir = installManifest(appId, "4", "13615232");
+        writeScript("#!/bin/sh\necho 'Connecting anonymously to Steam Public...FAILED'\nexit 5\n");
+
+        UpdatePlanner.UpdatePlan plan = UpdatePlanner.plan(appId, installDir, false);
+
+        assertEquals(new UpdatePlanner.UpdatePlan(UpdatePlanner.UpdatePlan.Action.UPDATE, "13615232", null), plan);
+    }
+
+    private Path installManifest(String appId, String stateFlags, String buildId) throws IOException {
+
+        String manifest = KeyValuesTest.readFixture("appmanifest_2430930.acf")
+                .replace("2430930", appId)
+                .replace("\"StateFlags\"\t\t\"4\"", "\"StateFlags\"\t\t\"" + stateFlags + "\"")
+                .replace("13615232", buildId);
+
+        Path installDir = directory.resolve("install");
+        Files.createDirectories(installDir.resolve("steamapps"));
+        Files.writeString(installDir.resolve("steamapps/appmanifest_" + appId + ".acf"), manifest);
+        return installDir;
+    }
+
+    //Prints the app info fixture like app_info_print would and counts its calls
+    private Path fakeSteamCmd(String appId, String latestBuildId) throws IOException {
+
+        Path appInfo = directory.resolve("app_info.txt");
+        Files.writeString(appInfo, KeyValuesTest.readFixture("app_info_2430930.txt").replace("2430930", appId).replace("13615232", latestBuildId));
+
+        return writeScript("#!/bin/sh\necho call >> '" + directory.resolve("calls") + "'\ncat '" + appInfo + "'\n");
+    }
+
+    private Path writeScript(String content) throws IOException {
+        Path script = directory.resolve("steamcmd.sh");
+        Files.writeString(script, content);
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+        ConfigUtils.store("install.steamcmd-path", script.toString());
+        return script;
+    }
+
+    private static String nextAppId() {
+        return String.valueOf(appIds.incrementAndGet());
+    }
+}
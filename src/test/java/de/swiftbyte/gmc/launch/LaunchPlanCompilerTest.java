@@ -0,0 +1,117 @@
+package de.swiftbyte.gmc.launch;
+
+import de.swiftbyte.gmc.common.packet.entity.ServerSettings;
+import de.swiftbyte.gmc.utils.CommonUtils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LaunchPlanCompilerTest {
+
+    private static final Path INSTALL_DIR = Path.of("C:/servers/the-island");
+
+    @Test
+    void compilesMinimalSettings() {
+
+        ServerSettings settings = new ServerSettings();
+        settings.setGamePort(7777);
+        settings.setQueryPort(27015);
+        settings.setRconPort(27020);
+
+        LaunchPlan plan = LaunchPlanCompiler.build(settings, "The Island", INSTALL_DIR, "ArkAscendedServer.exe", "rcon-pw");
+
+        assertEquals("cd /d \"" + windowsPath("C:/servers/the-island") + "\\ShooterGame\\Binaries\\Win64\"", plan.getChangeDirectoryCommand());
+        assertEquals("start \"The Island\" \"" + windowsPath("C:/servers/the-island/ShooterGame/Binaries/Win64/ArkAscendedServer.exe") + "\""
+                + " TheIsland_WP?listen?Port=7777?QueryPort=27015?RCONEnabled=True?RCONPort=27020?ClampItemStats=false?ServerAdminPassword=\"rcon-pw\""
+                + " -game -server -log -oldconsole -NoBattlEye", plan.getStartCommand());
+        assertEquals("rcon-pw", plan.getRconPassword());
+        assertEquals(27020, plan.getRconPort());
+    }
+
+    @Test
+    void compilesFullSettingsInOrder() {
+
+        LaunchPlan plan = LaunchPlanCompiler.build(createFullSettings(), "My Server", INSTALL_DIR, "AsaApiLoader.exe", "rcon-pw");
+
+        assertEquals("start \"My Server\" /high /affinity F \"" + windowsPath("C:/servers/the-island/ShooterGame/Binaries/Win64/AsaApiLoader.exe") + "\""
+                + " ScorchedEarth_WP?listen?Port=7777?QueryPort=27015?RCONEnabled=True?RCONPort=27020?ClampItemStats=true"
+                + "?SessionName=My-Server?MultiHome=10.0.0.5?ServerPassword=\"join me\"?SpectatorPassword=\"watch\""
+                + "?AllowFlyerCarryPvE=True?ShowFloatingDamageText=True?ServerAdminPassword=\"rcon-pw\""
+                + " -game -server -log -oldconsole -WinLiveMaxPlayers=70 -mods=928793,900062 -culture=de"
+                + " -clusterID=gmc-cluster -ClusterDirOverride=\"D:/cluster\" -notransferfromfiltering"
+                + " -ForceAllowCaveFlyers -servergamelog", plan.getStartCommand());
+    }
+
+    @Test
+    void writesBatchLines() {
+
+        LaunchPlan plan = new LaunchPlan("cd /d \"C:\\servers\"", "start \"Server\" \"ArkAscendedServer.exe\"", "rcon-pw", 27020);
+        String lineSeparator = System.lineSeparator();
+
+        assertEquals("cd /d \"C:\\servers\"" + lineSeparator + "start \"Server\" \"ArkAscendedServer.exe\"" + lineSeparator + "exit" + lineSeparator, plan.getBatch());
+    }
+
+    @Test
+    void keepsConfiguredRconPassword() {
+
+        ServerSettings settings = new ServerSettings();
+        settings.setRconPassword("configured");
+
+        assertEquals("configured", LaunchPlanCompiler.getRconPassword(settings, "server-id", "Server", null));
+    }
+
+    @Test
+    void generatesRconPasswordFromNodeSecret() {
+
+        ServerSettings settings = new ServerSettings();
+        String password = LaunchPlanCompiler.getRconPassword(settings, "server-id", "Server", "node-secret");
+
+        assertTrue(password.startsWith("gmc-rp-"));
+        assertEquals(password, LaunchPlanCompiler.getRconPassword(settings, "server-id", "Server", "node-secret"));
+        assertNotEquals(password, LaunchPlanCompiler.getRconPassword(settings, "other-server-id", "Server", "node-secret"));
+        assertNotEquals(password, LaunchPlanCompiler.getRconPassword(settings, "server-id", "Server", "other-secret"));
+    }
+
+    @Test
+    void refusesRconPasswordWithoutNodeSecret() {
+
+        ServerSettings settings = new ServerSettings();
+
+        assertThrows(IllegalStateException.class, () -> LaunchPlanCompiler.getRconPassword(settings, "server-id", "Server", null));
+        assertThrows(IllegalStateException.class, () -> LaunchPlanCompiler.getRconPassword(settings, "server-id", "Server", ""));
+        assertThrows(IllegalStateException.class, () -> LaunchPlanCompiler.getRconPassword(settings, "server-id", "Server", "dummy"));
+    }
+
+    static ServerSettings createFullSettings() {
+
+        ServerSettings settings = new ServerSettings();
+        settings.setMap("ScorchedEarth_WP");
+        settings.setName("My Server");
+        settings.setGamePort(7777);
+        settings.setQueryPort(27015);
+        settings.setRconPort(27020);
+        settings.setClampItemStats(true);
+        settings.setServerIp("10.0.0.5");
+        settings.setServerPassword("join me");
+        settings.setSpecPassword("watch");
+        settings.setMaxPlayers(70);
+        settings.setModIds("928793,900062");
+        settings.setEnableBattlEye(true);
+        settings.setCulture("de");
+        settings.setClusterId("gmc-cluster");
+        settings.setClusterDirOverride("D:/cluster");
+        settings.setNoTransferFromFiltering(true);
+        settings.setLaunchParameters1(List.of("/high", "/affinity F"));
+        //Parameters the daemon sets itself are dropped, with or without their prefix
+        settings.setLaunchParameters2(List.of("Port=9999", "AllowFlyerCarryPvE=True", "?ShowFloatingDamageText=True", "?RCONPort=1"));
+        settings.setLaunchParameters3(List.of("ForceAllowCaveFlyers", "-servergamelog", "culture=en", "-mods=1"));
+        return settings;
+    }
+
+    private static String windowsPath(String path) {
+        return CommonUtils.convertPathSeparator(path);
+    }
+}